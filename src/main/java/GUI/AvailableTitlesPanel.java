@@ -1,13 +1,13 @@
 package GUI;
 
 import LibraryEntities.Book;
+import LibraryViews.BookRow;
 import dao.BookDaoImpl;
-import dao.Dao;
 
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
-import java.util.List;
+import java.util.stream.Collectors;
 
 /**
  * A panel that displays all {@link Book} entities that have at least one "Available" copy.
@@ -17,7 +17,7 @@ public class AvailableTitlesPanel extends JPanel {
     /**
      * The data access object for Books.
      */
-    private final Dao<Book> bookDao;
+    private final BookDaoImpl bookDao;
 
     /**
      * The table for displaying available titles.
@@ -27,9 +27,9 @@ public class AvailableTitlesPanel extends JPanel {
     /**
      * Constructs the panel with the specified Book DAO.
      *
-     * @param bookDao A {@link Dao} for managing Book entities.
+     * @param bookDao The DAO for managing Book entities.
      */
-    public AvailableTitlesPanel(Dao<Book> bookDao) {
+    public AvailableTitlesPanel(BookDaoImpl bookDao) {
         this.bookDao = bookDao;
         setLayout(new BorderLayout());
         initComponents();
@@ -45,28 +45,11 @@ public class AvailableTitlesPanel extends JPanel {
     }
 
     /**
-     * Loads all books that have at least one available copy, using {@link BookDaoImpl#findAvailableTitles()}.
+     * Loads all books that have at least one available copy, using {@link BookDaoImpl#findAvailableTitleRows()}.
      */
-    @SuppressWarnings("unchecked")
     public void loadAvailableTitles() {
-        if (!(bookDao instanceof BookDaoImpl)) {
-            return;
-        }
-        BookDaoImpl bookDaoImpl = (BookDaoImpl) bookDao;
-        List<Book> availableBooks = bookDaoImpl.findAvailableTitles();
-
-        DefaultTableModel model = (DefaultTableModel) availableTitlesTable.getModel();
-        model.setRowCount(0);
-
-        for (Book book : availableBooks) {
-            model.addRow(new Object[]{
-                    book.getId(),
-                    book.getTitle(),
-                    book.getAuthor(),
-                    book.getPublisherName(),
-                    book.getIsbn(),
-                    book.getPublicationYear()
-            });
-        }
+        TableLoader.load(availableTitlesTable, () -> bookDao.findAvailableTitleRows().stream()
+                .map(BookRow::toCells)
+                .collect(Collectors.toList()));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,63 @@
+package GUI;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Hands the results of background DAO calls back to the Swing event dispatch thread.
+ * <p>While a call runs its owner shows the wait cursor but stays responsive. Once it
+ * completes, the result is passed on, or the failure is reported in an error dialog,
+ * on the EDT.</p>
+ */
+final class BackgroundCalls {
+
+    /**
+     * Runs tasks on the EDT.
+     */
+    static final Executor EDT = SwingUtilities::invokeLater;
+
+    /**
+     * The number of running calls per owner, which shows the wait cursor while it is positive.
+     * Only used on the EDT.
+     */
+    private static final Map<Component, Integer> RUNNING = new WeakHashMap<>();
+
+    private BackgroundCalls() {}
+
+    /**
+     * Handles the outcome of a background call on the EDT. Must be called on the EDT.
+     *
+     * @param owner          The component the call was made for; shows the wait cursor meanwhile.
+     * @param call           The running call.
+     * @param onSuccess      Receives the result on the EDT.
+     * @param failureMessage Describes the exception the call failed with, for the error dialog.
+     * @param <R>            The result type.
+     */
+    static <R> void whenDone(Component owner, CompletableFuture<R> call, Consumer<R> onSuccess,
+                             Function<Throwable, String> failureMessage) {
+        if (RUNNING.merge(owner, 1, Integer::sum) == 1) {
+            owner.setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        }
+        call.whenCompleteAsync((result, failure) -> {
+            if (RUNNING.merge(owner, -1, Integer::sum) == 0) {
+                RUNNING.remove(owner);
+                owner.setCursor(null);
+            }
+            if (failure == null) {
+                onSuccess.accept(result);
+                return;
+            }
+            Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+                    ? failure.getCause() : failure;
+            JOptionPane.showMessageDialog(owner, failureMessage.apply(cause),
+                    "Error", JOptionPane.ERROR_MESSAGE);
+        }, EDT);
+    }
+}
@@ -2,28 +2,47 @@ package GUI;
 
 import LibraryEntities.Book;
 import LibraryEntities.Copy;
+import LibraryEntities.CopyStatus;
+import LibraryUtil.ChangeEvent;
+import LibraryUtil.ChangeEvents;
+import LibraryViews.BookAvailability;
+import LibraryViews.BookRow;
+import dao.AsyncDao;
+import dao.BookDaoImpl;
+import dao.CatalogImportResult;
+import dao.CatalogImporter;
 import dao.Dao;
 
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 /**
  * A panel that displays and manages {@link Book} entities, along with options to add,
  * edit, or delete books. Also handles creation of related {@link Copy} entities.
+ * The table is loaded once and then patched row by row from the Book {@link ChangeEvent}s,
+ * which include the availability changes caused by checkouts and returns.
  */
 public class BookManagementPanel extends JPanel {
 
     /**
      * The DAO for managing Book entities.
      */
-    private Dao<Book> bookDao;
+    private BookDaoImpl bookDao;
 
     /**
-     * The DAO for managing Copy entities.
+     * Runs Book operations in the background.
      */
-    private Dao<Copy> copyDao;
+    private final AsyncDao<Book> books;
+
+    /**
+     * Runs Copy operations in the background.
+     */
+    private final AsyncDao<Copy> copies;
 
     /**
      * The table for showing all books.
@@ -36,11 +55,13 @@ public class BookManagementPanel extends JPanel {
      * @param bookDao A DAO for Book operations.
      * @param copyDao A DAO for Copy operations.
      */
-    public BookManagementPanel(Dao<Book> bookDao, Dao<Copy> copyDao) {
+    public BookManagementPanel(BookDaoImpl bookDao, Dao<Copy> copyDao) {
         this.bookDao = bookDao;
-        this.copyDao = copyDao;
+        this.books = new AsyncDao<>(bookDao);
+        this.copies = new AsyncDao<>(copyDao);
         setLayout(new BorderLayout());
         initComponents();
+        ChangeEvents.subscribe(Book.class, event -> SwingUtilities.invokeLater(() -> bookChanged(event)));
     }
 
     /**
@@ -55,40 +76,74 @@ public class BookManagementPanel extends JPanel {
         JButton addBookButton = new JButton("Add Book");
         JButton editBookButton = new JButton("Edit Book");
         JButton deleteBookButton = new JButton("Delete Book");
+        JButton importBooksButton = new JButton("Import CSV");
 
         bookActions.add(addBookButton);
         bookActions.add(editBookButton);
         bookActions.add(deleteBookButton);
+        bookActions.add(importBooksButton);
         add(bookActions, BorderLayout.SOUTH);
 
         addBookButton.addActionListener(e -> addBook());
         editBookButton.addActionListener(e -> editBook());
         deleteBookButton.addActionListener(e -> deleteBook());
+        importBooksButton.addActionListener(e -> importBooks());
     }
 
     /**
-     * Loads all Book entities into the table, including availability counts.
+     * Loads the table rows of all Book entities, including availability counts.
+     * The counts come from a single aggregate query, so no copies are loaded.
+     * The queries run in the background; the table is filled when they complete.
      */
     public void loadBooks() {
-        DefaultTableModel model = (DefaultTableModel) bookTable.getModel();
-        model.setRowCount(0);
-        List<Book> books = bookDao.findAll();
-
-        for (Book book : books) {
-            model.addRow(new Object[]{
-                    book.getId(),
-                    book.getTitle(),
-                    book.getAuthor(),
-                    book.getPublisherName(),
-                    book.getIsbn(),
-                    book.getPublicationYear(),
-                    book.getAvailableCopies() // Show "Availability"
+        TableLoader.load(bookTable, () -> {
+            Map<Long, BookAvailability> availability = bookDao.findAvailability();
+            List<Object[]> rows = new ArrayList<>();
+            for (BookRow row : bookDao.findTitleRows()) {
+                rows.add(toCells(row, availability.get(row.getId())));
+            }
+            return rows;
+        });
+    }
+
+    /**
+     * Updates the row of a changed Book. Runs on the EDT.
+     *
+     * @param event The committed change.
+     */
+    private void bookChanged(ChangeEvent event) {
+        if (event.getKind() == ChangeEvent.Kind.DELETED) {
+            TableLoader.remove(bookTable, event.getId());
+        } else {
+            TableLoader.patch(bookTable, event.getId(), id -> {
+                BookRow row = bookDao.findTitleRow(id);
+                return row == null ? null : toCells(row, bookDao.findAvailability(id));
             });
         }
     }
 
+    /**
+     * Creates the table cells of a Book.
+     *
+     * @param row    The Book's row.
+     * @param counts The Book's copy counts, or null if it has no copies.
+     * @return The cells.
+     */
+    private static Object[] toCells(BookRow row, BookAvailability counts) {
+        return new Object[]{
+                row.getId(),
+                row.getTitle(),
+                row.getAuthor(),
+                row.getPublisherName(),
+                row.getIsbn(),
+                row.getPublicationYear(),
+                counts == null ? 0 : counts.getAvailableCopies() // Show "Availability"
+        };
+    }
+
     /**
      * Opens a dialog to add a new Book and one or more Copies.
+     * The Book and its Copies are created in the background.
      */
     private void addBook() {
         JTextField titleField = new JTextField();
@@ -126,29 +181,27 @@ public class BookManagementPanel extends JPanel {
                 }
 
                 Book book = new Book(title, author, publisher, publicationYear, isbn);
-                bookDao.create(book);
-
-                // Create copies
-                for (int i = 0; i < numberOfCopies; i++) {
-                    Copy copy = new Copy(book, "Available");
-                    copyDao.create(copy);
-                }
-                loadBooks();
+                BackgroundCalls.whenDone(this, books.create(book).thenCompose(created -> {
+                    // Create copies in one batch
+                    List<Copy> newCopies = new ArrayList<>(numberOfCopies);
+                    for (int i = 0; i < numberOfCopies; i++) {
+                        newCopies.add(new Copy(created, CopyStatus.AVAILABLE));
+                    }
+                    return copies.createAll(newCopies);
+                }), created -> {},
+                        ex -> "An error occurred while adding the book: " + ex.getMessage());
 
             } catch (NumberFormatException ex) {
                 JOptionPane.showMessageDialog(this,
                         "Please enter valid numeric values for ISBN, publication year and number of copies.",
                         "Error", JOptionPane.ERROR_MESSAGE);
-            } catch (Exception ex) {
-                JOptionPane.showMessageDialog(this,
-                        "An error occurred while adding the book: " + ex.getMessage(),
-                        "Error", JOptionPane.ERROR_MESSAGE);
             }
         }
     }
 
     /**
-     * Opens a dialog to edit the selected Book.
+     * Opens a dialog to edit the selected Book, once it is read in the background.
+     * The Book is read without its copies, so saving it cannot overwrite their statuses.
      */
     private void editBook() {
         int selectedRow = bookTable.getSelectedRow();
@@ -160,8 +213,20 @@ public class BookManagementPanel extends JPanel {
         }
 
         Long bookId = Long.valueOf(bookTable.getValueAt(selectedRow, 0).toString());
-        Book book = bookDao.findById(bookId);
+        BackgroundCalls.whenDone(this, AsyncDao.supply(() -> bookDao.findWithoutCopies(bookId)), this::editBook,
+                ex -> "Could not read the book: " + ex.getMessage());
+    }
 
+    /**
+     * Opens a dialog to edit a Book and saves the changes in the background.
+     *
+     * @param book The Book to edit, or null if it was deleted meanwhile.
+     */
+    private void editBook(Book book) {
+        if (book == null) {
+            loadBooks();
+            return;
+        }
         JTextField titleField = new JTextField(book.getTitle());
         JTextField authorField = new JTextField(book.getAuthor());
         JTextField publisherField = new JTextField(book.getPublisherName());
@@ -184,8 +249,8 @@ public class BookManagementPanel extends JPanel {
                 book.setPublisherName(publisherField.getText());
                 book.setIsbn(isbnField.getText());
                 book.setPublicationYear(Integer.parseInt(publicationYearField.getText()));
-                bookDao.update(book);
-                loadBooks();
+                BackgroundCalls.whenDone(this, books.update(book), updated -> {},
+                        ex -> "An error occurred while updating the book: " + ex.getMessage());
 
             } catch (NumberFormatException ex) {
                 JOptionPane.showMessageDialog(this,
@@ -208,13 +273,62 @@ public class BookManagementPanel extends JPanel {
         }
 
         Long bookId = Long.valueOf(bookTable.getValueAt(selectedRow, 0).toString());
-        try{
-            bookDao.delete(bookId);
-        }catch(Exception e){
-            JOptionPane.showMessageDialog(this,
-                    "Cannot delete book with active borrowings or with more than one copies.",
-                    "Error", JOptionPane.ERROR_MESSAGE);
+        BackgroundCalls.whenDone(this, books.delete(bookId), deleted -> {},
+                ex -> "Cannot delete book with active borrowings or with more than one copies.");
+    }
+
+    /**
+     * Imports Books and Copies from a CSV file chosen by the user.
+     * The import runs in the background; rejected lines are written next to the source file.
+     */
+    private void importBooks() {
+        JFileChooser chooser = new JFileChooser();
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
         }
-        loadBooks();
+        Path source = chooser.getSelectedFile().toPath();
+        Path rejects = source.resolveSibling(source.getFileName() + ".rejects.csv");
+        JLabel status = new JLabel("Starting import...");
+        JProgressBar progressBar = new JProgressBar();
+        progressBar.setIndeterminate(true);
+        JDialog dialog = new JDialog(SwingUtilities.getWindowAncestor(this), "Importing " + source.getFileName());
+        dialog.setLayout(new BorderLayout(5, 5));
+        dialog.add(status, BorderLayout.NORTH);
+        dialog.add(progressBar, BorderLayout.CENTER);
+        dialog.pack();
+        dialog.setLocationRelativeTo(this);
+        dialog.setVisible(true);
+
+        new SwingWorker<CatalogImportResult, CatalogImportResult>() {
+            @Override
+            protected CatalogImportResult doInBackground() throws Exception {
+                return new CatalogImporter().importCsv(source, rejects, this::publish);
+            }
+
+            @Override
+            protected void process(List<CatalogImportResult> chunks) {
+                CatalogImportResult progress = chunks.get(chunks.size() - 1);
+                status.setText(progress.getProcessed() + " lines, " + progress.getImportedTitles()
+                        + " imported, " + progress.getRejected() + " rejected");
+            }
+
+            @Override
+            protected void done() {
+                dialog.dispose();
+                try {
+                    CatalogImportResult result = get();
+                    loadBooks();
+                    JOptionPane.showMessageDialog(BookManagementPanel.this,
+                            "Imported " + result.getImportedTitles() + " books with " + result.getImportedCopies()
+                                    + " copies. " + result.getRejected() + " lines were rejected"
+                                    + (result.getRejected() > 0 ? " (see " + rejects.getFileName() + ")." : "."),
+                            "Import Finished", JOptionPane.INFORMATION_MESSAGE);
+                } catch (Exception ex) {
+                    JOptionPane.showMessageDialog(BookManagementPanel.this,
+                            "An error occurred while importing books: " + ex.getMessage(),
+                            "Error", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }.execute();
     }
-}
\ No newline at end of file
+}
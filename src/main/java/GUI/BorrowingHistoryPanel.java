@@ -1,14 +1,13 @@
 package GUI;
 
 import LibraryEntities.Borrowing;
-import LibraryUtil.JPAUtil;
-import dao.Dao;
+import LibraryViews.BorrowingRow;
+import dao.BorrowingDaoImpl;
 
-import javax.persistence.EntityManager;
-import javax.persistence.TypedQuery;
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -19,7 +18,7 @@ public class BorrowingHistoryPanel extends JPanel {
     /**
      * The DAO for managing {@link Borrowing} entities.
      */
-    private final Dao<Borrowing> borrowingDao;
+    private final BorrowingDaoImpl borrowingDao;
 
     /**
      * The user ID for which to display borrowing history.
@@ -37,7 +36,7 @@ public class BorrowingHistoryPanel extends JPanel {
      * @param borrowingDao DAO for Borrowing entities.
      * @param userId       The user ID whose history is displayed.
      */
-    public BorrowingHistoryPanel(Dao<Borrowing> borrowingDao, Long userId) {
+    public BorrowingHistoryPanel(BorrowingDaoImpl borrowingDao, Long userId) {
         this.borrowingDao = borrowingDao;
         this.userId = userId;
         setLayout(new BorderLayout());
@@ -60,36 +59,31 @@ public class BorrowingHistoryPanel extends JPanel {
      * @return A list of Borrowing entities for that user.
      */
     public List<Borrowing> findBorrowingHistoryByUser(Long userId) {
-        EntityManager em = JPAUtil.getEntityManager();
-        try {
-            TypedQuery<Borrowing> query = em.createQuery(
-                    "SELECT br FROM Borrowing br WHERE br.user.id = :uid", Borrowing.class);
-            query.setParameter("uid", userId.intValue());
-            return query.getResultList();
-        } finally {
-            em.close();
-        }
+        return borrowingDao.findByUser(userId);
     }
 
     /**
      * Loads and displays the borrowing history for the given user.
+     * Only the displayed columns are queried, with the book title joined in SQL.
+     * The query runs in the background; the table is filled when it completes.
      */
     public void loadBorrowingHistory() {
-        DefaultTableModel model = (DefaultTableModel) borrowingHistoryTable.getModel();
-        model.setRowCount(0);
-
         if (userId == null) {
+            ((DefaultTableModel) borrowingHistoryTable.getModel()).setRowCount(0);
             return;
         }
 
-        List<Borrowing> borrowings = findBorrowingHistoryByUser(userId);
-        for (Borrowing borrowing : borrowings) {
-            model.addRow(new Object[]{
-                    borrowing.getId(),
-                    borrowing.getCopy().getBook().getTitle(),
-                    borrowing.getBorrowDate(),
-                    borrowing.getReturnDate()
-            });
-        }
+        TableLoader.load(borrowingHistoryTable, () -> {
+            List<Object[]> rows = new ArrayList<>();
+            for (BorrowingRow row : borrowingDao.findRowsByUser(userId)) {
+                rows.add(new Object[]{
+                        row.getId(),
+                        row.getBookTitle(),
+                        row.getBorrowDate(),
+                        row.getReturnDate()
+                });
+            }
+            return rows;
+        });
     }
-}
\ No newline at end of file
+}
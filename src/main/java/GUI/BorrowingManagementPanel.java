@@ -2,46 +2,50 @@ package GUI;
 
 import LibraryEntities.Book;
 import LibraryEntities.Borrowing;
-import LibraryEntities.Copy;
 import LibraryEntities.User;
-import dao.Dao;
+import LibraryUtil.ChangeEvent;
+import LibraryUtil.ChangeEvents;
+import LibraryViews.BorrowingRow;
+import dao.AsyncDao;
+import dao.BookDaoImpl;
+import dao.BorrowingDaoImpl;
+import dao.CheckoutResult;
+import dao.UserDaoImpl;
 
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * A panel that manages the creation, editing, and deletion of {@link Borrowing} entities.
- * It allows the librarian to add a new borrowing by specifying user ID and book ID,
+ * It allows the librarian to add a new borrowing by picking a user and a book by name or ID,
  * mark a borrowing as returned, or delete a borrowing.
+ * The table is loaded once and then patched row by row from the Borrowing {@link ChangeEvent}s;
+ * it is only reloaded when a user or book is renamed, as their names are shown in many rows.
  */
 public class BorrowingManagementPanel extends JPanel {
 
     /**
      * DAO for Borrowing operations.
      */
-    private final Dao<Borrowing> borrowingDao;
+    private final BorrowingDaoImpl borrowingDao;
 
     /**
-     * DAO for User operations.
+     * DAO completing user names and emails.
      */
-    private final Dao<User> userDao;
+    private final UserDaoImpl userDao;
 
     /**
-     * DAO for Book operations.
+     * DAO completing book titles, authors and ISBNs.
      */
-    private final Dao<Book> bookDao;
-
-    /**
-     * DAO for Copy operations.
-     */
-    private final Dao<Copy> copyDao;
-
-    /**
-     * A reference to the BookManagementPanel to refresh availability.
-     */
-    private BookManagementPanel bookManagementPanel;
+    private final BookDaoImpl bookDao;
 
     /**
      * Table to display borrowing records.
@@ -52,26 +56,31 @@ public class BorrowingManagementPanel extends JPanel {
      * Constructs a new BorrowingManagementPanel.
      *
      * @param borrowingDao        DAO for Borrowing entities.
-     * @param userDao             DAO for User entities.
-     * @param bookDao             DAO for Book entities.
-     * @param copyDao             DAO for Copy entities.
-     * @param bookManagementPanel A reference to the book panel to update availability.
+     * @param userDao             DAO completing user names and emails.
+     * @param bookDao             DAO completing book titles, authors and ISBNs.
      */
     public BorrowingManagementPanel(
-            Dao<Borrowing> borrowingDao,
-            Dao<User> userDao,
-            Dao<Book> bookDao,
-            Dao<Copy> copyDao,
-            BookManagementPanel bookManagementPanel) {
+            BorrowingDaoImpl borrowingDao,
+            UserDaoImpl userDao,
+            BookDaoImpl bookDao) {
 
         this.borrowingDao = borrowingDao;
         this.userDao = userDao;
         this.bookDao = bookDao;
-        this.copyDao = copyDao;
-        this.bookManagementPanel = bookManagementPanel;
 
         setLayout(new BorderLayout());
         initComponents();
+        ChangeEvents.subscribe(Borrowing.class, event -> SwingUtilities.invokeLater(() -> borrowingChanged(event)));
+        ChangeEvents.subscribe(User.class, event -> SwingUtilities.invokeLater(() -> {
+            if (event.getKind() == ChangeEvent.Kind.UPDATED && event.affects("name")) {
+                loadBorrowings();
+            }
+        }));
+        ChangeEvents.subscribe(Book.class, event -> SwingUtilities.invokeLater(() -> {
+            if (event.getKind() == ChangeEvent.Kind.UPDATED && event.affects("title")) {
+                loadBorrowings();
+            }
+        }));
     }
 
     /**
@@ -86,45 +95,80 @@ public class BorrowingManagementPanel extends JPanel {
         JButton addBorrowingButton = new JButton("Add Borrowing");
         JButton editBorrowingButton = new JButton("Edit Borrowing");
         JButton deleteBorrowingButton = new JButton("Delete Borrowing");
+        JButton exportHistoryButton = new JButton("Export History");
 
         borrowingActions.add(addBorrowingButton);
         borrowingActions.add(editBorrowingButton);
         borrowingActions.add(deleteBorrowingButton);
+        borrowingActions.add(exportHistoryButton);
         add(borrowingActions, BorderLayout.SOUTH);
 
         addBorrowingButton.addActionListener(e -> addBorrowing());
         editBorrowingButton.addActionListener(e -> editBorrowing());
         deleteBorrowingButton.addActionListener(e -> deleteBorrowing());
+        exportHistoryButton.addActionListener(e -> exportHistory());
     }
 
     /**
      * Loads all existing borrowings into the table.
+     * Only the displayed columns are queried, with the user name and book title joined in SQL.
+     * The query runs in the background; the table is filled when it completes.
      */
     public void loadBorrowings() {
-        DefaultTableModel model = (DefaultTableModel) borrowingTable.getModel();
-        model.setRowCount(0);
-        for (Borrowing borrowing : borrowingDao.findAll()) {
-            model.addRow(new Object[]{
-                    borrowing.getId(),
-                    borrowing.getUser().getName(),
-                    borrowing.getCopy().getBook().getTitle(),
-                    borrowing.getBorrowDate(),
-                    borrowing.getReturnDate()
+        TableLoader.load(borrowingTable, () -> {
+            List<Object[]> rows = new ArrayList<>();
+            for (BorrowingRow row : borrowingDao.findRows()) {
+                rows.add(toCells(row));
+            }
+            return rows;
+        });
+    }
+
+    /**
+     * Updates the row of a changed Borrowing. Runs on the EDT.
+     *
+     * @param event The committed change.
+     */
+    private void borrowingChanged(ChangeEvent event) {
+        if (event.getKind() == ChangeEvent.Kind.DELETED) {
+            TableLoader.remove(borrowingTable, event.getId());
+        } else {
+            TableLoader.patch(borrowingTable, event.getId(), id -> {
+                BorrowingRow row = borrowingDao.findRow(id);
+                return row == null ? null : toCells(row);
             });
         }
     }
 
     /**
-     * Creates a new Borrowing record by prompting for user ID and book ID.
+     * Creates the table cells of a Borrowing.
+     *
+     * @param row The Borrowing's row.
+     * @return The cells.
+     */
+    private static Object[] toCells(BorrowingRow row) {
+        return new Object[]{
+                row.getId(),
+                row.getUserName(),
+                row.getBookTitle(),
+                row.getBorrowDate(),
+                row.getReturnDate()
+        };
+    }
+
+    /**
+     * Creates a new Borrowing record by prompting for a user and a book.
+     * Both fields suggest matches as the user types a name, or accept a numeric ID.
+     * The checkout runs in the background.
      */
     private void addBorrowing() {
-        JTextField userIdField = new JTextField();
-        JTextField bookIdField = new JTextField();
+        TypeAheadField userIdField = new TypeAheadField(userDao::suggest);
+        TypeAheadField bookIdField = new TypeAheadField(bookDao::suggest);
         JTextField borrowDateField = new JTextField(LocalDate.now().toString());
 
         Object[] fields = {
-                "User ID:", userIdField,
-                "Book ID:", bookIdField,
+                "User (name, email or ID):", userIdField,
+                "Book (title, author, ISBN or ID):", bookIdField,
                 "Borrow Date:", borrowDateField
         };
 
@@ -137,65 +181,21 @@ public class BorrowingManagementPanel extends JPanel {
 
         if (option == JOptionPane.OK_OPTION) {
             try {
-                Long userId = Long.parseLong(userIdField.getText());
-                Long bookId = Long.parseLong(bookIdField.getText());
-                LocalDate borrowDate = LocalDate.parse(borrowDateField.getText());
-
-                // Fetch the user and book
-                User user = userDao.findById(userId);
-                Book book = bookDao.findById(bookId);
-
-                if (user == null) {
-                    JOptionPane.showMessageDialog(this,
-                            "User with ID " + userId + " not found.",
-                            "Error", JOptionPane.ERROR_MESSAGE);
-                    return;
-                }
-                if (book == null) {
-                    JOptionPane.showMessageDialog(this,
-                            "Book with ID " + bookId + " not found.",
-                            "Error", JOptionPane.ERROR_MESSAGE);
-                    return;
-                }
-
-                // Check availability
-                if (book.getAvailableCopies() < 1) {
+                Long userId = userIdField.getSelectedId();
+                Long bookId = bookIdField.getSelectedId();
+                if (userId == null || bookId == null) {
                     JOptionPane.showMessageDialog(this,
-                            "No available copies for this book (" + book.getTitle() + ").",
+                            "Pick a user and a book from the suggestions, or enter their IDs.",
                             "Error", JOptionPane.ERROR_MESSAGE);
                     return;
                 }
+                LocalDate borrowDate = LocalDate.parse(borrowDateField.getText());
 
-                // Find an actual available copy
-                Copy availableCopy = book.getCopies().stream()
-                        .filter(c -> "Available".equals(c.getStatus()))
-                        .findFirst()
-                        .orElse(null);
-
-                if (availableCopy == null) {
-                    JOptionPane.showMessageDialog(this,
-                            "No copy with status 'Available' found (unexpected).",
-                            "Error", JOptionPane.ERROR_MESSAGE);
-                    return;
-                }
-
-                // Mark that copy as Borrowed
-                availableCopy.setStatus("Borrowed");
-                copyDao.update(availableCopy);
-
-                // Create the Borrowing
-                Borrowing newBorrowing = new Borrowing(null, user, availableCopy, borrowDate);
-                borrowingDao.create(newBorrowing);
-
-                // Refresh tables
-                loadBorrowings();
-                if (bookManagementPanel != null) {
-                    bookManagementPanel.loadBooks();
-                }
-
-                JOptionPane.showMessageDialog(this,
-                        "Borrowing created successfully!",
-                        "Success", JOptionPane.INFORMATION_MESSAGE);
+                // Claim a copy and create the Borrowing in one transaction
+                BackgroundCalls.whenDone(this,
+                        AsyncDao.supply(() -> borrowingDao.checkout(userId, bookId, borrowDate)),
+                        result -> checkedOut(result, userId, bookId),
+                        e -> "Error creating borrowing: " + e.getMessage());
 
             } catch (Exception e) {
                 JOptionPane.showMessageDialog(this,
@@ -206,7 +206,40 @@ public class BorrowingManagementPanel extends JPanel {
     }
 
     /**
-     * Allows editing the Return Date of the selected Borrowing.
+     * Reports the outcome of a checkout. The tables are updated by the change events it published.
+     *
+     * @param result The checkout result.
+     * @param userId The ID of the borrowing User.
+     * @param bookId The ID of the borrowed Book.
+     */
+    private void checkedOut(CheckoutResult result, Long userId, Long bookId) {
+        switch (result.getStatus()) {
+            case UNKNOWN_USER:
+                JOptionPane.showMessageDialog(this,
+                        "User with ID " + userId + " not found.",
+                        "Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            case UNKNOWN_BOOK:
+                JOptionPane.showMessageDialog(this,
+                        "Book with ID " + bookId + " not found.",
+                        "Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            case NO_COPY_AVAILABLE:
+                JOptionPane.showMessageDialog(this,
+                        "No available copies for book with ID " + bookId + ".",
+                        "Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            default:
+                break;
+        }
+
+        JOptionPane.showMessageDialog(this,
+                "Borrowing created successfully!",
+                "Success", JOptionPane.INFORMATION_MESSAGE);
+    }
+
+    /**
+     * Allows editing the Return Date of the selected Borrowing, once it is read in the background.
      */
     private void editBorrowing() {
         int selectedRow = borrowingTable.getSelectedRow();
@@ -219,8 +252,21 @@ public class BorrowingManagementPanel extends JPanel {
         }
 
         Long borrowingId = Long.valueOf(borrowingTable.getValueAt(selectedRow, 0).toString());
-        Borrowing borrowing = borrowingDao.findById(borrowingId);
+        BackgroundCalls.whenDone(this, AsyncDao.supply(() -> borrowingDao.findById(borrowingId)),
+                this::editBorrowing, e -> "Could not read the borrowing: " + e.getMessage());
+    }
 
+    /**
+     * Prompts for the Return Date of a Borrowing and saves it in the background.
+     *
+     * @param borrowing The Borrowing to edit, or null if it was deleted meanwhile.
+     */
+    private void editBorrowing(Borrowing borrowing) {
+        if (borrowing == null) {
+            loadBorrowings();
+            return;
+        }
+        Long borrowingId = borrowing.getId().longValue();
         JTextField returnDateField = new JTextField(
                 borrowing.getReturnDate() == null ? "" : borrowing.getReturnDate().toString()
         );
@@ -233,15 +279,12 @@ public class BorrowingManagementPanel extends JPanel {
         if (option == JOptionPane.OK_OPTION) {
             try {
                 LocalDate returnDate = LocalDate.parse(returnDateField.getText());
-                borrowing.setReturnDate(returnDate);
 
-                // Mark the copy as available again
-                Copy copy = borrowing.getCopy();
-                copy.setStatus("Available");
-                copyDao.update(copy);
-
-                borrowingDao.update(borrowing);
-                loadBorrowings();
+                // Set the return date and mark the copy as available again in one transaction
+                BackgroundCalls.whenDone(this,
+                        AsyncDao.run(() -> borrowingDao.updateReturnDate(borrowingId, returnDate)),
+                        updated -> {},
+                        e -> "Error updating borrowing: " + e.getMessage());
 
             } catch (Exception e) {
                 JOptionPane.showMessageDialog(this,
@@ -253,7 +296,7 @@ public class BorrowingManagementPanel extends JPanel {
     }
 
     /**
-     * Deletes the selected Borrowing from the database.
+     * Deletes the selected Borrowing from the database in the background.
      */
     private void deleteBorrowing() {
         int selectedRow = borrowingTable.getSelectedRow();
@@ -266,7 +309,67 @@ public class BorrowingManagementPanel extends JPanel {
         }
 
         Long borrowingId = Long.valueOf(borrowingTable.getValueAt(selectedRow, 0).toString());
-        borrowingDao.delete(borrowingId);
-        loadBorrowings();
+        BackgroundCalls.whenDone(this, AsyncDao.run(() -> borrowingDao.delete(borrowingId)),
+                deleted -> {},
+                e -> "Error deleting borrowing: " + e.getMessage());
+    }
+
+    /**
+     * Exports the borrowing history to a CSV file, optionally filtered by user and borrow date range.
+     * The export runs in the background.
+     */
+    private void exportHistory() {
+        JTextField userIdField = new JTextField();
+        JTextField fromField = new JTextField();
+        JTextField toField = new JTextField();
+
+        Object[] fields = {
+                "User ID (optional):", userIdField,
+                "From (yyyy-MM-dd, optional):", fromField,
+                "To (yyyy-MM-dd, optional):", toField
+        };
+
+        int option = JOptionPane.showConfirmDialog(this, fields, "Export History", JOptionPane.OK_CANCEL_OPTION);
+        if (option != JOptionPane.OK_OPTION) {
+            return;
+        }
+        JFileChooser chooser = new JFileChooser();
+        chooser.setSelectedFile(new File("borrowing-history.csv"));
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        try {
+            Long userId = userIdField.getText().isBlank() ? null : Long.parseLong(userIdField.getText().trim());
+            LocalDate from = fromField.getText().isBlank() ? null : LocalDate.parse(fromField.getText().trim());
+            LocalDate to = toField.getText().isBlank() ? null : LocalDate.parse(toField.getText().trim());
+            Path target = chooser.getSelectedFile().toPath();
+            BackgroundCalls.whenDone(this, AsyncDao.supply(() -> exportHistory(target, from, to, userId)),
+                    exported -> JOptionPane.showMessageDialog(this,
+                            "Exported " + exported + " borrowings.",
+                            "Success", JOptionPane.INFORMATION_MESSAGE),
+                    e -> "Error exporting history: "
+                            + (e instanceof UncheckedIOException ? e.getCause() : e).getMessage());
+        } catch (Exception e) {
+            JOptionPane.showMessageDialog(this,
+                    "Error exporting history: " + e.getMessage(),
+                    "Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    /**
+     * Exports the borrowing history, rethrowing I/O errors unchecked so it can run through {@link AsyncDao}.
+     *
+     * @param file   The CSV file to write.
+     * @param from   The first borrow date to include, or null.
+     * @param to     The last borrow date to include, or null.
+     * @param userId The User whose borrowings to include, or null for all.
+     * @return The number of exported borrowings.
+     */
+    private long exportHistory(Path file, LocalDate from, LocalDate to, Long userId) {
+        try {
+            return borrowingDao.exportHistory(file, from, to, userId);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
-}
\ No newline at end of file
+}
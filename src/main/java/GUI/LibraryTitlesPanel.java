@@ -1,65 +1,89 @@
 package GUI;
 
 import LibraryEntities.Book;
-import dao.Dao;
+import LibraryViews.BookRow;
+import dao.BookDaoImpl;
 
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
-import java.util.List;
+import java.util.stream.Collectors;
 
 /**
  * A panel that displays all books in the library, regardless of their availability.
+ * A search field narrows the list to the books matching all entered words in their
+ * title, author, publisher or ISBN, best matches first.
  */
 public class LibraryTitlesPanel extends JPanel {
 
+    /**
+     * The maximum number of search results shown.
+     */
+    private static final int SEARCH_LIMIT = 200;
+
     /**
      * DAO for Book entities.
      */
-    private final Dao<Book> bookDao;
+    private final BookDaoImpl bookDao;
 
     /**
      * Table for displaying all library titles.
      */
     private JTable libraryTitlesTable;
 
+    /**
+     * The search text; empty to list every title.
+     */
+    private JTextField searchField;
+
     /**
      * Constructs a new {@link LibraryTitlesPanel} using the given Book DAO.
      *
      * @param bookDao The DAO for Book entities.
      */
-    public LibraryTitlesPanel(Dao<Book> bookDao) {
+    public LibraryTitlesPanel(BookDaoImpl bookDao) {
         this.bookDao = bookDao;
         setLayout(new BorderLayout());
         initComponents();
     }
 
     /**
-     * Initializes the table and its containing scroll pane.
+     * Initializes the search bar, the table and its containing scroll pane.
      */
     private void initComponents() {
+        searchField = new JTextField(30);
+        JButton searchButton = new JButton("Search");
+        JButton clearButton = new JButton("Show All");
+
+        JPanel searchBar = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        searchBar.add(new JLabel("Search:"));
+        searchBar.add(searchField);
+        searchBar.add(searchButton);
+        searchBar.add(clearButton);
+        add(searchBar, BorderLayout.NORTH);
+
         libraryTitlesTable = new JTable(new DefaultTableModel(
                 new Object[]{"ID", "Title", "Author", "Publisher", "ISBN", "Year"}, 0));
         add(new JScrollPane(libraryTitlesTable), BorderLayout.CENTER);
+
+        searchField.addActionListener(e -> loadLibraryTitles());
+        searchButton.addActionListener(e -> loadLibraryTitles());
+        clearButton.addActionListener(e -> {
+            searchField.setText("");
+            loadLibraryTitles();
+        });
     }
 
     /**
-     * Loads all {@link Book} entities from the DAO into the table.
+     * Loads the table rows of all {@link Book} entities from the DAO into the table,
+     * or only those matching the search text if one is entered.
      */
     public void loadLibraryTitles() {
-        DefaultTableModel model = (DefaultTableModel) libraryTitlesTable.getModel();
-        model.setRowCount(0);
-
-        List<Book> books = bookDao.findAll();
-        for (Book book : books) {
-            model.addRow(new Object[]{
-                    book.getId(),
-                    book.getTitle(),
-                    book.getAuthor(),
-                    book.getPublisherName(),
-                    book.getIsbn(),
-                    book.getPublicationYear()
-            });
-        }
+        String query = searchField.getText().trim();
+        TableLoader.load(libraryTitlesTable, () -> (query.isEmpty()
+                ? bookDao.findTitleRows()
+                : bookDao.search(query, SEARCH_LIMIT)).stream()
+                .map(BookRow::toCells)
+                .collect(Collectors.toList()));
     }
-}
\ No newline at end of file
+}
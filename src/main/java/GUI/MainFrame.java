@@ -3,55 +3,66 @@ package GUI;
 import LibraryEntities.Book;
 import LibraryEntities.Borrowing;
 import LibraryEntities.Copy;
+import LibraryEntities.CopyStatus;
 import LibraryEntities.User;
 import LibraryEntities.Publisher;
 
+import dao.AsyncDao;
 import dao.BookDaoImpl;
 import dao.BorrowingDaoImpl;
 import dao.CopyDaoImpl;
 import dao.Dao;
 import dao.PublisherDaoImpl;
 import dao.UserDaoImpl;
+import LibraryUtil.JPAUtil;
+import LibraryUtil.UnitOfWork;
 
 import javax.swing.*;
 import java.awt.*;
+import java.awt.event.MouseAdapter;
 import java.time.LocalDate;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 /**
  * The main application frame for the Library System, which can be shown either
  * in librarian mode or in regular user mode.
+ * <p>Startup is staged so the window appears without waiting for the database: the
+ * factory boot and default data checks run on a background thread while the role is
+ * chosen, a {@link SplashWindow} shows their progress, and the panels fill their
+ * tables in the background once the database is ready.</p>
  */
 public class MainFrame extends JFrame {
 
     /**
      * DAO for managing Users.
      */
-    private final Dao<User> userDao;
+    private final UserDaoImpl userDao;
 
     /**
      * DAO for managing Books.
      */
-    private final Dao<Book> bookDao;
+    private final BookDaoImpl bookDao;
 
     /**
      * DAO for managing Borrowings.
      */
-    private final Dao<Borrowing> borrowingDao;
+    private final BorrowingDaoImpl borrowingDao;
 
     /**
      * DAO for managing Copies.
      */
-    private final Dao<Copy> copyDao;
+    private final CopyDaoImpl copyDao;
 
     /**
-     * DAO for managing Publishers.
+     * The user ID of the logged in user, if not a librarian.
      */
-    private final Dao<Publisher> publisherDao;
+    private Long loggedInUserId;
 
     /**
-     * The user ID of the logged in user, if not a librarian.
+     * Fills the tables of the panels; run once the database is ready.
      */
-    private Long loggedInUserId;
+    private Runnable panelLoader;
 
     /**
      * Constructs the MainFrame, specifying if the user is a librarian and optionally a user ID.
@@ -69,16 +80,12 @@ public class MainFrame extends JFrame {
         this.bookDao = new BookDaoImpl();
         this.borrowingDao = new BorrowingDaoImpl();
         this.copyDao = new CopyDaoImpl();
-        this.publisherDao = new PublisherDaoImpl();
 
         if (!isLibrarian && userId != null) {
             this.loggedInUserId = userId;
         }
 
-        // Populate default data if needed
-        initializeDefaultData();
-
-        // Build the UI
+        // Build the UI; the tables are filled by loadWhenReady
         setupUI(isLibrarian);
 
         setLocationRelativeTo(null);
@@ -99,15 +106,17 @@ public class MainFrame extends JFrame {
             UserManagementPanel userPanel = new UserManagementPanel(userDao);
             BookManagementPanel bookPanel = new BookManagementPanel(bookDao, copyDao);
             BorrowingManagementPanel borrowingPanel = new BorrowingManagementPanel(
-                    borrowingDao, userDao, bookDao, copyDao, bookPanel);
+                    borrowingDao, userDao, bookDao);
 
             tabbedPane.addTab("Users", userPanel);
             tabbedPane.addTab("Books", bookPanel);
             tabbedPane.addTab("Borrowings", borrowingPanel);
 
-            userPanel.loadUsers();
-            bookPanel.loadBooks();
-            borrowingPanel.loadBorrowings();
+            panelLoader = () -> {
+                userPanel.loadUsers();
+                bookPanel.loadBooks();
+                borrowingPanel.loadBorrowings();
+            };
 
         } else {
             // User panels
@@ -119,35 +128,94 @@ public class MainFrame extends JFrame {
             tabbedPane.addTab("Available Titles", availableTitlesPanel);
             tabbedPane.addTab("Borrowing History", borrowingHistoryPanel);
 
-            libraryTitlesPanel.loadLibraryTitles();
-            availableTitlesPanel.loadAvailableTitles();
-            borrowingHistoryPanel.loadBorrowingHistory();
+            panelLoader = () -> {
+                libraryTitlesPanel.loadLibraryTitles();
+                availableTitlesPanel.loadAvailableTitles();
+                borrowingHistoryPanel.loadBorrowingHistory();
+            };
         }
 
         add(tabbedPane, BorderLayout.CENTER);
     }
 
+    /**
+     * Fills the panels once the database is ready. Until then the frame ignores mouse
+     * input and the splash window shows the startup progress.
+     * Must be called on the EDT after the frame is shown.
+     *
+     * @param startup The background startup.
+     * @param splash  The splash window reporting the startup progress.
+     */
+    private void loadWhenReady(CompletableFuture<Void> startup, SplashWindow splash) {
+        if (!startup.isDone()) {
+            Component glassPane = getGlassPane();
+            glassPane.addMouseListener(new MouseAdapter() {});
+            glassPane.setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+            glassPane.setVisible(true);
+            splash.setLocationRelativeTo(this);
+            splash.setVisible(true);
+        }
+        startup.whenComplete((ignored, failure) -> SwingUtilities.invokeLater(() -> {
+            splash.dispose();
+            getGlassPane().setVisible(false);
+            if (failure != null) {
+                Throwable cause = failure.getCause() != null ? failure.getCause() : failure;
+                JOptionPane.showMessageDialog(this,
+                        "The library database could not be started: " + cause.getMessage(),
+                        "Error", JOptionPane.ERROR_MESSAGE);
+                dispose();
+                return;
+            }
+            panelLoader.run();
+        }));
+    }
+
+    /**
+     * Boots the database and inserts the default data if needed.
+     * Runs on a background thread while the user picks a role.
+     *
+     * @param stage Receives a description of each startup stage.
+     */
+    private static void startup(Consumer<String> stage) {
+        stage.accept("Starting the database...");
+        JPAUtil.initialize();
+        stage.accept("Checking default data...");
+        UnitOfWork.run(MainFrame::initializeDefaultData);
+        stage.accept("Building the search indexes...");
+        new BookDaoImpl().rebuildSearchIndex();
+        new UserDaoImpl().rebuildSuggestionIndex();
+        stage.accept("Loading...");
+    }
+
     /**
      * Inserts default data (Users, Books, Copies, Borrowings, Publishers)
-     * if the database appears empty.
+     * if the database appears empty. Emptiness is checked by reading at most
+     * one row of each table. Runs in one {@link UnitOfWork}, so the checks and
+     * inserts share a single EntityManager and transaction.
      */
-    private void initializeDefaultData() {
+    private static void initializeDefaultData() {
+        UserDaoImpl userDao = new UserDaoImpl();
+        BookDaoImpl bookDao = new BookDaoImpl();
+        BorrowingDaoImpl borrowingDao = new BorrowingDaoImpl();
+        CopyDaoImpl copyDao = new CopyDaoImpl();
+        Dao<Publisher> publisherDao = new PublisherDaoImpl();
+
         // Insert default publishers
         Publisher penguin = new Publisher("Penguin Books", "375 Hudson Street, New York, NY", "(212) 366-2000");
         Publisher harperCollins = new Publisher("HarperCollins", "195 Broadway, New York, NY", "(212) 207-7000");
-        if (publisherDao.findAll().isEmpty()) {
+        if (publisherDao.findPage(null, 1).isEmpty()) {
             publisherDao.create(penguin);
             publisherDao.create(harperCollins);
         }
 
         // Add default users
-        if (userDao.findAll().isEmpty()) {
+        if (userDao.findPage(null, 1).isEmpty()) {
             userDao.create(new User("Alice", "alice@example.com", "123-456", "123 Main St"));
             userDao.create(new User("Bob", "bob@example.com", "789-012", "456 Elm St"));
         }
 
         // Add default books & copies
-        if (bookDao.findAll().isEmpty()) {
+        if (bookDao.findPage(null, 1).isEmpty()) {
             Book book1 = new Book("1984", "George Orwell", "Secker & Warburg", 1949, "123456789");
             Book book2 = new Book("Brave New World", "Aldous Huxley", "Chatto & Windus", 1932, "987654321");
             book1.setPublisher(penguin);
@@ -155,31 +223,25 @@ public class MainFrame extends JFrame {
             bookDao.create(book1);
             bookDao.create(book2);
 
-            copyDao.create(new Copy(book1, "Available"));
-            copyDao.create(new Copy(book1, "Available"));
-            copyDao.create(new Copy(book2, "Available"));
-            copyDao.create(new Copy(book2, "Available"));
+            copyDao.create(new Copy(book1, CopyStatus.AVAILABLE));
+            copyDao.create(new Copy(book1, CopyStatus.AVAILABLE));
+            copyDao.create(new Copy(book2, CopyStatus.AVAILABLE));
+            copyDao.create(new Copy(book2, CopyStatus.AVAILABLE));
         }
 
         // Add default borrowings
-        if (borrowingDao.findAll().isEmpty()) {
-            User alice = userDao.findAll().stream()
-                    .filter(user -> "Alice".equals(user.getName()))
-                    .findFirst()
-                    .orElse(null);
-            User bob = userDao.findAll().stream()
-                    .filter(user -> "Bob".equals(user.getName()))
-                    .findFirst()
-                    .orElse(null);
+        if (borrowingDao.findPage(null, 1).isEmpty()) {
+            User alice = userDao.findByEmail("alice@example.com");
+            User bob = userDao.findByEmail("bob@example.com");
 
             if (alice != null) {
                 Copy aliceCopy = copyDao.findAll().stream()
                         .filter(copy -> "1984".equals(copy.getBook().getTitle()) &&
-                                "Available".equals(copy.getStatus()))
+                                copy.isAvailable())
                         .findFirst()
                         .orElse(null);
                 if (aliceCopy != null) {
-                    aliceCopy.setStatus("Borrowed");
+                    aliceCopy.setCopyStatus(CopyStatus.BORROWED);
                     copyDao.update(aliceCopy);
 
                     Borrowing borrowing1 = new Borrowing(alice, aliceCopy, LocalDate.now().minusDays(5));
@@ -190,11 +252,11 @@ public class MainFrame extends JFrame {
             if (bob != null) {
                 Copy bobCopy = copyDao.findAll().stream()
                         .filter(copy -> "Brave New World".equals(copy.getBook().getTitle()) &&
-                                "Available".equals(copy.getStatus()))
+                                copy.isAvailable())
                         .findFirst()
                         .orElse(null);
                 if (bobCopy != null) {
-                    bobCopy.setStatus("Borrowed");
+                    bobCopy.setCopyStatus(CopyStatus.BORROWED);
                     copyDao.update(bobCopy);
 
                     Borrowing borrowing2 = new Borrowing(bob, bobCopy, LocalDate.now().minusDays(3));
@@ -212,6 +274,10 @@ public class MainFrame extends JFrame {
      */
     public static void main(String[] args) {
         SwingUtilities.invokeLater(() -> {
+            // Boot the database while the user picks a role
+            SplashWindow splash = new SplashWindow(null);
+            CompletableFuture<Void> startup = AsyncDao.run(() -> startup(splash::setStage));
+
             boolean isLibrarian = (JOptionPane.showConfirmDialog(
                     null,
                     "Are you a librarian?",
@@ -219,14 +285,17 @@ public class MainFrame extends JFrame {
                     JOptionPane.YES_NO_OPTION
             ) == JOptionPane.YES_OPTION);
 
+            Long userId = null;
             if (!isLibrarian) {
-                Long userId = promptForUserId();
-                if (userId != null) {
-                    new MainFrame(false, userId).setVisible(true);
+                userId = promptForUserId();
+                if (userId == null) {
+                    splash.dispose();
+                    return;
                 }
-            } else {
-                new MainFrame(true, null).setVisible(true);
             }
+            MainFrame frame = new MainFrame(isLibrarian, userId);
+            frame.setVisible(true);
+            frame.loadWhenReady(startup, splash);
         });
     }
 
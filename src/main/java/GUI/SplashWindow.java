@@ -0,0 +1,46 @@
+package GUI;
+
+import javax.swing.*;
+import java.awt.*;
+
+/**
+ * A small undecorated window showing startup progress while the database boots.
+ */
+final class SplashWindow extends JWindow {
+
+    /**
+     * The current startup stage.
+     */
+    private final JLabel stageLabel = new JLabel("Starting...", SwingConstants.CENTER);
+
+    /**
+     * Constructs the window; it is not shown until {@link #setVisible(boolean)} is called.
+     *
+     * @param owner The window to stay on top of, or null.
+     */
+    SplashWindow(Window owner) {
+        super(owner);
+        JProgressBar progressBar = new JProgressBar();
+        progressBar.setIndeterminate(true);
+
+        JPanel content = new JPanel(new BorderLayout(0, 8));
+        content.setBorder(BorderFactory.createCompoundBorder(
+                BorderFactory.createLineBorder(Color.GRAY),
+                BorderFactory.createEmptyBorder(16, 24, 16, 24)));
+        content.add(new JLabel("Library System", SwingConstants.CENTER), BorderLayout.NORTH);
+        content.add(stageLabel, BorderLayout.CENTER);
+        content.add(progressBar, BorderLayout.SOUTH);
+        setContentPane(content);
+        setSize(320, 110);
+        setLocationRelativeTo(owner);
+    }
+
+    /**
+     * Shows the current startup stage. May be called from any thread.
+     *
+     * @param stage A short description of what is being done.
+     */
+    void setStage(String stage) {
+        SwingUtilities.invokeLater(() -> stageLabel.setText(stage));
+    }
+}
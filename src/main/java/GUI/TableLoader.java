@@ -0,0 +1,273 @@
+package GUI;
+
+import LibraryUtil.RefreshTracker;
+import dao.AsyncDao;
+
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Fills tables from the database without blocking the Swing event dispatch thread.
+ * <p>The query runs through {@link AsyncDao} and the rows are added on the EDT once it
+ * completes. Loads requested while one is running are merged into one more load, so a
+ * burst of reloads, e.g. one per renamed Book, costs at most two queries, and an older
+ * result never overwrites newer rows.</p>
+ * <p>Once loaded, a table is kept up to date row by row: {@link #patch(JTable, Long, Function)}
+ * re-reads the one changed row and replaces, appends or removes it. When to load, re-read or
+ * wait is decided by the table's {@link RefreshTracker}.
+ * The first column of a patched table must hold the row's numeric ID; rows are found by ID
+ * through an index kept alongside the model, so a patch does not scan the table.</p>
+ */
+final class TableLoader {
+
+    /**
+     * The client property holding the {@link State} of a table.
+     */
+    private static final String STATE = "TableLoader.state";
+
+    /**
+     * The number of rows re-read at once above which the table is reloaded instead,
+     * e.g. while a catalog import is publishing a change per Book.
+     */
+    private static final int MAX_PATCHES = 32;
+
+    /**
+     * The loading state of one table. Only used on the EDT.
+     */
+    private static final class State {
+
+        /**
+         * Decides between full loads and row patches.
+         */
+        private final RefreshTracker tracker = new RefreshTracker(MAX_PATCHES);
+
+        /**
+         * The query of the latest requested full load.
+         */
+        private Supplier<List<Object[]>> loadQuery;
+
+        /**
+         * Returns the cells of one row by ID, or null if it no longer exists.
+         */
+        private Function<Long, Object[]> rowQuery;
+
+        /**
+         * The model index of each shown row, by ID.
+         */
+        private final Map<Long, Integer> rowIndex = new HashMap<>();
+    }
+
+    private TableLoader() {}
+
+    /**
+     * Replaces the rows of a table with the result of a query. Must be called on the EDT.
+     *
+     * @param table The table; its model must be a {@link DefaultTableModel}.
+     * @param query Returns the cells of every row; runs on a background thread.
+     */
+    static void load(JTable table, Supplier<List<Object[]>> query) {
+        State state = state(table);
+        state.loadQuery = query;
+        int load = state.tracker.requestLoad();
+        if (load != 0) {
+            run(table, state, load);
+        }
+    }
+
+    /**
+     * Re-reads one row of a table after it changed, and replaces, appends or removes it.
+     * Does nothing before the table's first load. Must be called on the EDT.
+     *
+     * @param table The table; its model must be a {@link DefaultTableModel}.
+     * @param id    The ID of the changed row.
+     * @param query Returns the cells of the row, or null if it no longer exists; runs on a background thread.
+     */
+    static void patch(JTable table, Long id, Function<Long, Object[]> query) {
+        State state = state(table);
+        state.rowQuery = query;
+        RefreshTracker.Refresh refresh = state.tracker.rowChanged(id);
+        if (refresh == RefreshTracker.Refresh.LOAD) {
+            load(table, state.loadQuery);
+            return;
+        }
+        if (refresh != RefreshTracker.Refresh.PATCH) {
+            // Re-read once the running query completes, or by the first load
+            return;
+        }
+        BackgroundCalls.whenDone(table, AsyncDao.supply(() -> query.apply(id)), row -> {
+            if (!state.tracker.patchCompleted(id)) {
+                return;
+            }
+            if (row == null) {
+                remove(table, id);
+            } else {
+                put(table, state, id, row);
+            }
+            if (state.tracker.takeStale(id)) {
+                patch(table, id, state.rowQuery);
+            }
+        }, failure -> {
+            state.tracker.patchFailed(id);
+            return "Could not refresh data: " + failure.getMessage();
+        });
+    }
+
+    /**
+     * Removes the row with an ID, if shown. Must be called on the EDT.
+     *
+     * @param table The table; its model must be a {@link DefaultTableModel}.
+     * @param id    The ID of the row.
+     */
+    static void remove(JTable table, Long id) {
+        State state = state(table);
+        int index = indexOf(table, state, id);
+        if (index < 0) {
+            return;
+        }
+        ((DefaultTableModel) table.getModel()).removeRow(index);
+        state.rowIndex.remove(id);
+        // The rows below moved up by one
+        state.rowIndex.replaceAll((rowId, rowIndex) -> rowIndex > index ? rowIndex - 1 : rowIndex);
+    }
+
+    /**
+     * Runs a full load, shows its rows unless outdated, and starts the next merged load if any.
+     *
+     * @param table The table.
+     * @param state The table's state.
+     * @param load  The number of the load.
+     */
+    private static void run(JTable table, State state, int load) {
+        BackgroundCalls.whenDone(table, AsyncDao.supply(state.loadQuery), rows -> {
+            if (state.tracker.loadCompleted(load)) {
+                DefaultTableModel model = (DefaultTableModel) table.getModel();
+                model.setRowCount(0);
+                state.rowIndex.clear();
+                for (Object[] row : rows) {
+                    if (row.length > 0 && row[0] instanceof Number) {
+                        state.rowIndex.put(((Number) row[0]).longValue(), model.getRowCount());
+                    }
+                    model.addRow(row);
+                }
+                repatch(table, state);
+            }
+            runNext(table, state);
+        }, failure -> {
+            state.tracker.loadFailed(load);
+            runNext(table, state);
+            return "Could not load data: " + failure.getMessage();
+        });
+    }
+
+    /**
+     * Starts the load merged from the requests made during the previous one, if any.
+     *
+     * @param table The table.
+     * @param state The table's state.
+     */
+    private static void runNext(JTable table, State state) {
+        int next = state.tracker.nextLoad();
+        if (next != 0) {
+            run(table, state, next);
+        }
+    }
+
+    /**
+     * Re-reads the rows that changed during a full load, or loads the table again if there are many.
+     *
+     * @param table The table.
+     * @param state The table's state.
+     */
+    private static void repatch(JTable table, State state) {
+        List<Long> ids = state.tracker.takeStaleAfterLoad();
+        if (ids == null) {
+            load(table, state.loadQuery);
+            return;
+        }
+        for (Long id : ids) {
+            patch(table, id, state.rowQuery);
+        }
+    }
+
+    /**
+     * Replaces the row with an ID, or appends it if not shown.
+     *
+     * @param table The table.
+     * @param state The table's state.
+     * @param id    The ID of the row.
+     * @param row   The new cells.
+     */
+    private static void put(JTable table, State state, Long id, Object[] row) {
+        DefaultTableModel model = (DefaultTableModel) table.getModel();
+        int index = indexOf(table, state, id);
+        if (index < 0) {
+            state.rowIndex.put(id, model.getRowCount());
+            model.addRow(row);
+            return;
+        }
+        for (int column = 0; column < row.length; column++) {
+            model.setValueAt(row[column], index, column);
+        }
+    }
+
+    /**
+     * Finds the model index of the row with an ID through the table's row index. If the
+     * model was changed around this class, e.g. cleared by its panel, the index is rebuilt.
+     *
+     * @param table The table.
+     * @param state The table's state.
+     * @param id    The ID of the row.
+     * @return The row index, or -1 if not shown.
+     */
+    private static int indexOf(JTable table, State state, Long id) {
+        DefaultTableModel model = (DefaultTableModel) table.getModel();
+        Integer index = state.rowIndex.get(id);
+        if (index != null && index < model.getRowCount() && holdsId(model, index, id)) {
+            return index;
+        }
+        if (index == null && state.rowIndex.size() == model.getRowCount()) {
+            return -1;
+        }
+        state.rowIndex.clear();
+        for (int row = 0; row < model.getRowCount(); row++) {
+            Object value = model.getValueAt(row, 0);
+            if (value instanceof Number) {
+                state.rowIndex.put(((Number) value).longValue(), row);
+            }
+        }
+        return state.rowIndex.getOrDefault(id, -1);
+    }
+
+    /**
+     * Checks whether a model row holds the row with an ID.
+     *
+     * @param model The table model.
+     * @param index The model index.
+     * @param id    The ID.
+     * @return True if the row's first column holds the ID.
+     */
+    private static boolean holdsId(DefaultTableModel model, int index, Long id) {
+        Object value = model.getValueAt(index, 0);
+        return value instanceof Number && ((Number) value).longValue() == id;
+    }
+
+    /**
+     * Returns the state of a table, creating it on first use.
+     *
+     * @param table The table.
+     * @return The state.
+     */
+    private static State state(JTable table) {
+        State state = (State) table.getClientProperty(STATE);
+        if (state == null) {
+            state = new State();
+            table.putClientProperty(STATE, state);
+        }
+        return state;
+    }
+}
@@ -0,0 +1,188 @@
+package GUI;
+
+import LibraryUtil.PrefixIndex.Completion;
+
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import java.awt.event.ActionEvent;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.List;
+import java.util.function.BiFunction;
+
+/**
+ * A text field that picks an entity by typing the start of one of its names, or its numeric ID.
+ * <p>As the user types, the completions for the text are shown in a popup below the field.
+ * Up and Down move through them, Enter or a click picks one, and Escape closes the popup.
+ * The completions come from an in-memory prefix index, so they are looked up on every
+ * keystroke without a background thread.</p>
+ */
+final class TypeAheadField extends JTextField {
+
+    /**
+     * The maximum number of completions shown.
+     */
+    private static final int SUGGESTIONS = 8;
+
+    /**
+     * Returns the completions of a prefix, up to a limit.
+     */
+    private final BiFunction<String, Integer, List<Completion>> completions;
+
+    /**
+     * The completions shown in the popup.
+     */
+    private final DefaultListModel<Completion> model = new DefaultListModel<>();
+
+    /**
+     * The list inside the popup.
+     */
+    private final JList<Completion> list = new JList<>(model);
+
+    /**
+     * The popup below the field; it never takes the focus from the field.
+     */
+    private final JPopupMenu popup = new JPopupMenu();
+
+    /**
+     * The ID of the picked completion, or null if the text was typed.
+     */
+    private Long pickedId;
+
+    /**
+     * True while the field's text is set by a pick, so the change is not completed again.
+     */
+    private boolean picking;
+
+    /**
+     * Constructs the field.
+     *
+     * @param completions Returns the completions of a prefix, up to a limit.
+     */
+    TypeAheadField(BiFunction<String, Integer, List<Completion>> completions) {
+        super(30);
+        this.completions = completions;
+
+        list.setFocusable(false);
+        list.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        list.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                pick();
+            }
+        });
+        popup.setFocusable(false);
+        popup.add(new JScrollPane(list));
+
+        getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) { textChanged(); }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) { textChanged(); }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) { textChanged(); }
+        });
+
+        bind(KeyEvent.VK_DOWN, "typeAhead.next", () -> move(1));
+        bind(KeyEvent.VK_UP, "typeAhead.previous", () -> move(-1));
+        bind(KeyEvent.VK_ENTER, "typeAhead.pick", this::pick);
+        bind(KeyEvent.VK_ESCAPE, "typeAhead.close", () -> popup.setVisible(false));
+    }
+
+    /**
+     * Returns the ID of the picked completion, or the typed ID.
+     *
+     * @return The ID, or null if nothing was picked and the text is not a number.
+     */
+    Long getSelectedId() {
+        if (pickedId != null) {
+            return pickedId;
+        }
+        try {
+            return Long.parseLong(getText().trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Shows the completions of the current text, unless it was set by a pick or is an ID.
+     */
+    private void textChanged() {
+        if (picking) {
+            return;
+        }
+        pickedId = null;
+        String text = getText().trim();
+        model.clear();
+        if (!text.isEmpty() && !text.chars().allMatch(Character::isDigit)) {
+            completions.apply(text, SUGGESTIONS).forEach(model::addElement);
+        }
+        if (model.isEmpty()) {
+            popup.setVisible(false);
+            return;
+        }
+        list.setVisibleRowCount(model.size());
+        list.setSelectedIndex(0);
+        if (isShowing()) {
+            popup.pack();
+            popup.show(this, 0, getHeight());
+        }
+    }
+
+    /**
+     * Moves the selection in the popup.
+     *
+     * @param delta The number of rows to move by.
+     */
+    private void move(int delta) {
+        int index = Math.floorMod(list.getSelectedIndex() + delta, model.size());
+        list.setSelectedIndex(index);
+        list.ensureIndexIsVisible(index);
+    }
+
+    /**
+     * Picks the selected completion: shows its label and remembers its ID.
+     */
+    private void pick() {
+        Completion completion = list.getSelectedValue();
+        popup.setVisible(false);
+        if (completion == null) {
+            return;
+        }
+        picking = true;
+        try {
+            setText(completion.getLabel());
+        } finally {
+            picking = false;
+        }
+        pickedId = completion.getId();
+    }
+
+    /**
+     * Binds a key to an action that is only enabled while the popup is visible, so the key
+     * keeps its usual meaning (e.g. Enter pressing the dialog's default button) otherwise.
+     *
+     * @param key     The key code.
+     * @param name    The action name.
+     * @param handler The action.
+     */
+    private void bind(int key, String name, Runnable handler) {
+        getInputMap().put(KeyStroke.getKeyStroke(key, 0), name);
+        getActionMap().put(name, new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                handler.run();
+            }
+
+            @Override
+            public boolean isEnabled() {
+                return popup.isVisible() && !model.isEmpty();
+            }
+        });
+    }
+}
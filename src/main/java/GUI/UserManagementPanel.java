@@ -1,22 +1,32 @@
 package GUI;
 
 import LibraryEntities.User;
-import dao.Dao;
+import LibraryUtil.ChangeEvent;
+import LibraryUtil.ChangeEvents;
+import LibraryViews.UserRow;
+import dao.AsyncDao;
+import dao.UserDaoImpl;
 
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
-import java.util.List;
+import java.util.stream.Collectors;
 
 /**
  * A panel for managing {@link User} entities (adding, editing, deleting).
+ * The table is loaded once and then patched row by row from the User {@link ChangeEvent}s.
  */
 public class UserManagementPanel extends JPanel {
 
     /**
      * DAO for User entities.
      */
-    private final Dao<User> userDao;
+    private final UserDaoImpl userDao;
+
+    /**
+     * Runs User operations in the background.
+     */
+    private final AsyncDao<User> users;
 
     /**
      * Table to display users.
@@ -28,10 +38,12 @@ public class UserManagementPanel extends JPanel {
      *
      * @param userDao The DAO for user operations.
      */
-    public UserManagementPanel(Dao<User> userDao) {
+    public UserManagementPanel(UserDaoImpl userDao) {
         this.userDao = userDao;
+        this.users = new AsyncDao<>(userDao);
         setLayout(new BorderLayout());
         initComponents();
+        ChangeEvents.subscribe(User.class, event -> SwingUtilities.invokeLater(() -> userChanged(event)));
     }
 
     /**
@@ -57,25 +69,33 @@ public class UserManagementPanel extends JPanel {
     }
 
     /**
-     * Loads all User entities into the table.
+     * Loads the table rows of all User entities into the table.
+     * The query runs in the background; the table is filled when it completes.
      */
     public void loadUsers() {
-        DefaultTableModel model = (DefaultTableModel) userTable.getModel();
-        model.setRowCount(0);
-        List<User> users = userDao.findAll();
-        for (User user : users) {
-            model.addRow(new Object[]{
-                    user.getId(),
-                    user.getName(),
-                    user.getEmail(),
-                    user.getPhoneNumber(),
-                    user.getAddress()
+        TableLoader.load(userTable, () -> userDao.findRows().stream()
+                .map(UserRow::toCells)
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * Updates the row of a changed User. Runs on the EDT.
+     *
+     * @param event The committed change.
+     */
+    private void userChanged(ChangeEvent event) {
+        if (event.getKind() == ChangeEvent.Kind.DELETED) {
+            TableLoader.remove(userTable, event.getId());
+        } else {
+            TableLoader.patch(userTable, event.getId(), id -> {
+                UserRow row = userDao.findRow(id);
+                return row == null ? null : row.toCells();
             });
         }
     }
 
     /**
-     * Opens a dialog to add a new User.
+     * Opens a dialog to add a new User, who is created in the background.
      */
     private void addUser() {
         JTextField nameField = new JTextField();
@@ -97,13 +117,13 @@ public class UserManagementPanel extends JPanel {
                     emailField.getText(),
                     phoneField.getText(),
                     addressField.getText());
-            userDao.create(newUser);
-            loadUsers();
+            BackgroundCalls.whenDone(this, users.create(newUser), created -> {},
+                    ex -> "An error occurred while adding the user: " + ex.getMessage());
         }
     }
 
     /**
-     * Opens a dialog to edit the selected User's fields.
+     * Opens a dialog to edit the selected User's fields, once the User is read in the background.
      */
     private void editUser() {
         int selectedRow = userTable.getSelectedRow();
@@ -116,7 +136,20 @@ public class UserManagementPanel extends JPanel {
         }
 
         Long userId = Long.valueOf(userTable.getValueAt(selectedRow, 0).toString());
-        User user = userDao.findById(userId);
+        BackgroundCalls.whenDone(this, users.findById(userId), this::editUser,
+                ex -> "Could not read the user: " + ex.getMessage());
+    }
+
+    /**
+     * Opens a dialog to edit a User and saves the changes in the background.
+     *
+     * @param user The User to edit, or null if they were deleted meanwhile.
+     */
+    private void editUser(User user) {
+        if (user == null) {
+            loadUsers();
+            return;
+        }
 
         JTextField nameField = new JTextField(user.getName());
         JTextField emailField = new JTextField(user.getEmail());
@@ -136,8 +169,8 @@ public class UserManagementPanel extends JPanel {
             user.setEmail(emailField.getText());
             user.setPhoneNumber(phoneField.getText());
             user.setAddress(addressField.getText());
-            userDao.update(user);
-            loadUsers();
+            BackgroundCalls.whenDone(this, users.update(user), updated -> {},
+                    ex -> "An error occurred while updating the user: " + ex.getMessage());
         }
     }
 
@@ -155,14 +188,7 @@ public class UserManagementPanel extends JPanel {
         }
 
         Long userId = Long.valueOf(userTable.getValueAt(selectedRow, 0).toString());
-        try{
-            userDao.delete(userId);
-        }catch (Exception e){
-            JOptionPane.showMessageDialog(this,
-                    "Cannot delete user with active borrowings.",
-                    "Error",
-                    JOptionPane.ERROR_MESSAGE);
-        }
-        loadUsers();
+        BackgroundCalls.whenDone(this, users.delete(userId), deleted -> {},
+                ex -> "Cannot delete user with active borrowings.");
     }
 }
\ No newline at end of file
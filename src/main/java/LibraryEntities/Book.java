@@ -1,21 +1,30 @@
 package LibraryEntities;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import javax.persistence.*;
 import java.util.ArrayList;
 import java.util.List;
 
 /**
  * Represents a book entity in the library system.
+ * Books and their copy collections are kept in the second-level cache.
+ * Copies are loaded lazily; the "Book.withCopies" graph loads them together with the Book.
  */
 @Entity
+@NamedEntityGraph(name = "Book.withCopies", attributeNodes = @NamedAttributeNode("copies"))
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Table(name = "Books")
 public class Book {
 
     /**
-     * The primary key identifier for Book, generated automatically.
+     * The primary key identifier for Book, generated from a pooled sequence.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "book_seq")
+    @SequenceGenerator(name = "book_seq", sequenceName = "book_seq", allocationSize = IdGeneration.ALLOCATION_SIZE)
     private Long id;
 
     /**
@@ -55,7 +64,8 @@ public class Book {
     /**
      * The list of physical copies associated with this Book (one-to-many).
      */
-    @OneToMany(mappedBy = "book", cascade = CascadeType.ALL, fetch = FetchType.EAGER)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+    @OneToMany(mappedBy = "book", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<Copy> copies = new ArrayList<>();
 
     /**
@@ -115,13 +125,14 @@ public class Book {
     public List<Copy> getCopies() { return copies; }
 
     /**
-     * Counts how many copies of this book are currently marked as "Available".
+     * Counts how many copies of this book are currently available.
+     * The copies must have been loaded, e.g. with the "Book.withCopies" graph.
      *
      * @return The number of available copies.
      */
     public int getAvailableCopies() {
         return (int) copies.stream()
-                .filter(copy -> "Available".equals(copy.getStatus()))
+                .filter(Copy::isAvailable)
                 .count();
     }
 }
\ No newline at end of file
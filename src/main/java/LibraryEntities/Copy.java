@@ -1,18 +1,26 @@
 package LibraryEntities;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import javax.persistence.*;
 
 /**
  * Represents a physical copy of a Book in the library.
+ * Copies are kept in the second-level cache.
  */
 @Entity
+@Table(indexes = @Index(name = "idx_copy_book_status", columnList = "book_id, status"))
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class Copy {
 
     /**
-     * Primary key for Copy, generated automatically.
+     * Primary key for Copy, generated from a pooled sequence.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "copy_seq")
+    @SequenceGenerator(name = "copy_seq", sequenceName = "copy_seq", allocationSize = IdGeneration.ALLOCATION_SIZE)
     private Long id;
 
     /**
@@ -23,21 +31,41 @@ public class Copy {
     private Book book;
 
     /**
-     * The status of this copy (e.g., "Available", "Borrowed").
+     * The status of this copy, stored as a small integer code.
      */
-    private String status;
+    @Convert(converter = CopyStatusConverter.class)
+    @Column(name = "status", nullable = false)
+    private CopyStatus status;
+
+    /**
+     * Optimistic lock version, incremented on every update.
+     * A merge of a Copy read before a concurrent update fails instead of overwriting it.
+     */
+    @Version
+    private Long version;
 
     /**
      * Constructs a Copy with a specific Book and status.
      *
      * @param book   The Book this copy references.
-     * @param status The status of this copy (e.g., "Available").
+     * @param status The status of this copy.
      */
-    public Copy(Book book, String status) {
+    public Copy(Book book, CopyStatus status) {
         this.book = book;
         this.status = status;
     }
 
+    /**
+     * Constructs a Copy with a specific Book and status name.
+     *
+     * @param book   The Book this copy references.
+     * @param status The status name of this copy (e.g., "Available").
+     * @throws IllegalArgumentException if the status name is unknown.
+     */
+    public Copy(Book book, String status) {
+        this(book, CopyStatus.fromLabel(status));
+    }
+
     /**
      * Default constructor for JPA.
      */
@@ -48,6 +76,10 @@ public class Copy {
         return id;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
     public Book getBook() {
         return book;
     }
@@ -61,16 +93,44 @@ public class Copy {
         this.book = book;
     }
 
-    public String getStatus() {
+    public CopyStatus getCopyStatus() {
         return status;
     }
 
     /**
-     * Updates the status of this copy (e.g., from "Available" to "Borrowed").
+     * Updates the status of this copy (e.g., from AVAILABLE to BORROWED).
      *
-     * @param status The new status string.
+     * @param status The new status.
      */
-    public void setStatus(String status) {
+    public void setCopyStatus(CopyStatus status) {
         this.status = status;
     }
+
+    /**
+     * Returns the display name of this copy's status (e.g., "Available").
+     *
+     * @return The status name, or null if no status is set.
+     */
+    public String getStatus() {
+        return status == null ? null : status.getLabel();
+    }
+
+    /**
+     * Updates the status of this copy by name (e.g., from "Available" to "Borrowed").
+     *
+     * @param status The new status name.
+     * @throws IllegalArgumentException if the status name is unknown.
+     */
+    public void setStatus(String status) {
+        this.status = CopyStatus.fromLabel(status);
+    }
+
+    /**
+     * Checks whether this copy can be borrowed.
+     *
+     * @return True if the status is {@link CopyStatus#AVAILABLE}.
+     */
+    public boolean isAvailable() {
+        return status == CopyStatus.AVAILABLE;
+    }
 }
\ No newline at end of file
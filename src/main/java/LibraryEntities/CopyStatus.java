@@ -0,0 +1,76 @@
+package LibraryEntities;
+
+/**
+ * The circulation status of a {@link Copy}.
+ * <p>Each status is stored as a small integer {@link #getCode() code}, which keeps the
+ * column and its (book_id, status) index compact and makes comparisons cheap.
+ * Codes are part of the schema and must never be reused or renumbered.</p>
+ */
+public enum CopyStatus {
+
+    /**
+     * The copy is on the shelf and can be borrowed.
+     */
+    AVAILABLE((short) 0, "Available"),
+
+    /**
+     * The copy is currently lent out.
+     */
+    BORROWED((short) 1, "Borrowed");
+
+    /**
+     * The value stored in the database.
+     */
+    private final short code;
+
+    /**
+     * The display name, as shown in the GUI (e.g., "Available").
+     */
+    private final String label;
+
+    CopyStatus(short code, String label) {
+        this.code = code;
+        this.label = label;
+    }
+
+    public short getCode() { return code; }
+
+    public String getLabel() { return label; }
+
+    /**
+     * Finds the status stored as the given code.
+     *
+     * @param code The database code.
+     * @return The matching status.
+     * @throws IllegalArgumentException if no status has this code.
+     */
+    public static CopyStatus fromCode(short code) {
+        for (CopyStatus status : values()) {
+            if (status.code == code) {
+                return status;
+            }
+        }
+        throw new IllegalArgumentException("Unknown copy status code: " + code);
+    }
+
+    /**
+     * Finds the status with the given display name.
+     *
+     * @param label The display name (e.g., "Available"), compared ignoring case.
+     * @return The matching status.
+     * @throws IllegalArgumentException if no status has this name.
+     */
+    public static CopyStatus fromLabel(String label) {
+        for (CopyStatus status : values()) {
+            if (status.label.equalsIgnoreCase(label)) {
+                return status;
+            }
+        }
+        throw new IllegalArgumentException("Unknown copy status: " + label);
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
@@ -0,0 +1,21 @@
+package LibraryEntities;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+
+/**
+ * Stores a {@link CopyStatus} as its small integer code.
+ */
+@Converter
+public class CopyStatusConverter implements AttributeConverter<CopyStatus, Short> {
+
+    @Override
+    public Short convertToDatabaseColumn(CopyStatus status) {
+        return status == null ? null : status.getCode();
+    }
+
+    @Override
+    public CopyStatus convertToEntityAttribute(Short code) {
+        return code == null ? null : CopyStatus.fromCode(code);
+    }
+}
@@ -0,0 +1,20 @@
+package LibraryEntities;
+
+/**
+ * Shared settings for the sequence-based primary key generators of all entities.
+ * <p>Each entity draws its IDs from its own database sequence. Hibernate reserves
+ * {@link #ALLOCATION_SIZE} IDs per sequence call and hands them out from memory
+ * (the optimizer is selected by {@code hibernate.id.optimizer.pooled.preferred}
+ * in {@code persistence.xml}), so inserts need no round trip to obtain their key
+ * and can be sent in JDBC batches.</p>
+ */
+public final class IdGeneration {
+
+    /**
+     * The number of IDs reserved per sequence call. Also the {@code hibernate.jdbc.batch_size}
+     * JPAUtil configures, so a full batch needs one sequence call.
+     */
+    public static final int ALLOCATION_SIZE = 50;
+
+    private IdGeneration() {}
+}
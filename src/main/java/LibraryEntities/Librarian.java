@@ -11,10 +11,11 @@ import java.time.LocalDate;
 public class Librarian {
 
     /**
-     * Primary key for Librarian, generated automatically (Integer).
+     * Primary key for Librarian, generated from a pooled sequence (Integer).
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "librarian_seq")
+    @SequenceGenerator(name = "librarian_seq", sequenceName = "librarian_seq", allocationSize = IdGeneration.ALLOCATION_SIZE)
     private Integer id;
 
     /**
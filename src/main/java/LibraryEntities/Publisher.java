@@ -1,21 +1,30 @@
 package LibraryEntities;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import javax.persistence.*;
 import java.util.ArrayList;
 import java.util.List;
 
 /**
  * Represents a publisher of books.
+ * Publishers and their book collections are kept in the second-level cache.
+ * Books are loaded lazily; the "Publisher.withBooks" graph loads them together with the Publisher.
  */
 @Entity
+@NamedEntityGraph(name = "Publisher.withBooks", attributeNodes = @NamedAttributeNode("books"))
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Table(name = "Publishers")
 public class Publisher {
 
     /**
-     * Primary key for Publisher, generated automatically (Integer).
+     * Primary key for Publisher, generated from a pooled sequence (Integer).
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "publisher_seq")
+    @SequenceGenerator(name = "publisher_seq", sequenceName = "publisher_seq", allocationSize = IdGeneration.ALLOCATION_SIZE)
     private Integer id;
 
     /**
@@ -36,7 +45,8 @@ public class Publisher {
     /**
      * One publisher can have many books referencing it (one-to-many).
      */
-    @OneToMany(mappedBy = "publisher", fetch = FetchType.EAGER)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+    @OneToMany(mappedBy = "publisher", fetch = FetchType.LAZY)
     private List<Book> books = new ArrayList<>();
 
     /**
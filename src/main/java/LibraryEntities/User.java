@@ -6,16 +6,19 @@ import java.util.List;
 
 /**
  * Represents a general user in the library system.
+ * Borrowings are loaded lazily; {@code UserDaoImpl.findWithActiveLoans} loads the open ones
+ * together with the borrowed copies and their books.
  */
 @Entity
 @Table(name = "Users")
 public class User {
 
     /**
-     * Primary key for User, generated automatically (Integer).
+     * Primary key for User, generated from a pooled sequence (Integer).
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_seq")
+    @SequenceGenerator(name = "user_seq", sequenceName = "user_seq", allocationSize = IdGeneration.ALLOCATION_SIZE)
     private Integer id;
 
     /**
@@ -43,7 +46,7 @@ public class User {
     /**
      * The list of Borrowings associated with this user (one-to-many).
      */
-    @OneToMany(mappedBy = "user", fetch = FetchType.EAGER)
+    @OneToMany(mappedBy = "user", fetch = FetchType.LAZY)
     private List<Borrowing> borrowings = new ArrayList<>();
 
     /**
@@ -82,4 +85,5 @@ public class User {
     public void setAddress(String address) { this.address = address; }
 
     public List<Borrowing> getBorrowings() { return borrowings; }
+    public void setBorrowings(List<Borrowing> borrowings) { this.borrowings = borrowings; }
 }
\ No newline at end of file
@@ -0,0 +1,274 @@
+package LibraryUtil;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * An in-memory index of which copies of each book are available.
+ * <p>Every copy of a loaded book is given a slot, and one bit per slot records whether the
+ * copy is available. Answering "does this book have an available copy?" or "which copy
+ * can be lent?" is then a bit scan instead of a query over the copy table.</p>
+ * <p>Books are loaded on demand. Each book being loaded or loaded carries a version that
+ * every change replaces with a new, never reused number: a load that started before a change
+ * is discarded, so a slow load can never put stale bits into the index. Changes to books
+ * that are not loaded only drop their version, so the index holds nothing for them.</p>
+ */
+public class AvailabilityBitmap {
+
+    /**
+     * The copy slots and availability bits of one book.
+     */
+    private static final class Slots {
+
+        /**
+         * The copy ID of each slot; null for free slots.
+         */
+        private final List<Long> copyIds = new ArrayList<>();
+
+        /**
+         * The slot of each copy ID.
+         */
+        private final Map<Long, Integer> slotOf = new HashMap<>();
+
+        /**
+         * The free slots, reused before new ones are appended.
+         */
+        private final Deque<Integer> freeSlots = new ArrayDeque<>();
+
+        /**
+         * One bit per slot, set if the copy is available.
+         */
+        private final BitSet available = new BitSet();
+
+        /**
+         * Sets the availability of a copy, giving it a slot if it has none.
+         *
+         * @param copyId    The copy ID.
+         * @param isAvailable Whether the copy is available.
+         */
+        private void set(Long copyId, boolean isAvailable) {
+            Integer slot = slotOf.get(copyId);
+            if (slot == null) {
+                slot = freeSlots.poll();
+                if (slot == null) {
+                    slot = copyIds.size();
+                    copyIds.add(copyId);
+                } else {
+                    copyIds.set(slot, copyId);
+                }
+                slotOf.put(copyId, slot);
+            }
+            available.set(slot, isAvailable);
+        }
+
+        /**
+         * Frees the slot of a copy.
+         *
+         * @param copyId The copy ID.
+         */
+        private void remove(Long copyId) {
+            Integer slot = slotOf.remove(copyId);
+            if (slot != null) {
+                copyIds.set(slot, null);
+                available.clear(slot);
+                freeSlots.push(slot);
+            }
+        }
+    }
+
+    /**
+     * The source of version numbers, shared by all books so a number is never handed out twice.
+     */
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * The loaded books, by book ID.
+     */
+    private final Map<Long, Slots> books = new ConcurrentHashMap<>();
+
+    /**
+     * The version of each book being loaded or loaded. Also used as the per-book lock;
+     * a counter removed from the map no longer guards its book.
+     */
+    private final Map<Long, AtomicLong> versions = new ConcurrentHashMap<>();
+
+    /**
+     * Checks whether a book's copies are in the index.
+     *
+     * @param bookId The book ID.
+     * @return True if the book has been loaded and not evicted since.
+     */
+    public boolean isLoaded(Long bookId) {
+        return books.containsKey(bookId);
+    }
+
+    /**
+     * Returns the current version of a book, to be passed to {@link #load(Long, long, Map)}.
+     *
+     * @param bookId The book ID.
+     * @return The book's version.
+     */
+    public long version(Long bookId) {
+        return versions.computeIfAbsent(bookId, k -> new AtomicLong(sequence.incrementAndGet())).get();
+    }
+
+    /**
+     * Stores the copies of a book, unless the book changed since {@code version} was read.
+     *
+     * @param bookId  The book ID.
+     * @param version The version read before the copies were queried.
+     * @param copies  The availability of every copy of the book, by copy ID.
+     * @return True if the copies were stored.
+     */
+    public boolean load(Long bookId, long version, Map<Long, Boolean> copies) {
+        AtomicLong counter = versions.get(bookId);
+        if (counter == null) {
+            return false;
+        }
+        synchronized (counter) {
+            if (!guards(bookId, counter) || counter.get() != version) {
+                return false;
+            }
+            Slots slots = new Slots();
+            copies.forEach(slots::set);
+            books.put(bookId, slots);
+            return true;
+        }
+    }
+
+    /**
+     * Records the availability of a copy.
+     *
+     * @param bookId      The ID of the copy's book.
+     * @param copyId      The copy ID.
+     * @param isAvailable Whether the copy is available.
+     */
+    public void update(Long bookId, Long copyId, boolean isAvailable) {
+        change(bookId, slots -> slots.set(copyId, isAvailable));
+    }
+
+    /**
+     * Removes a deleted copy.
+     *
+     * @param bookId The ID of the copy's book.
+     * @param copyId The copy ID.
+     */
+    public void remove(Long bookId, Long copyId) {
+        change(bookId, slots -> slots.remove(copyId));
+    }
+
+    /**
+     * Drops a book from the index, so it is loaded again on next use.
+     *
+     * @param bookId The book ID.
+     */
+    public void evict(Long bookId) {
+        AtomicLong counter = versions.get(bookId);
+        if (counter == null) {
+            return;
+        }
+        synchronized (counter) {
+            if (guards(bookId, counter)) {
+                books.remove(bookId);
+                versions.remove(bookId);
+            }
+        }
+    }
+
+    /**
+     * Drops every book from the index.
+     */
+    public void evictAll() {
+        for (Long bookId : versions.keySet()) {
+            evict(bookId);
+        }
+    }
+
+    /**
+     * Counts the available copies of a book.
+     *
+     * @param bookId The book ID.
+     * @return The number of available copies, or -1 if the book is not loaded.
+     */
+    public int availableCount(Long bookId) {
+        AtomicLong counter = versions.get(bookId);
+        if (counter == null) {
+            return -1;
+        }
+        synchronized (counter) {
+            Slots slots = guards(bookId, counter) ? books.get(bookId) : null;
+            return slots == null ? -1 : slots.available.cardinality();
+        }
+    }
+
+    /**
+     * Returns the IDs of the available copies of a book, in slot order.
+     *
+     * @param bookId The book ID.
+     * @return The available copy IDs, or null if the book is not loaded.
+     */
+    public List<Long> availableCopyIds(Long bookId) {
+        AtomicLong counter = versions.get(bookId);
+        if (counter == null) {
+            return null;
+        }
+        synchronized (counter) {
+            Slots slots = guards(bookId, counter) ? books.get(bookId) : null;
+            if (slots == null) {
+                return null;
+            }
+            List<Long> ids = new ArrayList<>(slots.available.cardinality());
+            for (int slot = slots.available.nextSetBit(0); slot >= 0; slot = slots.available.nextSetBit(slot + 1)) {
+                ids.add(slots.copyIds.get(slot));
+            }
+            return ids;
+        }
+    }
+
+    /**
+     * Applies a change to a loaded book and gives it a new version, discarding loads in
+     * progress. A book that is only being loaded loses its version instead, which discards
+     * the load just the same; a book neither loaded nor being loaded needs nothing.
+     *
+     * @param bookId The book ID.
+     * @param change The change to the book's slots.
+     */
+    private void change(Long bookId, Consumer<Slots> change) {
+        AtomicLong counter = versions.get(bookId);
+        if (counter == null) {
+            return;
+        }
+        synchronized (counter) {
+            // A replaced counter was created after this change was committed
+            if (!guards(bookId, counter)) {
+                return;
+            }
+            Slots slots = books.get(bookId);
+            if (slots == null) {
+                versions.remove(bookId);
+                return;
+            }
+            counter.set(sequence.incrementAndGet());
+            change.accept(slots);
+        }
+    }
+
+    /**
+     * Tells whether a counter is still the lock of a book. Must hold the counter's lock.
+     *
+     * @param bookId  The book ID.
+     * @param counter The counter.
+     * @return True if the counter is the book's current one.
+     */
+    private boolean guards(Long bookId, AtomicLong counter) {
+        return versions.get(bookId) == counter;
+    }
+}
@@ -0,0 +1,75 @@
+package LibraryUtil;
+
+/**
+ * An immutable snapshot of the counters of one second-level cache region.
+ */
+public final class CacheStatistics {
+
+    /**
+     * The name of the cache region (e.g., "LibraryEntities.Book").
+     */
+    private final String region;
+
+    /**
+     * The number of lookups answered from the cache.
+     */
+    private final long hitCount;
+
+    /**
+     * The number of lookups that had to go to the database.
+     */
+    private final long missCount;
+
+    /**
+     * The number of entries put into the cache.
+     */
+    private final long putCount;
+
+    /**
+     * The number of entries currently held in memory, or -1 if unknown.
+     */
+    private final long size;
+
+    /**
+     * Constructs a snapshot of a region's counters.
+     *
+     * @param region    The region name.
+     * @param hitCount  The number of cache hits.
+     * @param missCount The number of cache misses.
+     * @param putCount  The number of cache puts.
+     * @param size      The number of entries in memory, or -1 if unknown.
+     */
+    public CacheStatistics(String region, long hitCount, long missCount, long putCount, long size) {
+        this.region = region;
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.putCount = putCount;
+        this.size = size;
+    }
+
+    public String getRegion() { return region; }
+
+    public long getHitCount() { return hitCount; }
+
+    public long getMissCount() { return missCount; }
+
+    public long getPutCount() { return putCount; }
+
+    public long getSize() { return size; }
+
+    /**
+     * Calculates the fraction of lookups that were answered from the cache.
+     *
+     * @return The hit ratio between 0 and 1, or 0 if there were no lookups.
+     */
+    public double getHitRatio() {
+        long lookups = hitCount + missCount;
+        return lookups == 0 ? 0 : (double) hitCount / lookups;
+    }
+
+    @Override
+    public String toString() {
+        return region + " [hits=" + hitCount + ", misses=" + missCount
+                + ", puts=" + putCount + ", size=" + size + "]";
+    }
+}
@@ -0,0 +1,112 @@
+package LibraryUtil;
+
+import java.util.Set;
+
+/**
+ * An immutable notice that one entity was created, updated or deleted, published through
+ * {@link ChangeEvents} once the change is committed.
+ */
+public final class ChangeEvent {
+
+    /**
+     * The kinds of change.
+     */
+    public enum Kind { CREATED, UPDATED, DELETED }
+
+    /**
+     * The changed entity class.
+     */
+    private final Class<?> entityType;
+
+    /**
+     * The ID of the changed entity.
+     */
+    private final Long id;
+
+    /**
+     * The kind of change.
+     */
+    private final Kind kind;
+
+    /**
+     * The names of the changed fields; empty if any field may have changed.
+     */
+    private final Set<String> changedFields;
+
+    /**
+     * Constructs an event.
+     *
+     * @param entityType    The changed entity class.
+     * @param id            The ID of the changed entity.
+     * @param kind          The kind of change.
+     * @param changedFields The names of the changed fields; empty if any field may have changed.
+     * @throws IllegalArgumentException if the entity class, ID or kind is null.
+     */
+    public ChangeEvent(Class<?> entityType, Long id, Kind kind, Set<String> changedFields) {
+        if (entityType == null || id == null || kind == null) {
+            throw new IllegalArgumentException("Entity type, ID and kind cannot be null");
+        }
+        this.entityType = entityType;
+        this.id = id;
+        this.kind = kind;
+        this.changedFields = changedFields == null ? Set.of() : Set.copyOf(changedFields);
+    }
+
+    /**
+     * Creates the event of an inserted entity.
+     *
+     * @param entityType The entity class.
+     * @param id         The new entity's ID.
+     * @return The event.
+     */
+    public static ChangeEvent created(Class<?> entityType, Long id) {
+        return new ChangeEvent(entityType, id, Kind.CREATED, Set.of());
+    }
+
+    /**
+     * Creates the event of an updated entity.
+     *
+     * @param entityType    The entity class.
+     * @param id            The entity's ID.
+     * @param changedFields The names of the changed fields; none if any field may have changed.
+     * @return The event.
+     */
+    public static ChangeEvent updated(Class<?> entityType, Long id, String... changedFields) {
+        return new ChangeEvent(entityType, id, Kind.UPDATED, Set.of(changedFields));
+    }
+
+    /**
+     * Creates the event of a deleted entity.
+     *
+     * @param entityType The entity class.
+     * @param id         The deleted entity's ID.
+     * @return The event.
+     */
+    public static ChangeEvent deleted(Class<?> entityType, Long id) {
+        return new ChangeEvent(entityType, id, Kind.DELETED, Set.of());
+    }
+
+    public Class<?> getEntityType() { return entityType; }
+
+    public Long getId() { return id; }
+
+    public Kind getKind() { return kind; }
+
+    public Set<String> getChangedFields() { return changedFields; }
+
+    /**
+     * Tells whether a field may have changed.
+     *
+     * @param field The field name.
+     * @return True if the field is listed as changed, or if no fields are listed.
+     */
+    public boolean affects(String field) {
+        return changedFields.isEmpty() || changedFields.contains(field);
+    }
+
+    @Override
+    public String toString() {
+        return kind + " " + entityType.getSimpleName() + " " + id
+                + (changedFields.isEmpty() ? "" : " " + changedFields);
+    }
+}
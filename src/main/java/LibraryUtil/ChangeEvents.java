@@ -0,0 +1,85 @@
+package LibraryUtil;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * The in-process bus on which the DAOs publish a {@link ChangeEvent} for every committed write,
+ * so views can patch the affected rows instead of reloading everything.
+ * <p>Events are delivered once the surrounding {@link UnitOfWork} commits, or at once outside
+ * one, on the thread that made the change. Listeners must therefore be quick and thread-safe;
+ * Swing listeners hand the event over to the event dispatch thread. An exception thrown by a
+ * listener is passed to the thread's uncaught exception handler and does not stop the other
+ * listeners or fail the committed write.</p>
+ */
+public final class ChangeEvents {
+
+    /**
+     * A registered listener; closing it stops the delivery of events.
+     */
+    public interface Subscription extends AutoCloseable {
+
+        /**
+         * Unregisters the listener.
+         */
+        @Override
+        void close();
+    }
+
+    /**
+     * The listeners, by entity class.
+     */
+    private static final Map<Class<?>, List<Consumer<ChangeEvent>>> LISTENERS = new ConcurrentHashMap<>();
+
+    private ChangeEvents() {}
+
+    /**
+     * Registers a listener for the changes of one entity class.
+     *
+     * @param entityType The entity class.
+     * @param listener   Receives every committed change of that class.
+     * @return The subscription, to close when the listener is no longer needed.
+     * @throws IllegalArgumentException if the entity class or listener is null.
+     */
+    public static Subscription subscribe(Class<?> entityType, Consumer<ChangeEvent> listener) {
+        if (entityType == null || listener == null) {
+            throw new IllegalArgumentException("Entity type and listener cannot be null");
+        }
+        List<Consumer<ChangeEvent>> listeners =
+                LISTENERS.computeIfAbsent(entityType, type -> new CopyOnWriteArrayList<>());
+        listeners.add(listener);
+        return () -> listeners.remove(listener);
+    }
+
+    /**
+     * Publishes a change once the current unit of work commits, or at once outside one.
+     *
+     * @param event The change.
+     */
+    public static void publish(ChangeEvent event) {
+        UnitOfWork.afterCommit(() -> deliver(event));
+    }
+
+    /**
+     * Passes an event to the listeners of its entity class.
+     *
+     * @param event The change.
+     */
+    private static void deliver(ChangeEvent event) {
+        List<Consumer<ChangeEvent>> listeners = LISTENERS.get(event.getEntityType());
+        if (listeners == null) {
+            return;
+        }
+        for (Consumer<ChangeEvent> listener : listeners) {
+            try {
+                listener.accept(event);
+            } catch (RuntimeException e) {
+                Thread thread = Thread.currentThread();
+                thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package LibraryUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits single-line RFC 4180 CSV records, the counterpart of {@link CsvWriter}.
+ * <p>Records are parsed one line at a time, so quoted fields may contain separators and
+ * doubled quotes but not line breaks. In exchange, lines can be parsed independently
+ * and in parallel.</p>
+ */
+public final class CsvParser {
+
+    private CsvParser() {}
+
+    /**
+     * Splits a line into its fields.
+     *
+     * @param line The CSV line, without its line terminator.
+     * @return The unquoted field values; empty fields are empty strings.
+     * @throws IllegalArgumentException if a quoted field is not closed or is followed by other characters.
+     */
+    public static List<String> parse(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        int i = 0;
+        int length = line.length();
+        while (true) {
+            field.setLength(0);
+            if (i < length && line.charAt(i) == '"') {
+                i++;
+                while (true) {
+                    if (i >= length) {
+                        throw new IllegalArgumentException("Unterminated quoted field");
+                    }
+                    char ch = line.charAt(i++);
+                    if (ch != '"') {
+                        field.append(ch);
+                    } else if (i < length && line.charAt(i) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        break;
+                    }
+                }
+                if (i < length && line.charAt(i) != ',') {
+                    throw new IllegalArgumentException("Unexpected character after quoted field");
+                }
+            } else {
+                while (i < length && line.charAt(i) != ',') {
+                    field.append(line.charAt(i++));
+                }
+            }
+            fields.add(field.toString());
+            if (i >= length) {
+                return fields;
+            }
+            i++; // skip the separator
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package LibraryUtil;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes RFC 4180 CSV rows to a file through a buffered NIO channel.
+ * <p>Rows are encoded straight into a fixed-size direct buffer, which is written to the
+ * channel whenever it fills up, so memory use does not grow with the number of rows.</p>
+ */
+public class CsvWriter implements Closeable {
+
+    /**
+     * The size of the output buffer, in bytes.
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * The file being written.
+     */
+    private final FileChannel channel;
+
+    /**
+     * Encoded bytes waiting to be written.
+     */
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    /**
+     * Encodes rows as UTF-8.
+     */
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+
+    /**
+     * The row being formatted; reused across rows.
+     */
+    private final StringBuilder line = new StringBuilder(256);
+
+    /**
+     * Creates or truncates {@code file} and opens it for writing.
+     *
+     * @param file The file to write.
+     * @throws IOException if the file cannot be opened.
+     */
+    public CsvWriter(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Writes one row. Null values are written as empty fields; other values use {@code toString()}.
+     *
+     * @param values The field values.
+     * @throws IOException if writing fails.
+     */
+    public void writeRow(Object... values) throws IOException {
+        line.setLength(0);
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                line.append(',');
+            }
+            if (values[i] != null) {
+                appendField(values[i].toString());
+            }
+        }
+        line.append("\r\n");
+        encode(CharBuffer.wrap(line), false);
+    }
+
+    /**
+     * Writes the remaining buffered rows and closes the file.
+     *
+     * @throws IOException if writing fails.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            encode(CharBuffer.allocate(0), true);
+            drain();
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Appends a field, quoting it if it contains a separator, quote or line break.
+     *
+     * @param value The field value.
+     */
+    private void appendField(String value) {
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char ch = value.charAt(i);
+            quote = ch == ',' || ch == '"' || ch == '\r' || ch == '\n';
+        }
+        if (!quote) {
+            line.append(value);
+            return;
+        }
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char ch = value.charAt(i);
+            if (ch == '"') {
+                line.append('"');
+            }
+            line.append(ch);
+        }
+        line.append('"');
+    }
+
+    /**
+     * Encodes characters into the buffer, draining it to the channel whenever it is full.
+     *
+     * @param chars      The characters to encode.
+     * @param endOfInput True for the final call.
+     * @throws IOException if writing fails.
+     */
+    private void encode(CharBuffer chars, boolean endOfInput) throws IOException {
+        while (true) {
+            CoderResult result = encoder.encode(chars, buffer, endOfInput);
+            if (result.isOverflow()) {
+                drain();
+            } else if (result.isError()) {
+                result.throwException();
+            } else {
+                break;
+            }
+        }
+        if (endOfInput) {
+            while (encoder.flush(buffer).isOverflow()) {
+                drain();
+            }
+        }
+    }
+
+    /**
+     * Writes the buffered bytes to the channel.
+     *
+     * @throws IOException if writing fails.
+     */
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -1,30 +1,252 @@
 package LibraryUtil;
 
+import LibraryEntities.IdGeneration;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
 import javax.persistence.Persistence;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Utility class to provide a shared {@link EntityManagerFactory} for the "LibraryPU",
  * and a method to obtain an {@link EntityManager}.
+ * <p>Connections come from a HikariCP pool configured by the {@code hibernate.hikari.*}
+ * properties in persistence.xml, so opening an EntityManager per DAO call borrows a warm
+ * connection instead of opening a new one. {@link #getPoolStatistics()} reports the pool's
+ * usage for sizing it.</p>
+ * <p>By default the unit runs on an in-memory H2 database whose schema is created on start
+ * and dropped on exit. Setting the system property {@value #STORAGE_PROPERTY} to
+ * {@code file} selects the persistent storage mode instead: an H2 database file (at
+ * {@value #DATABASE_PATH_PROPERTY}, or {@value #DEFAULT_DATABASE_PATH}) is brought up to
+ * date by {@link SchemaMigrator}, and Hibernate only validates the schema on start.</p>
  */
 public class JPAUtil {
 
+    /**
+     * The system property selecting the storage mode: {@code memory} (default) or {@code file}.
+     */
+    public static final String STORAGE_PROPERTY = "library.storage";
+
+    /**
+     * The system property giving the database file path in file mode, without extension.
+     */
+    public static final String DATABASE_PATH_PROPERTY = "library.db.path";
+
+    /**
+     * The database file path used in file mode when {@value #DATABASE_PATH_PROPERTY} is not set.
+     */
+    public static final String DEFAULT_DATABASE_PATH = "~/.library-system/library";
+
+    /**
+     * H2 settings for the database file: a 64 MB page cache (CACHE_SIZE is in KB), commits
+     * written to disk within one second (a crash may lose the last second of commits), and
+     * the same prepared statement cache as the in-memory URL.
+     */
+    private static final String FILE_SETTINGS = ";CACHE_SIZE=65536;WRITE_DELAY=1000;QUERY_CACHE_SIZE=64";
+
+    /**
+     * The database user in file mode; the same as in persistence.xml.
+     */
+    private static final String FILE_USER = "sa";
+
+    /**
+     * The database password in file mode; the same as in persistence.xml.
+     */
+    private static final String FILE_PASSWORD = "";
+
     /**
      * A singleton EntityManagerFactory initialized for "LibraryPU".
      */
-    private static final EntityManagerFactory emf =
-            Persistence.createEntityManagerFactory("LibraryPU");
+    private static final EntityManagerFactory emf = createFactory();
 
     /**
-     * Creates a new {@link EntityManager} from the shared factory.
+     * The JDBC batch size of "LibraryPU", used by bulk DAO operations to decide how often
+     * to flush and clear the persistence context. It is the ID allocation size, so one
+     * full batch of inserts draws exactly one block of sequence IDs.
+     */
+    private static final int batchSize = IdGeneration.ALLOCATION_SIZE;
+
+    /**
+     * The connection pool behind the factory, or null if connections are not pooled by HikariCP.
+     */
+    private static final HikariDataSource pool = findPool();
+
+    /**
+     * The acquisition-time counters of {@link #pool}, or null if they could not be registered.
+     */
+    private static final PoolMetrics poolMetrics = registerPoolMetrics();
+
+    /**
+     * Returns the {@link EntityManager} for a DAO call: the one shared by the current
+     * {@link UnitOfWork}, or a new one from the shared factory outside a unit of work.
      *
-     * @return A new EntityManager instance.
+     * @return An EntityManager; callers close it as usual.
      */
     public static EntityManager getEntityManager() {
+        EntityManager shared = UnitOfWork.currentEntityManager();
+        return shared != null ? shared : emf.createEntityManager();
+    }
+
+    /**
+     * Creates a new {@link EntityManager} from the shared factory, even inside a unit of work.
+     * Used to load shared caches, which must only see committed data.
+     *
+     * @return A new EntityManager instance.
+     */
+    public static EntityManager newEntityManager() {
         return emf.createEntityManager();
     }
 
+    /**
+     * Boots the shared factory, building the schema and filling the connection pool.
+     * Any other method does the same on first use; calling this from a background thread
+     * keeps that cost off the caller that needs the database first.
+     */
+    public static void initialize() {
+        newEntityManager().close();
+    }
+
+    /**
+     * Returns the configured JDBC batch size.
+     *
+     * @return The number of statements Hibernate groups into one JDBC batch.
+     */
+    public static int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Creates the factory for the configured storage mode. In file mode the database is
+     * migrated first, so Hibernate only has to validate the schema.
+     *
+     * @return The factory.
+     * @throws IllegalArgumentException if the storage mode is unknown.
+     */
+    private static EntityManagerFactory createFactory() {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("hibernate.jdbc.batch_size", String.valueOf(IdGeneration.ALLOCATION_SIZE));
+        String mode = System.getProperty(STORAGE_PROPERTY, "memory");
+        if ("memory".equalsIgnoreCase(mode)) {
+            return Persistence.createEntityManagerFactory("LibraryPU", properties);
+        }
+        if (!"file".equalsIgnoreCase(mode)) {
+            throw new IllegalArgumentException("Unknown storage mode " + mode);
+        }
+        String url = "jdbc:h2:file:" + System.getProperty(DATABASE_PATH_PROPERTY, DEFAULT_DATABASE_PATH)
+                + FILE_SETTINGS;
+        SchemaMigrator.migrate(url, FILE_USER, FILE_PASSWORD);
+        properties.put("javax.persistence.jdbc.url", url);
+        properties.put("javax.persistence.jdbc.user", FILE_USER);
+        properties.put("javax.persistence.jdbc.password", FILE_PASSWORD);
+        properties.put("hibernate.hbm2ddl.auto", "validate");
+        return Persistence.createEntityManagerFactory("LibraryPU", properties);
+    }
+
+    /**
+     * Returns the current usage and acquisition-time counters of the connection pool.
+     * Acquisition times are only collected once the pool metrics are registered.
+     *
+     * @return A snapshot of the pool, or null if connections are not pooled.
+     */
+    public static PoolStatistics getPoolStatistics() {
+        if (pool == null) {
+            return null;
+        }
+        HikariPoolMXBean mx = pool.getHikariPoolMXBean();
+        return new PoolStatistics(pool.getMinimumIdle(), pool.getMaximumPoolSize(),
+                mx == null ? 0 : mx.getActiveConnections(),
+                mx == null ? 0 : mx.getIdleConnections(),
+                mx == null ? 0 : mx.getThreadsAwaitingConnection(),
+                poolMetrics == null ? 0 : poolMetrics.getAcquisitions(),
+                poolMetrics == null ? 0 : poolMetrics.getTotalAcquireNanos(),
+                poolMetrics == null ? 0 : poolMetrics.getMaxAcquireNanos(),
+                poolMetrics == null ? 0 : poolMetrics.getTimeouts());
+    }
+
+    /**
+     * Finds the HikariCP pool Hibernate draws its connections from.
+     *
+     * @return The pool, or null if another connection provider is configured.
+     */
+    private static HikariDataSource findPool() {
+        ConnectionProvider provider = emf.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry().getService(ConnectionProvider.class);
+        if (provider == null || !provider.isUnwrappableAs(HikariDataSource.class)) {
+            return null;
+        }
+        return provider.unwrap(HikariDataSource.class);
+    }
+
+    /**
+     * Registers the acquisition-time tracker with the running pool.
+     *
+     * @return The tracker, or null if there is no pool or it already has a tracker.
+     */
+    private static PoolMetrics registerPoolMetrics() {
+        if (pool == null) {
+            return null;
+        }
+        PoolMetrics metrics = new PoolMetrics();
+        try {
+            pool.setMetricsTrackerFactory(metrics);
+            return metrics;
+        } catch (IllegalStateException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the hit, miss and put counters of every second-level cache region.
+     * Counters are only collected when {@code hibernate.generate_statistics} is enabled.
+     *
+     * @return One snapshot per cache region.
+     */
+    public static List<CacheStatistics> getCacheStatistics() {
+        Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+        List<CacheStatistics> result = new ArrayList<>();
+        for (String region : statistics.getSecondLevelCacheRegionNames()) {
+            CacheRegionStatistics regionStatistics = statistics.getDomainDataRegionStatistics(region);
+            if (regionStatistics != null) {
+                result.add(new CacheStatistics(region,
+                        regionStatistics.getHitCount(),
+                        regionStatistics.getMissCount(),
+                        regionStatistics.getPutCount(),
+                        regionStatistics.getElementCountInMemory()));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the counters of a single second-level cache region.
+     *
+     * @param region The region name (e.g., "LibraryEntities.Book").
+     * @return The region's counters, or null if there is no such region.
+     */
+    public static CacheStatistics getCacheStatistics(String region) {
+        return getCacheStatistics().stream()
+                .filter(s -> s.getRegion().equals(region))
+                .findFirst()
+                .orElse(null);
+    }
+
+    /**
+     * Removes every entry from the second-level cache.
+     */
+    public static void evictCache() {
+        emf.getCache().evictAll();
+    }
+
     /**
      * Closes the singleton EntityManagerFactory.
      * Generally called when the application shuts down.
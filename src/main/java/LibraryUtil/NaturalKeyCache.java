@@ -0,0 +1,173 @@
+package LibraryUtil;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * A bounded cache resolving a unique natural key, such as an ISBN or an email address,
+ * to the ID of the entity holding it.
+ * <p>Keys that match no entity are cached too, so repeated lookups of an unknown key do not
+ * query the database either. Once the cache is full the least recently used key is evicted.
+ * The DAOs report every committed change through {@link #put(String, long)} and
+ * {@link #remove(long)}; both also drop the entity's previous key and any cached miss
+ * for the new one. As in {@link QueryResultCache}, a lookup that was loading while a change
+ * was reported is returned to its caller but not stored.</p>
+ */
+public class NaturalKeyCache {
+
+    /**
+     * The cached IDs by key, in access order; a null ID records a key that matches no entity.
+     */
+    private final LinkedHashMap<String, Long> ids;
+
+    /**
+     * The cached key of each ID, so a changed or removed entity's old key can be dropped.
+     */
+    private final Map<Long, String> keys = new HashMap<>();
+
+    /**
+     * The number of changes reported so far.
+     */
+    private long generation;
+
+    /**
+     * The number of lookups answered from the cache.
+     */
+    private long hits;
+
+    /**
+     * The number of lookups that had to query the database.
+     */
+    private long misses;
+
+    /**
+     * The number of keys stored in the cache.
+     */
+    private long puts;
+
+    /**
+     * The name of this cache, used in its statistics.
+     */
+    private final String name;
+
+    /**
+     * Constructs an empty cache.
+     *
+     * @param name       The name reported in {@link #getStatistics()}.
+     * @param maxEntries The maximum number of cached keys, found or not.
+     * @throws IllegalArgumentException if the maximum is not positive.
+     */
+    public NaturalKeyCache(String name, int maxEntries) {
+        if (maxEntries <= 0) throw new IllegalArgumentException("Maximum entries must be greater than 0");
+        this.name = name;
+        this.ids = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                if (size() <= maxEntries) {
+                    return false;
+                }
+                if (eldest.getValue() != null) {
+                    keys.remove(eldest.getValue());
+                }
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Returns the ID holding {@code key}, running {@code loader} if the key is not cached.
+     *
+     * @param key    The natural key.
+     * @param loader Queries the ID holding the key; returns null if there is none.
+     * @return The ID, or null if no entity holds the key.
+     */
+    public Long get(String key, Function<String, Long> loader) {
+        long before;
+        synchronized (this) {
+            if (ids.containsKey(key)) {
+                hits++;
+                return ids.get(key);
+            }
+            misses++;
+            before = generation;
+        }
+        Long id = loader.apply(key);
+        synchronized (this) {
+            if (generation == before) {
+                store(key, id);
+            }
+        }
+        return id;
+    }
+
+    /**
+     * Records that the entity with {@code id} now holds {@code key}.
+     *
+     * @param key The natural key.
+     * @param id  The entity ID.
+     */
+    public synchronized void put(String key, long id) {
+        generation++;
+        drop(id);
+        store(key, id);
+    }
+
+    /**
+     * Records that the entity with {@code id} was removed, dropping its key.
+     *
+     * @param id The entity ID.
+     */
+    public synchronized void remove(long id) {
+        generation++;
+        drop(id);
+    }
+
+    /**
+     * Drops every cached key.
+     */
+    public synchronized void invalidateAll() {
+        generation++;
+        ids.clear();
+        keys.clear();
+    }
+
+    /**
+     * Returns the hit and miss counters of this cache.
+     *
+     * @return A snapshot of the counters.
+     */
+    public synchronized CacheStatistics getStatistics() {
+        return new CacheStatistics(name, hits, misses, puts, ids.size());
+    }
+
+    /**
+     * Caches a key, replacing the entry of any other ID that held it. Must hold the lock.
+     *
+     * @param key The natural key.
+     * @param id  The ID holding it, or null if none does.
+     */
+    private void store(String key, Long id) {
+        Long previous = ids.put(key, id);
+        if (previous != null && !previous.equals(id)) {
+            keys.remove(previous);
+        }
+        if (id != null) {
+            keys.put(id, key);
+        }
+        puts++;
+    }
+
+    /**
+     * Drops the cached key of an ID. Must hold the lock.
+     *
+     * @param id The entity ID.
+     */
+    private void drop(long id) {
+        String key = keys.remove(id);
+        if (key != null) {
+            ids.remove(key);
+        }
+    }
+}
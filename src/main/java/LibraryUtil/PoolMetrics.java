@@ -0,0 +1,62 @@
+package LibraryUtil;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects connection acquisition times from the HikariCP pool.
+ * HikariCP reports every checkout to the tracker created by this factory; the counters are
+ * cheap to update and read back through {@link JPAUtil#getPoolStatistics()}.
+ */
+class PoolMetrics implements MetricsTrackerFactory {
+
+    /**
+     * The number of connections handed out.
+     */
+    private final LongAdder acquisitions = new LongAdder();
+
+    /**
+     * The total time spent waiting for connections, in nanoseconds.
+     */
+    private final LongAdder totalAcquireNanos = new LongAdder();
+
+    /**
+     * The longest wait for a connection, in nanoseconds.
+     */
+    private final LongAccumulator maxAcquireNanos = new LongAccumulator(Math::max, 0);
+
+    /**
+     * The number of requests that gave up waiting for a connection.
+     */
+    private final AtomicLong timeouts = new AtomicLong();
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        return new IMetricsTracker() {
+            @Override
+            public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+                acquisitions.increment();
+                totalAcquireNanos.add(elapsedAcquiredNanos);
+                maxAcquireNanos.accumulate(elapsedAcquiredNanos);
+            }
+
+            @Override
+            public void recordConnectionTimeout() {
+                timeouts.incrementAndGet();
+            }
+        };
+    }
+
+    long getAcquisitions() { return acquisitions.sum(); }
+
+    long getTotalAcquireNanos() { return totalAcquireNanos.sum(); }
+
+    long getMaxAcquireNanos() { return maxAcquireNanos.get(); }
+
+    long getTimeouts() { return timeouts.get(); }
+}
@@ -0,0 +1,119 @@
+package LibraryUtil;
+
+/**
+ * An immutable snapshot of the state and counters of the JDBC connection pool.
+ */
+public final class PoolStatistics {
+
+    /**
+     * The configured minimum number of idle connections.
+     */
+    private final int minIdle;
+
+    /**
+     * The configured maximum number of connections.
+     */
+    private final int maxSize;
+
+    /**
+     * The number of connections currently in use.
+     */
+    private final int active;
+
+    /**
+     * The number of open connections waiting to be used.
+     */
+    private final int idle;
+
+    /**
+     * The number of threads waiting for a connection.
+     */
+    private final int waiting;
+
+    /**
+     * The number of connections handed out so far.
+     */
+    private final long acquisitions;
+
+    /**
+     * The total time spent waiting for connections, in nanoseconds.
+     */
+    private final long totalAcquireNanos;
+
+    /**
+     * The longest single wait for a connection, in nanoseconds.
+     */
+    private final long maxAcquireNanos;
+
+    /**
+     * The number of requests that gave up waiting for a connection.
+     */
+    private final long timeouts;
+
+    /**
+     * Constructs a snapshot of the pool.
+     *
+     * @param minIdle           The configured minimum number of idle connections.
+     * @param maxSize           The configured maximum number of connections.
+     * @param active            The number of connections in use.
+     * @param idle              The number of idle connections.
+     * @param waiting           The number of threads waiting for a connection.
+     * @param acquisitions      The number of connections handed out.
+     * @param totalAcquireNanos The total time spent waiting for connections, in nanoseconds.
+     * @param maxAcquireNanos   The longest wait for a connection, in nanoseconds.
+     * @param timeouts          The number of timed-out requests.
+     */
+    public PoolStatistics(int minIdle, int maxSize, int active, int idle, int waiting,
+                          long acquisitions, long totalAcquireNanos, long maxAcquireNanos, long timeouts) {
+        this.minIdle = minIdle;
+        this.maxSize = maxSize;
+        this.active = active;
+        this.idle = idle;
+        this.waiting = waiting;
+        this.acquisitions = acquisitions;
+        this.totalAcquireNanos = totalAcquireNanos;
+        this.maxAcquireNanos = maxAcquireNanos;
+        this.timeouts = timeouts;
+    }
+
+    public int getMinIdle() { return minIdle; }
+
+    public int getMaxSize() { return maxSize; }
+
+    public int getActive() { return active; }
+
+    public int getIdle() { return idle; }
+
+    public int getWaiting() { return waiting; }
+
+    public long getAcquisitions() { return acquisitions; }
+
+    public long getTimeouts() { return timeouts; }
+
+    /**
+     * Calculates the average time spent waiting for a connection.
+     *
+     * @return The average wait in milliseconds, or 0 if no connection was acquired yet.
+     */
+    public double getAverageAcquireMillis() {
+        return acquisitions == 0 ? 0 : totalAcquireNanos / 1_000_000.0 / acquisitions;
+    }
+
+    /**
+     * Returns the longest time spent waiting for a connection.
+     *
+     * @return The longest wait in milliseconds.
+     */
+    public double getMaxAcquireMillis() {
+        return maxAcquireNanos / 1_000_000.0;
+    }
+
+    @Override
+    public String toString() {
+        return "pool [active=" + active + ", idle=" + idle + ", waiting=" + waiting
+                + ", size=" + minIdle + ".." + maxSize + ", acquisitions=" + acquisitions
+                + ", avgAcquireMs=" + String.format("%.3f", getAverageAcquireMillis())
+                + ", maxAcquireMs=" + String.format("%.3f", getMaxAcquireMillis())
+                + ", timeouts=" + timeouts + "]";
+    }
+}
@@ -0,0 +1,318 @@
+package LibraryUtil;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A prefix-completion index over short text values, such as titles, names and emails.
+ * <p>Every value is folded like {@link SearchIndex#fold(String)} and stored in one sorted
+ * array, next to parallel arrays holding the ID of its entry. The values starting with a
+ * prefix form one contiguous range of the array, found by binary search, so a completion
+ * costs {@code log(values) + limit} comparisons and allocates only its result. Adding or
+ * removing a single entry shifts the arrays; a whole index is loaded with one sort through
+ * {@link #replaceAll(Collection)}.</p>
+ * <p>The index is safe for concurrent use: completions share a read lock and changes take the write lock.</p>
+ */
+public class PrefixIndex {
+
+    /**
+     * An entry to complete: an ID, the label shown for it and the values matched against prefixes.
+     */
+    public static final class Entry {
+        private final long id;
+        private final String label;
+        private final String[] values;
+
+        /**
+         * Constructs an entry.
+         *
+         * @param id     The ID returned when the entry is chosen.
+         * @param label  The text shown for the entry.
+         * @param values The values matched against prefixes; null values are skipped.
+         */
+        public Entry(long id, String label, String... values) {
+            this.id = id;
+            this.label = label;
+            this.values = values;
+        }
+    }
+
+    /**
+     * A completion: the ID and label of a matching entry.
+     */
+    public static final class Completion {
+        private final long id;
+        private final String label;
+
+        private Completion(long id, String label) {
+            this.id = id;
+            this.label = label;
+        }
+
+        public long getId() { return id; }
+
+        public String getLabel() { return label; }
+
+        /**
+         * Returns the label, so completions can be shown directly in Swing lists.
+         *
+         * @return The label.
+         */
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    /**
+     * The folded values, sorted.
+     */
+    private String[] keys = new String[0];
+
+    /**
+     * The entry ID of each key.
+     */
+    private long[] ids = new long[0];
+
+    /**
+     * The number of keys in use.
+     */
+    private int size;
+
+    /**
+     * The label and folded values of every entry, by ID.
+     */
+    private final Map<Long, Entry> entries = new HashMap<>();
+
+    /**
+     * Guards the arrays and {@link #entries}.
+     */
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Adds an entry, replacing any earlier entry with the same ID.
+     *
+     * @param entry The entry.
+     */
+    public void put(Entry entry) {
+        Entry folded = fold(entry);
+        lock.writeLock().lock();
+        try {
+            removeLocked(folded.id);
+            entries.put(folded.id, folded);
+            for (String key : folded.values) {
+                int at = find(key, folded.id);
+                at = -at - 1;
+                if (size == keys.length) {
+                    int capacity = Math.max(16, size * 2);
+                    keys = Arrays.copyOf(keys, capacity);
+                    ids = Arrays.copyOf(ids, capacity);
+                }
+                System.arraycopy(keys, at, keys, at + 1, size - at);
+                System.arraycopy(ids, at, ids, at + 1, size - at);
+                keys[at] = key;
+                ids[at] = folded.id;
+                size++;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes an entry.
+     *
+     * @param id The entry ID.
+     * @return True if the entry was present.
+     */
+    public boolean remove(long id) {
+        lock.writeLock().lock();
+        try {
+            return removeLocked(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replaces the contents of the index, sorting all values at once.
+     *
+     * @param all The new entries.
+     */
+    public void replaceAll(Collection<Entry> all) {
+        Map<Long, Entry> folded = new HashMap<>(all.size() * 2);
+        for (Entry entry : all) {
+            folded.put(entry.id, fold(entry));
+        }
+        int count = folded.values().stream().mapToInt(entry -> entry.values.length).sum();
+        Integer[] order = new Integer[count];
+        String[] newKeys = new String[count];
+        long[] newIds = new long[count];
+        int i = 0;
+        for (Entry entry : folded.values()) {
+            for (String key : entry.values) {
+                newKeys[i] = key;
+                newIds[i] = entry.id;
+                order[i] = i;
+                i++;
+            }
+        }
+        Arrays.sort(order, (a, b) -> compare(newKeys[a], newIds[a], newKeys[b], newIds[b]));
+        String[] sortedKeys = new String[count];
+        long[] sortedIds = new long[count];
+        for (i = 0; i < count; i++) {
+            sortedKeys[i] = newKeys[order[i]];
+            sortedIds[i] = newIds[order[i]];
+        }
+
+        lock.writeLock().lock();
+        try {
+            keys = sortedKeys;
+            ids = sortedIds;
+            size = count;
+            entries.clear();
+            entries.putAll(folded);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of entries.
+     *
+     * @return The entry count.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Completes a prefix, in alphabetical order of the matching values.
+     * An entry matching with several values is returned once.
+     *
+     * @param prefix The typed text; folded like the values.
+     * @param limit  The maximum number of completions.
+     * @return Up to {@code limit} completions; empty if the prefix is blank.
+     * @throws IllegalArgumentException if the prefix is null or the limit is not positive.
+     */
+    public List<Completion> complete(String prefix, int limit) {
+        if (prefix == null) throw new IllegalArgumentException("Prefix cannot be null");
+        if (limit <= 0) throw new IllegalArgumentException("Limit must be greater than 0");
+        String folded = SearchIndex.fold(prefix).trim();
+        if (folded.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        lock.readLock().lock();
+        try {
+            List<Completion> completions = new ArrayList<>(Math.min(limit, 16));
+            Set<Long> seen = new HashSet<>();
+            int at = find(folded, Long.MIN_VALUE);
+            for (int i = at >= 0 ? at : -at - 1; i < size && completions.size() < limit; i++) {
+                if (!keys[i].startsWith(folded)) {
+                    break;
+                }
+                if (seen.add(ids[i])) {
+                    completions.add(new Completion(ids[i], entries.get(ids[i]).label));
+                }
+            }
+            return completions;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Removes an entry while the write lock is held.
+     *
+     * @param id The entry ID.
+     * @return True if the entry was present.
+     */
+    private boolean removeLocked(long id) {
+        Entry entry = entries.remove(id);
+        if (entry == null) {
+            return false;
+        }
+        for (String key : entry.values) {
+            int at = find(key, id);
+            if (at >= 0) {
+                System.arraycopy(keys, at + 1, keys, at, size - at - 1);
+                System.arraycopy(ids, at + 1, ids, at, size - at - 1);
+                size--;
+                keys[size] = null;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Binary-searches the sorted arrays for a key and ID.
+     *
+     * @param key The folded key.
+     * @param id  The ID; ties between equal keys are ordered by ID.
+     * @return The position if found, or {@code -(insertion point) - 1}.
+     */
+    private int find(String key, long id) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compare(keys[mid], ids[mid], key, id);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    /**
+     * Orders keys alphabetically, then by ID.
+     *
+     * @param keyA The first key.
+     * @param idA  The first ID.
+     * @param keyB The second key.
+     * @param idB  The second ID.
+     * @return A negative number, zero or a positive number as the first pair sorts before, with or after the second.
+     */
+    private static int compare(String keyA, long idA, String keyB, long idB) {
+        int cmp = keyA.compareTo(keyB);
+        return cmp != 0 ? cmp : Long.compare(idA, idB);
+    }
+
+    /**
+     * Folds the values of an entry, dropping null, blank and repeated values.
+     *
+     * @param entry The entry.
+     * @return An entry with the same ID and label and the distinct folded values.
+     */
+    private static Entry fold(Entry entry) {
+        Set<String> values = new HashSet<>();
+        for (String value : entry.values) {
+            if (value != null) {
+                String folded = SearchIndex.fold(value).trim();
+                if (!folded.isEmpty()) {
+                    values.add(folded);
+                }
+            }
+        }
+        return new Entry(entry.id, entry.label, values.toArray(new String[0]));
+    }
+}
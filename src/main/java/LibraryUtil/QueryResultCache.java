@@ -0,0 +1,118 @@
+package LibraryUtil;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * A small cache for the results of frequently repeated queries, such as the catalog
+ * listings every patron session loads.
+ * <p>Results are stored until the DAOs report a write that changes them and call
+ * {@link #invalidate(String)}. Each key carries a generation counter: a result that was
+ * being loaded while its key was invalidated is returned to its caller but not stored,
+ * so a slow load can never put stale data back into the cache.</p>
+ *
+ * @param <V> The type of the cached results. Values should be immutable.
+ */
+public class QueryResultCache<V> {
+
+    /**
+     * The cached results, by query key.
+     */
+    private final Map<String, V> results = new ConcurrentHashMap<>();
+
+    /**
+     * The invalidation count of each query key.
+     */
+    private final Map<String, AtomicLong> generations = new ConcurrentHashMap<>();
+
+    /**
+     * The number of lookups answered from the cache.
+     */
+    private final AtomicLong hits = new AtomicLong();
+
+    /**
+     * The number of lookups that had to run the query.
+     */
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * The number of results stored in the cache.
+     */
+    private final AtomicLong puts = new AtomicLong();
+
+    /**
+     * The name of this cache, used in its statistics.
+     */
+    private final String name;
+
+    /**
+     * Constructs an empty cache.
+     *
+     * @param name The name reported in {@link #getStatistics()}.
+     */
+    public QueryResultCache(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Returns the cached result for {@code key}, running {@code loader} if there is none.
+     *
+     * @param key    The query key.
+     * @param loader Runs the query.
+     * @return The cached or freshly loaded result.
+     */
+    public V get(String key, Supplier<V> loader) {
+        V cached = results.get(key);
+        if (cached != null) {
+            hits.incrementAndGet();
+            return cached;
+        }
+        misses.incrementAndGet();
+        AtomicLong generation = generations.computeIfAbsent(key, k -> new AtomicLong());
+        long before = generation.get();
+        V loaded = loader.get();
+        if (loaded != null) {
+            // Only store the result if no write invalidated the key while it was loading
+            synchronized (generation) {
+                if (generation.get() == before) {
+                    results.put(key, loaded);
+                    puts.incrementAndGet();
+                }
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Drops the cached result for {@code key}, so the next lookup runs the query again.
+     *
+     * @param key The query key.
+     */
+    public void invalidate(String key) {
+        AtomicLong generation = generations.computeIfAbsent(key, k -> new AtomicLong());
+        synchronized (generation) {
+            generation.incrementAndGet();
+            results.remove(key);
+        }
+    }
+
+    /**
+     * Drops every cached result.
+     */
+    public void invalidateAll() {
+        for (String key : generations.keySet()) {
+            invalidate(key);
+        }
+    }
+
+    /**
+     * Returns the hit and miss counters of this cache.
+     *
+     * @return A snapshot of the counters.
+     */
+    public CacheStatistics getStatistics() {
+        return new CacheStatistics(name, hits.get(), misses.get(), puts.get(), results.size());
+    }
+}
@@ -0,0 +1,217 @@
+package LibraryUtil;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Decides how a table kept up to date from the database is refreshed: by a full load, or
+ * by re-reading single changed rows. It only does the bookkeeping; the caller runs the
+ * queries and shows their results.
+ * <p>A load requested while another one is running is merged into a single load started
+ * once the running one completes, whose rows are then dropped as outdated; a burst of
+ * requests therefore costs at most two queries. Repeated changes of a row whose query is
+ * still running are merged into one more query, and changes arriving during a full load
+ * are re-read after it, as the load may have read the row before it changed. Once too many
+ * rows are being re-read at once, the table is loaded in full instead.</p>
+ * <p>A tracker is not thread-safe; all calls must come from one thread, e.g. the Swing
+ * event dispatch thread.</p>
+ */
+public class RefreshTracker {
+
+    /**
+     * What to do about a changed row.
+     */
+    public enum Refresh {
+        /** Re-read the row now, then report it with {@link #patchCompleted(Long)}. */
+        PATCH,
+        /** Nothing now; the row is re-read once the running query completes. */
+        DEFER,
+        /** Load the whole table, as too many rows are being re-read. */
+        LOAD,
+        /** Nothing; the table was never loaded, and its first load reads every row. */
+        IGNORE
+    }
+
+    /**
+     * The number of rows re-read at once above which the table is loaded in full instead.
+     */
+    private final int maxPatches;
+
+    /**
+     * The number of the latest full load, or 0 before the first one.
+     */
+    private int latestLoad;
+
+    /**
+     * True while the latest full load is running.
+     */
+    private boolean loading;
+
+    /**
+     * True if a load was requested while one was running.
+     */
+    private boolean loadPending;
+
+    /**
+     * The IDs of the rows being re-read.
+     */
+    private final Set<Long> patching = new HashSet<>();
+
+    /**
+     * The IDs of rows that changed again while being re-read, or during a full load.
+     */
+    private final Set<Long> stale = new HashSet<>();
+
+    /**
+     * Constructs a tracker for a table that was never loaded.
+     *
+     * @param maxPatches The number of rows re-read at once above which the table is loaded in full.
+     * @throws IllegalArgumentException if the number is not positive.
+     */
+    public RefreshTracker(int maxPatches) {
+        if (maxPatches <= 0) throw new IllegalArgumentException("Maximum patches must be greater than 0");
+        this.maxPatches = maxPatches;
+    }
+
+    /**
+     * Requests a full load.
+     *
+     * @return The number of the load to start now, or 0 if it is merged into the running load.
+     */
+    public int requestLoad() {
+        if (loading) {
+            loadPending = true;
+            return 0;
+        }
+        return startLoad();
+    }
+
+    /**
+     * Reports that a load completed.
+     *
+     * @param load The number of the load.
+     * @return True if its rows should be shown; false if they are outdated.
+     */
+    public boolean loadCompleted(int load) {
+        if (load != latestLoad) {
+            return false;
+        }
+        loading = false;
+        return !loadPending;
+    }
+
+    /**
+     * Reports that a load failed.
+     *
+     * @param load The number of the load.
+     */
+    public void loadFailed(int load) {
+        if (load == latestLoad) {
+            loading = false;
+        }
+    }
+
+    /**
+     * Starts the load merged from the requests made while the previous one was running.
+     * Call after every completed or failed load.
+     *
+     * @return The number of the load to start now, or 0 if none is pending.
+     */
+    public int nextLoad() {
+        if (loading || !loadPending) {
+            return 0;
+        }
+        return startLoad();
+    }
+
+    /**
+     * Reports that a row changed.
+     *
+     * @param id The ID of the row.
+     * @return What to do about it.
+     */
+    public Refresh rowChanged(Long id) {
+        if (latestLoad == 0) {
+            return Refresh.IGNORE;
+        }
+        if (loading || patching.contains(id)) {
+            stale.add(id);
+            return Refresh.DEFER;
+        }
+        if (patching.size() >= maxPatches) {
+            return Refresh.LOAD;
+        }
+        patching.add(id);
+        return Refresh.PATCH;
+    }
+
+    /**
+     * Reports that a row was re-read.
+     *
+     * @param id The ID of the row.
+     * @return True if the row should be shown; false if a full load started meanwhile,
+     * in which case the row is re-read after it.
+     */
+    public boolean patchCompleted(Long id) {
+        patching.remove(id);
+        if (loading) {
+            stale.add(id);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Reports that re-reading a row failed.
+     *
+     * @param id The ID of the row.
+     */
+    public void patchFailed(Long id) {
+        patching.remove(id);
+    }
+
+    /**
+     * Tells whether a shown row changed again while it was re-read, and forgets it.
+     *
+     * @param id The ID of the row.
+     * @return True if the row must be re-read once more.
+     */
+    public boolean takeStale(Long id) {
+        return stale.remove(id);
+    }
+
+    /**
+     * Returns the rows to re-read after a shown full load, and forgets them.
+     * Rows still being re-read stay stale, and are re-read once their query completes.
+     *
+     * @return The IDs of the rows to re-read, or null if the table should be loaded again instead.
+     */
+    public List<Long> takeStaleAfterLoad() {
+        if (stale.size() > maxPatches) {
+            return null;
+        }
+        List<Long> ids = new ArrayList<>();
+        for (Long id : stale) {
+            if (!patching.contains(id)) {
+                ids.add(id);
+            }
+        }
+        ids.forEach(stale::remove);
+        return ids;
+    }
+
+    /**
+     * Starts a load.
+     *
+     * @return Its number.
+     */
+    private int startLoad() {
+        loading = true;
+        loadPending = false;
+        // Rows that changed before this load are read by it
+        stale.clear();
+        return ++latestLoad;
+    }
+}
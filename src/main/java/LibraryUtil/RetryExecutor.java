@@ -0,0 +1,158 @@
+package LibraryUtil;
+
+import javax.persistence.LockTimeoutException;
+import javax.persistence.OptimisticLockException;
+import javax.persistence.PessimisticLockException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Runs a write operation again when it loses a concurrency conflict.
+ * <p>An operation fails with a conflict when a versioned row changed since it was read
+ * ({@link OptimisticLockException}) or a row lock could not be obtained in time. Such an
+ * operation is retried up to {@link #getMaxAttempts()} times, sleeping for an exponentially
+ * growing, randomly jittered delay between attempts so colliding writers spread out.
+ * Every attempt must re-read the state it changes, typically by opening a new
+ * EntityManager; all other exceptions are rethrown immediately.</p>
+ */
+public class RetryExecutor {
+
+    /**
+     * The executor used by the DAO write paths: 5 attempts, 10 ms initial delay, 200 ms cap.
+     */
+    public static final RetryExecutor DEFAULT = new RetryExecutor(5, 10, 200);
+
+    /**
+     * The maximum number of attempts, including the first.
+     */
+    private final int maxAttempts;
+
+    /**
+     * The delay before the first retry, in milliseconds.
+     */
+    private final long initialBackoffMillis;
+
+    /**
+     * The upper bound of any delay, in milliseconds.
+     */
+    private final long maxBackoffMillis;
+
+    /**
+     * The number of retries performed so far.
+     */
+    private final AtomicLong retries = new AtomicLong();
+
+    /**
+     * The number of operations that failed after using up all attempts.
+     */
+    private final AtomicLong failures = new AtomicLong();
+
+    /**
+     * Constructs a retry executor.
+     *
+     * @param maxAttempts          The maximum number of attempts, including the first.
+     * @param initialBackoffMillis The delay before the first retry, in milliseconds.
+     * @param maxBackoffMillis     The upper bound of any delay, in milliseconds.
+     * @throws IllegalArgumentException if the attempts are not positive or the delays are negative.
+     */
+    public RetryExecutor(int maxAttempts, long initialBackoffMillis, long maxBackoffMillis) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("Attempts must be at least 1");
+        }
+        if (initialBackoffMillis < 0 || maxBackoffMillis < initialBackoffMillis) {
+            throw new IllegalArgumentException("Invalid backoff range");
+        }
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMillis = initialBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+    }
+
+    /**
+     * Runs {@code operation}, retrying it on concurrency conflicts.
+     * Inside a {@link UnitOfWork} the operation runs once, as the shared transaction
+     * cannot continue after a conflict; the caller retries the whole unit instead.
+     *
+     * @param operation The operation; each call must start a fresh transaction.
+     * @param <T>       The result type.
+     * @return The result of the first successful attempt.
+     * @throws RuntimeException the conflict of the last attempt, or any other exception immediately.
+     */
+    public <T> T execute(Supplier<T> operation) {
+        if (UnitOfWork.isActive()) {
+            return operation.get();
+        }
+        long backoff = initialBackoffMillis;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return operation.get();
+            } catch (RuntimeException e) {
+                if (!isConflict(e)) {
+                    throw e;
+                }
+                if (attempt >= maxAttempts) {
+                    failures.incrementAndGet();
+                    throw e;
+                }
+                retries.incrementAndGet();
+                sleep(backoff, e);
+                backoff = Math.min(backoff * 2, maxBackoffMillis);
+            }
+        }
+    }
+
+    /**
+     * Runs {@code operation}, retrying it on concurrency conflicts.
+     *
+     * @param operation The operation; each call must start a fresh transaction.
+     * @throws RuntimeException the conflict of the last attempt, or any other exception immediately.
+     */
+    public void run(Runnable operation) {
+        execute(() -> {
+            operation.run();
+            return null;
+        });
+    }
+
+    /**
+     * Checks whether an exception, or any of its causes, is a concurrency conflict.
+     * Commit failures wrap the conflict in a {@code RollbackException}, hence the cause walk.
+     *
+     * @param e The exception to inspect.
+     * @return True if the operation failed because of a concurrent write or lock.
+     */
+    public static boolean isConflict(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause() == t ? null : t.getCause()) {
+            if (t instanceof OptimisticLockException
+                    || t instanceof PessimisticLockException
+                    || t instanceof LockTimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int getMaxAttempts() { return maxAttempts; }
+
+    public long getRetries() { return retries.get(); }
+
+    public long getFailures() { return failures.get(); }
+
+    /**
+     * Sleeps for a random delay between half and all of {@code backoff}.
+     *
+     * @param backoff  The current backoff, in milliseconds.
+     * @param conflict The conflict being retried, rethrown if the thread is interrupted.
+     */
+    private static void sleep(long backoff, RuntimeException conflict) {
+        if (backoff <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1));
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw conflict;
+        }
+    }
+}
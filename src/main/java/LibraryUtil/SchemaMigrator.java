@@ -0,0 +1,196 @@
+package LibraryUtil;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Applies the versioned SQL migrations in {@code db/migration} to a database.
+ * <p>Each migration is a classpath script named {@code V<version>__<description>.sql},
+ * listed in {@link #MIGRATIONS} in version order. The versions already applied are
+ * recorded in the {@code schema_version} table, so a migration runs exactly once per
+ * database and an up-to-date database is checked with a single query. Each migration is
+ * committed together with its {@code schema_version} row; as H2 commits DDL statements
+ * immediately, a migration that fails halfway must be fixed by hand.</p>
+ */
+public final class SchemaMigrator {
+
+    /**
+     * The classpath folder holding the migration scripts.
+     */
+    private static final String LOCATION = "db/migration/";
+
+    /**
+     * The migration scripts, in version order. New migrations are appended here.
+     */
+    private static final String[] MIGRATIONS = {
+            "V1__baseline.sql",
+            "V2__secondary_indexes.sql"
+    };
+
+    private SchemaMigrator() {}
+
+    /**
+     * Brings the database at {@code url} up to the latest migration.
+     *
+     * @param url      The JDBC URL.
+     * @param user     The database user.
+     * @param password The database password.
+     * @return The number of migrations applied.
+     * @throws IllegalStateException if the database cannot be reached or a migration fails.
+     */
+    public static int migrate(String url, String user, String password) {
+        try (Connection connection = DriverManager.getConnection(url, user, password)) {
+            return migrate(connection);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not migrate " + url + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Applies the pending migrations over an open connection.
+     *
+     * @param connection The connection; its auto-commit mode is restored afterwards.
+     * @return The number of migrations applied.
+     * @throws SQLException          if a statement fails; the failing migration is rolled back.
+     * @throws IllegalStateException if a migration script is missing or misnamed.
+     */
+    public static int migrate(Connection connection) throws SQLException {
+        boolean autoCommit = connection.getAutoCommit();
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS schema_version ("
+                    + "version INTEGER NOT NULL PRIMARY KEY, "
+                    + "description VARCHAR(255) NOT NULL, "
+                    + "installed_on TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL)");
+            int current;
+            try (ResultSet rs = statement.executeQuery("SELECT COALESCE(MAX(version), 0) FROM schema_version")) {
+                rs.next();
+                current = rs.getInt(1);
+            }
+
+            int applied = 0;
+            connection.setAutoCommit(false);
+            for (String script : MIGRATIONS) {
+                int version = versionOf(script);
+                if (version <= current) {
+                    continue;
+                }
+                try {
+                    for (String sql : statements(read(script))) {
+                        statement.execute(sql);
+                    }
+                    try (PreparedStatement record = connection.prepareStatement(
+                            "INSERT INTO schema_version (version, description) VALUES (?, ?)")) {
+                        record.setInt(1, version);
+                        record.setString(2, descriptionOf(script));
+                        record.executeUpdate();
+                    }
+                    connection.commit();
+                } catch (SQLException | RuntimeException e) {
+                    connection.rollback();
+                    throw e;
+                }
+                applied++;
+            }
+            return applied;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    /**
+     * Returns the latest migration version.
+     *
+     * @return The version the database has after {@link #migrate(Connection)}.
+     */
+    public static int latestVersion() {
+        return versionOf(MIGRATIONS[MIGRATIONS.length - 1]);
+    }
+
+    /**
+     * Parses the version of a migration script.
+     *
+     * @param script The script name.
+     * @return The version number.
+     * @throws IllegalStateException if the name does not follow {@code V<version>__<description>.sql}.
+     */
+    private static int versionOf(String script) {
+        int separator = script.indexOf("__");
+        if (!script.startsWith("V") || separator < 2) {
+            throw new IllegalStateException("Invalid migration name " + script);
+        }
+        try {
+            return Integer.parseInt(script.substring(1, separator));
+        } catch (NumberFormatException e) {
+            throw new IllegalStateException("Invalid migration name " + script, e);
+        }
+    }
+
+    /**
+     * Derives a readable description from a migration script name.
+     *
+     * @param script The script name.
+     * @return The description, with underscores replaced by spaces.
+     */
+    private static String descriptionOf(String script) {
+        String description = script.substring(script.indexOf("__") + 2);
+        if (description.endsWith(".sql")) {
+            description = description.substring(0, description.length() - 4);
+        }
+        return description.replace('_', ' ');
+    }
+
+    /**
+     * Reads a migration script from the classpath.
+     *
+     * @param script The script name.
+     * @return The script's text.
+     * @throws IllegalStateException if the script cannot be read.
+     */
+    private static String read(String script) {
+        try (InputStream in = SchemaMigrator.class.getClassLoader().getResourceAsStream(LOCATION + script)) {
+            if (in == null) {
+                throw new IllegalStateException("Migration " + script + " not found");
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not read migration " + script, e);
+        }
+    }
+
+    /**
+     * Splits a script into statements. Statements end with a semicolon; lines starting
+     * with {@code --} are comments. Semicolons inside string literals are not supported.
+     *
+     * @param script The script's text.
+     * @return The statements, without their terminating semicolons.
+     */
+    private static List<String> statements(String script) {
+        List<String> statements = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        for (String line : script.split("\r?\n")) {
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("--")) {
+                continue;
+            }
+            current.append(line).append('\n');
+            if (trimmed.endsWith(";")) {
+                String sql = current.toString().trim();
+                statements.add(sql.substring(0, sql.length() - 1));
+                current.setLength(0);
+            }
+        }
+        if (current.toString().trim().length() > 0) {
+            statements.add(current.toString().trim());
+        }
+        return statements;
+    }
+}
@@ -0,0 +1,358 @@
+package LibraryUtil;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * An in-memory inverted index for ranked full-text search over documents with a few text fields.
+ * <p>Text is split into tokens at every character that is not a letter or digit, lower-cased
+ * and stripped of accents, so {@code "Café"} matches {@code "cafe"}. Hyphenated words are also
+ * indexed joined ({@code "978-0-14"} gives {@code 978}, {@code 0}, {@code 14} and {@code 978014}),
+ * so ISBNs match with or without hyphens.</p>
+ * <p>Each token maps to a posting list of document IDs sorted in ascending order, together with
+ * the summed weight of the fields the token occurs in. A query matches the documents containing
+ * all of its tokens. The rarest token's postings are walked and the others are probed by binary
+ * search, so a query costs about {@code rarest × log(others)} steps whatever the catalog size.
+ * Matches are ranked by the sum of {@code weight × idf} over the query tokens, where
+ * {@code idf = ln(1 + documents / postings)} favours rare tokens.</p>
+ * <p>The index is safe for concurrent use: queries share a read lock and changes take the write lock.</p>
+ */
+public class SearchIndex {
+
+    /**
+     * The documents containing a token, sorted by ID, and the token's weight in each.
+     */
+    private static final class Postings {
+        private final String token;
+        private long[] ids = new long[2];
+        private int[] weights = new int[2];
+        private int size;
+
+        private Postings(String token) {
+            this.token = token;
+        }
+
+        /**
+         * Adds a document, or replaces its weight if it is already present.
+         *
+         * @param id     The document ID.
+         * @param weight The token's weight in the document.
+         */
+        private void put(long id, int weight) {
+            int at = size > 0 && ids[size - 1] < id ? -size - 1 : Arrays.binarySearch(ids, 0, size, id);
+            if (at >= 0) {
+                weights[at] = weight;
+                return;
+            }
+            at = -at - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+            System.arraycopy(ids, at, ids, at + 1, size - at);
+            System.arraycopy(weights, at, weights, at + 1, size - at);
+            ids[at] = id;
+            weights[at] = weight;
+            size++;
+        }
+
+        /**
+         * Removes a document.
+         *
+         * @param id The document ID.
+         */
+        private void remove(long id) {
+            int at = Arrays.binarySearch(ids, 0, size, id);
+            if (at >= 0) {
+                System.arraycopy(ids, at + 1, ids, at, size - at - 1);
+                System.arraycopy(weights, at + 1, weights, at, size - at - 1);
+                size--;
+            }
+        }
+
+        /**
+         * Returns a document's weight.
+         *
+         * @param id The document ID.
+         * @return The weight, or 0 if the document does not contain the token.
+         */
+        private int weightOf(long id) {
+            int at = Arrays.binarySearch(ids, 0, size, id);
+            return at >= 0 ? weights[at] : 0;
+        }
+    }
+
+    /**
+     * A matching document and its score.
+     */
+    private static final class Match {
+        private final long id;
+        private final double score;
+
+        private Match(long id, double score) {
+            this.id = id;
+            this.score = score;
+        }
+    }
+
+    /**
+     * The weight of each field, by position.
+     */
+    private final int[] fieldWeights;
+
+    /**
+     * The posting list of every token.
+     */
+    private final Map<String, Postings> terms = new HashMap<>();
+
+    /**
+     * The tokens of every document, so a document can be removed without its old field values.
+     */
+    private final Map<Long, String[]> documents = new HashMap<>();
+
+    /**
+     * Guards {@link #terms} and {@link #documents}.
+     */
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Constructs an empty index.
+     *
+     * @param fieldWeights The weight of each field, in the order fields are passed to {@link #put}.
+     * @throws IllegalArgumentException if no weights are given or any weight is not positive.
+     */
+    public SearchIndex(int... fieldWeights) {
+        if (fieldWeights.length == 0 || Arrays.stream(fieldWeights).anyMatch(w -> w <= 0)) {
+            throw new IllegalArgumentException("Field weights must be positive");
+        }
+        this.fieldWeights = fieldWeights.clone();
+    }
+
+    /**
+     * Indexes a document, replacing any earlier version of it.
+     *
+     * @param id     The document ID.
+     * @param fields The field values, in the order of the field weights; null values are skipped.
+     * @throws IllegalArgumentException if more fields than weights are given.
+     */
+    public void put(long id, String... fields) {
+        if (fields.length > fieldWeights.length) {
+            throw new IllegalArgumentException("Expected at most " + fieldWeights.length + " fields");
+        }
+        Map<String, Integer> weights = new HashMap<>();
+        for (int i = 0; i < fields.length; i++) {
+            if (fields[i] != null) {
+                for (String token : tokenize(fields[i])) {
+                    weights.merge(token, fieldWeights[i], Integer::sum);
+                }
+            }
+        }
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+            String[] tokens = new String[weights.size()];
+            int i = 0;
+            for (Map.Entry<String, Integer> entry : weights.entrySet()) {
+                Postings postings = terms.get(entry.getKey());
+                if (postings == null) {
+                    postings = new Postings(entry.getKey());
+                    terms.put(entry.getKey(), postings);
+                }
+                postings.put(id, entry.getValue());
+                // Share the token instance of the posting list rather than keeping a copy per document
+                tokens[i++] = postings.token;
+            }
+            documents.put(id, tokens);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a document.
+     *
+     * @param id The document ID.
+     * @return True if the document was indexed.
+     */
+    public boolean remove(long id) {
+        lock.writeLock().lock();
+        try {
+            return removeLocked(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes every document.
+     */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            terms.clear();
+            documents.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of indexed documents.
+     *
+     * @return The document count.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the documents containing every token of a query, best matches first.
+     *
+     * @param query The search text.
+     * @param limit The maximum number of results.
+     * @return The IDs of up to {@code limit} matching documents; empty if the query has no tokens.
+     * @throws IllegalArgumentException if the query is null or the limit is not positive.
+     */
+    public List<Long> search(String query, int limit) {
+        if (query == null) throw new IllegalArgumentException("Query cannot be null");
+        if (limit <= 0) throw new IllegalArgumentException("Limit must be greater than 0");
+        List<String> tokens = tokenize(query);
+        if (tokens.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        lock.readLock().lock();
+        try {
+            Postings[] lists = new Postings[tokens.size()];
+            double[] idf = new double[tokens.size()];
+            for (int i = 0; i < lists.length; i++) {
+                lists[i] = terms.get(tokens.get(i));
+                if (lists[i] == null || lists[i].size == 0) {
+                    return Collections.emptyList();
+                }
+            }
+            // Walk the rarest token, probe the others
+            Arrays.sort(lists, (a, b) -> Integer.compare(a.size, b.size));
+            for (int i = 0; i < lists.length; i++) {
+                idf[i] = Math.log(1.0 + (double) documents.size() / lists[i].size);
+            }
+
+            PriorityQueue<Match> best = new PriorityQueue<>(limit + 1, (a, b) -> a.score != b.score
+                    ? Double.compare(a.score, b.score)
+                    : Long.compare(b.id, a.id));
+            Postings rarest = lists[0];
+            candidates:
+            for (int d = 0; d < rarest.size; d++) {
+                long id = rarest.ids[d];
+                double score = rarest.weights[d] * idf[0];
+                for (int i = 1; i < lists.length; i++) {
+                    int weight = lists[i].weightOf(id);
+                    if (weight == 0) {
+                        continue candidates;
+                    }
+                    score += weight * idf[i];
+                }
+                best.add(new Match(id, score));
+                if (best.size() > limit) {
+                    best.poll();
+                }
+            }
+
+            Long[] ranked = new Long[best.size()];
+            for (int i = ranked.length - 1; i >= 0; i--) {
+                ranked[i] = best.poll().id;
+            }
+            return Arrays.asList(ranked);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Splits text into distinct search tokens: runs of letters and digits, lower-cased and
+     * stripped of accents, plus the joined form of hyphenated words.
+     *
+     * @param text The text.
+     * @return The tokens, in order of first occurrence.
+     */
+    public static List<String> tokenize(String text) {
+        String folded = fold(text);
+        Set<String> tokens = new LinkedHashSet<>();
+        StringBuilder token = new StringBuilder();
+        StringBuilder joined = new StringBuilder();
+        int parts = 0;
+        for (int i = 0; i <= folded.length(); i++) {
+            char ch = i < folded.length() ? folded.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(ch)) {
+                token.append(ch);
+                continue;
+            }
+            if (token.length() > 0) {
+                tokens.add(token.toString());
+                joined.append(token);
+                parts++;
+                token.setLength(0);
+            }
+            boolean hyphen = ch == '-' && i + 1 < folded.length() && Character.isLetterOrDigit(folded.charAt(i + 1));
+            if (!hyphen) {
+                if (parts > 1) {
+                    tokens.add(joined.toString());
+                }
+                joined.setLength(0);
+                parts = 0;
+            }
+        }
+        return new ArrayList<>(tokens);
+    }
+
+    /**
+     * Lower-cases text and strips its accents, so {@code "Café"} becomes {@code "cafe"}.
+     *
+     * @param text The text.
+     * @return The folded text.
+     */
+    public static String fold(String text) {
+        return Normalizer.normalize(text, Normalizer.Form.NFD)
+                .replaceAll("\\p{M}+", "")
+                .toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Removes a document while the write lock is held.
+     *
+     * @param id The document ID.
+     * @return True if the document was indexed.
+     */
+    private boolean removeLocked(long id) {
+        String[] tokens = documents.remove(id);
+        if (tokens == null) {
+            return false;
+        }
+        for (String token : tokens) {
+            Postings postings = terms.get(token);
+            if (postings != null) {
+                postings.remove(id);
+                if (postings.size == 0) {
+                    terms.remove(token);
+                }
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,310 @@
+package LibraryUtil;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityTransaction;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Lets several DAO calls on one thread share a single {@link EntityManager} and transaction.
+ * <p>While a unit of work is open, {@link JPAUtil#getEntityManager()} returns its shared
+ * EntityManager instead of a new one. The DAOs keep their usual begin/commit/close calls,
+ * which the shared EntityManager turns into a flush. A DAO rolling back, e.g. after a failed
+ * write, marks the whole unit for rollback, and committing the unit then fails with an
+ * {@link IllegalStateException}; DAO calls that change nothing leave the transaction alone. A DAO clearing its persistence context, e.g. between batches, only flushes it, so
+ * the unit's pending changes are written rather than discarded. Entities therefore stay
+ * managed between calls, and the unit commits or rolls back as a whole:</p>
+ * <pre>{@code
+ * try (UnitOfWork uow = UnitOfWork.begin()) {
+ *     bookDao.create(book);
+ *     copyDao.create(new Copy(book, CopyStatus.AVAILABLE));
+ *     uow.commit();
+ * }
+ * }</pre>
+ * <p>A unit that is closed without {@link #commit()} is rolled back. Opening a unit while one
+ * is already open joins it; the outermost unit decides the outcome. Outside a unit, every DAO
+ * call still uses its own EntityManager and transaction.</p>
+ * <p>Shared caches must only see committed data, so their updates are deferred with
+ * {@link #afterCommit(Runnable)}. Conflicts are not retried inside a unit, as the shared
+ * transaction cannot be resumed after one; the whole unit has to be retried instead.</p>
+ */
+public final class UnitOfWork implements AutoCloseable {
+
+    /**
+     * The state shared by the outermost unit and the units joining it.
+     */
+    private static final class Scope {
+
+        /**
+         * The real EntityManager.
+         */
+        private final EntityManager em;
+
+        /**
+         * The EntityManager handed out to DAOs; ignores close and transaction demarcation,
+         * and flushes instead of clearing.
+         */
+        private final EntityManager shared;
+
+        /**
+         * Actions to run once the transaction has committed.
+         */
+        private final List<Runnable> afterCommit = new ArrayList<>();
+
+        /**
+         * True once a DAO rolled back the shared transaction.
+         */
+        private boolean rolledBack;
+
+        private Scope(EntityManager em) {
+            this.em = em;
+            EntityTransaction transaction = em.getTransaction();
+            EntityTransaction sharedTransaction = proxy(EntityTransaction.class, (method, args) -> {
+                switch (method.getName()) {
+                    case "begin":
+                        return null;
+                    case "commit":
+                        em.flush();
+                        return null;
+                    case "rollback":
+                        transaction.setRollbackOnly();
+                        rolledBack = true;
+                        return null;
+                    default:
+                        return method.invoke(transaction, args);
+                }
+            });
+            this.shared = proxy(EntityManager.class, (method, args) -> {
+                switch (method.getName()) {
+                    case "close":
+                        return null;
+                    case "clear":
+                        em.flush();
+                        return null;
+                    case "getTransaction":
+                        return sharedTransaction;
+                    default:
+                        return method.invoke(em, args);
+                }
+            });
+        }
+    }
+
+    /**
+     * Handles a call on a shared proxy, possibly by invoking the method on the real object.
+     */
+    @FunctionalInterface
+    private interface Delegation {
+        Object invoke(Method method, Object[] args) throws ReflectiveOperationException;
+    }
+
+    /**
+     * The unit of work open on each thread.
+     */
+    private static final ThreadLocal<Scope> CURRENT = new ThreadLocal<>();
+
+    /**
+     * The scope this unit belongs to.
+     */
+    private final Scope scope;
+
+    /**
+     * True if this unit opened the scope and owns its transaction.
+     */
+    private final boolean owner;
+
+    /**
+     * True once this unit was committed or closed.
+     */
+    private boolean completed;
+
+    private UnitOfWork(Scope scope, boolean owner) {
+        this.scope = scope;
+        this.owner = owner;
+    }
+
+    /**
+     * Opens a unit of work on the current thread, or joins the one already open.
+     *
+     * @return The unit; close it with try-with-resources.
+     */
+    public static UnitOfWork begin() {
+        Scope current = CURRENT.get();
+        if (current != null) {
+            return new UnitOfWork(current, false);
+        }
+        EntityManager em = JPAUtil.newEntityManager();
+        try {
+            em.getTransaction().begin();
+        } catch (RuntimeException e) {
+            em.close();
+            throw e;
+        }
+        Scope scope = new Scope(em);
+        CURRENT.set(scope);
+        return new UnitOfWork(scope, true);
+    }
+
+    /**
+     * Runs {@code work} in a unit of work and commits it, or rolls it back if {@code work} throws.
+     *
+     * @param work The DAO calls to group.
+     * @param <T>  The result type.
+     * @return The result of {@code work}.
+     */
+    public static <T> T execute(Supplier<T> work) {
+        try (UnitOfWork unit = begin()) {
+            T result = work.get();
+            unit.commit();
+            return result;
+        }
+    }
+
+    /**
+     * Runs {@code work} in a unit of work and commits it, or rolls it back if {@code work} throws.
+     *
+     * @param work The DAO calls to group.
+     */
+    public static void run(Runnable work) {
+        execute(() -> {
+            work.run();
+            return null;
+        });
+    }
+
+    /**
+     * Checks whether a unit of work is open on the current thread.
+     *
+     * @return True inside a unit of work.
+     */
+    public static boolean isActive() {
+        return CURRENT.get() != null;
+    }
+
+    /**
+     * Runs {@code action} once the current unit of work has committed, or right away outside one.
+     * The action is dropped if the unit rolls back.
+     *
+     * @param action The action, typically the update of a shared cache.
+     */
+    public static void afterCommit(Runnable action) {
+        Scope current = CURRENT.get();
+        if (current == null) {
+            action.run();
+        } else {
+            current.afterCommit.add(action);
+        }
+    }
+
+    /**
+     * Returns the EntityManager shared by the current unit of work.
+     *
+     * @return The shared EntityManager, or null outside a unit of work.
+     */
+    static EntityManager currentEntityManager() {
+        Scope current = CURRENT.get();
+        return current == null ? null : current.shared;
+    }
+
+    /**
+     * Returns the EntityManager shared by this unit of work.
+     *
+     * @return The shared EntityManager; closing it has no effect.
+     */
+    public EntityManager getEntityManager() {
+        return scope.shared;
+    }
+
+    /**
+     * Commits the unit of work and runs the actions deferred until the commit.
+     * A joined unit only records that it completed; the outermost unit commits.
+     *
+     * @throws IllegalStateException if the unit was already committed or closed, or if a DAO
+     *                               rolled it back; the transaction is then rolled back.
+     * @throws RuntimeException      if the commit fails; the transaction is then rolled back.
+     */
+    public void commit() {
+        if (completed) {
+            throw new IllegalStateException("Unit of work is already completed");
+        }
+        completed = true;
+        EntityTransaction transaction = scope.em.getTransaction();
+        if (scope.rolledBack) {
+            if (owner && transaction.isActive()) {
+                transaction.rollback();
+            }
+            throw new IllegalStateException("Unit of work was rolled back by a DAO call");
+        }
+        if (!owner) {
+            return;
+        }
+        try {
+            transaction.commit();
+        } catch (RuntimeException e) {
+            if (transaction.isActive()) {
+                transaction.rollback();
+            }
+            throw e;
+        }
+        for (Runnable action : scope.afterCommit) {
+            action.run();
+        }
+    }
+
+    /**
+     * Ends the unit of work. If it was not committed, the outermost unit rolls back and a
+     * joined unit marks the whole unit for rollback.
+     */
+    @Override
+    public void close() {
+        if (!completed) {
+            completed = true;
+            EntityTransaction transaction = scope.em.getTransaction();
+            if (transaction.isActive()) {
+                if (owner) {
+                    transaction.rollback();
+                } else {
+                    transaction.setRollbackOnly();
+                }
+            }
+        }
+        if (owner) {
+            CURRENT.remove();
+            scope.em.close();
+        }
+    }
+
+    /**
+     * Creates a proxy implementing {@code type} whose calls are handled by {@code delegation}.
+     *
+     * @param type       The interface to implement.
+     * @param delegation Handles each call.
+     * @param <T>        The interface type.
+     * @return The proxy.
+     */
+    private static <T> T proxy(Class<T> type, Delegation delegation) {
+        InvocationHandler handler = (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                switch (method.getName()) {
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    default:
+                        return type.getSimpleName() + " of the current unit of work";
+                }
+            }
+            try {
+                return delegation.invoke(method, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        };
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+}
@@ -0,0 +1,58 @@
+package LibraryViews;
+
+/**
+ * An immutable summary of how many copies of a {@link LibraryEntities.Book} exist
+ * and how many of them are available or borrowed, computed in the database.
+ */
+public final class BookAvailability {
+
+    /**
+     * The ID of the Book.
+     */
+    private final Long bookId;
+
+    /**
+     * The number of copies of the Book.
+     */
+    private final long totalCopies;
+
+    /**
+     * The number of copies marked as "Available".
+     */
+    private final long availableCopies;
+
+    /**
+     * The number of copies marked as "Borrowed".
+     */
+    private final long borrowedCopies;
+
+    /**
+     * Constructs an availability summary. Used by JPQL constructor expressions,
+     * where the sums are null for a Book without copies.
+     *
+     * @param bookId          The ID of the Book.
+     * @param totalCopies     The number of copies.
+     * @param availableCopies The number of available copies, or null for none.
+     * @param borrowedCopies  The number of borrowed copies, or null for none.
+     */
+    public BookAvailability(Long bookId, Long totalCopies, Long availableCopies, Long borrowedCopies) {
+        this.bookId = bookId;
+        this.totalCopies = totalCopies == null ? 0 : totalCopies;
+        this.availableCopies = availableCopies == null ? 0 : availableCopies;
+        this.borrowedCopies = borrowedCopies == null ? 0 : borrowedCopies;
+    }
+
+    public Long getBookId() { return bookId; }
+
+    public long getTotalCopies() { return totalCopies; }
+
+    public long getAvailableCopies() { return availableCopies; }
+
+    public long getBorrowedCopies() { return borrowedCopies; }
+
+    @Override
+    public String toString() {
+        return "BookAvailability[bookId=" + bookId + ", total=" + totalCopies
+                + ", available=" + availableCopies + ", borrowed=" + borrowedCopies + "]";
+    }
+}
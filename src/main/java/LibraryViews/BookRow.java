@@ -0,0 +1,56 @@
+package LibraryViews;
+
+/**
+ * An immutable row of a book table, holding only the displayed columns of a
+ * {@link LibraryEntities.Book}. Created directly by JPQL constructor expressions,
+ * so no entity is loaded.
+ */
+public final class BookRow {
+
+    private final Long id;
+    private final String title;
+    private final String author;
+    private final String publisherName;
+    private final String isbn;
+    private final Integer publicationYear;
+
+    /**
+     * Constructs a book row.
+     *
+     * @param id              The Book ID.
+     * @param title           The title.
+     * @param author          The author.
+     * @param publisherName   The publisher's name.
+     * @param isbn            The ISBN.
+     * @param publicationYear The publication year.
+     */
+    public BookRow(Long id, String title, String author, String publisherName, String isbn, Integer publicationYear) {
+        this.id = id;
+        this.title = title;
+        this.author = author;
+        this.publisherName = publisherName;
+        this.isbn = isbn;
+        this.publicationYear = publicationYear;
+    }
+
+    public Long getId() { return id; }
+
+    public String getTitle() { return title; }
+
+    public String getAuthor() { return author; }
+
+    public String getPublisherName() { return publisherName; }
+
+    public String getIsbn() { return isbn; }
+
+    public Integer getPublicationYear() { return publicationYear; }
+
+    /**
+     * Returns the row as table cells, in the order ID, Title, Author, Publisher, ISBN, Year.
+     *
+     * @return The cell values.
+     */
+    public Object[] toCells() {
+        return new Object[]{id, title, author, publisherName, isbn, publicationYear};
+    }
+}
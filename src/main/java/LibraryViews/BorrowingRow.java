@@ -0,0 +1,44 @@
+package LibraryViews;
+
+import java.time.LocalDate;
+
+/**
+ * An immutable row of a borrowing table. The user name and book title are joined
+ * in SQL, so neither the {@link LibraryEntities.Borrowing} nor its user, copy or
+ * book are loaded as entities.
+ */
+public final class BorrowingRow {
+
+    private final Integer id;
+    private final String userName;
+    private final String bookTitle;
+    private final LocalDate borrowDate;
+    private final LocalDate returnDate;
+
+    /**
+     * Constructs a borrowing row.
+     *
+     * @param id         The Borrowing ID.
+     * @param userName   The name of the borrowing user.
+     * @param bookTitle  The title of the borrowed book.
+     * @param borrowDate The date the copy was borrowed.
+     * @param returnDate The date the copy was returned, or null.
+     */
+    public BorrowingRow(Integer id, String userName, String bookTitle, LocalDate borrowDate, LocalDate returnDate) {
+        this.id = id;
+        this.userName = userName;
+        this.bookTitle = bookTitle;
+        this.borrowDate = borrowDate;
+        this.returnDate = returnDate;
+    }
+
+    public Integer getId() { return id; }
+
+    public String getUserName() { return userName; }
+
+    public String getBookTitle() { return bookTitle; }
+
+    public LocalDate getBorrowDate() { return borrowDate; }
+
+    public LocalDate getReturnDate() { return returnDate; }
+}
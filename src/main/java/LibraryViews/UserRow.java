@@ -0,0 +1,50 @@
+package LibraryViews;
+
+/**
+ * An immutable row of the user table, holding only the displayed columns of a
+ * {@link LibraryEntities.User}.
+ */
+public final class UserRow {
+
+    private final Integer id;
+    private final String name;
+    private final String email;
+    private final String phoneNumber;
+    private final String address;
+
+    /**
+     * Constructs a user row.
+     *
+     * @param id          The User ID.
+     * @param name        The user's name.
+     * @param email       The user's email address.
+     * @param phoneNumber The user's phone number.
+     * @param address     The user's home address.
+     */
+    public UserRow(Integer id, String name, String email, String phoneNumber, String address) {
+        this.id = id;
+        this.name = name;
+        this.email = email;
+        this.phoneNumber = phoneNumber;
+        this.address = address;
+    }
+
+    public Integer getId() { return id; }
+
+    public String getName() { return name; }
+
+    public String getEmail() { return email; }
+
+    public String getPhoneNumber() { return phoneNumber; }
+
+    public String getAddress() { return address; }
+
+    /**
+     * Returns the row as table cells, in the order ID, Name, Email, Phone, Address.
+     *
+     * @return The cell values.
+     */
+    public Object[] toCells() {
+        return new Object[]{id, name, email, phoneNumber, address};
+    }
+}
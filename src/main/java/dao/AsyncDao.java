@@ -0,0 +1,211 @@
+package dao;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * The asynchronous counterpart of {@link Dao}: every call runs on a background executor
+ * and returns a {@link CompletableFuture}, so a slow query never blocks the calling thread.
+ * <p>On a Java runtime with virtual threads every call gets its own virtual thread, which
+ * parks cheaply while it waits for a pooled connection. On older runtimes the calls share
+ * a small pool of daemon platform threads, sized like the connection pool. A call failing
+ * with an exception completes its future exceptionally with that exception as the cause.</p>
+ * <p>Calls run outside any {@link LibraryUtil.UnitOfWork} of the calling thread; each
+ * one uses its own EntityManager and transaction.</p>
+ *
+ * @param <T> The entity type of the wrapped DAO.
+ */
+public class AsyncDao<T> {
+
+    /**
+     * The number of platform threads used when virtual threads are not available.
+     */
+    private static final int PLATFORM_THREADS = 10;
+
+    /**
+     * The executor shared by all asynchronous DAO calls.
+     */
+    private static final ExecutorService EXECUTOR = newExecutor();
+
+    /**
+     * The wrapped DAO.
+     */
+    private final Dao<T> dao;
+
+    /**
+     * Constructs the asynchronous view of a DAO.
+     *
+     * @param dao The DAO whose calls are run in the background.
+     * @throws IllegalArgumentException if the DAO is null.
+     */
+    public AsyncDao(Dao<T> dao) {
+        if (dao == null) throw new IllegalArgumentException("DAO cannot be null");
+        this.dao = dao;
+    }
+
+    /**
+     * Runs any DAO call in the background, e.g. a query that is not part of {@link Dao}.
+     *
+     * @param call The call.
+     * @param <R>  The result type.
+     * @return The future result of the call.
+     */
+    public static <R> CompletableFuture<R> supply(Supplier<R> call) {
+        return CompletableFuture.supplyAsync(call, EXECUTOR);
+    }
+
+    /**
+     * Runs any DAO call without a result in the background.
+     *
+     * @param call The call.
+     * @return A future completed when the call returns.
+     */
+    public static CompletableFuture<Void> run(Runnable call) {
+        return CompletableFuture.runAsync(call, EXECUTOR);
+    }
+
+    /**
+     * Tells whether calls run on virtual threads.
+     *
+     * @return True on a runtime with virtual threads.
+     */
+    public static boolean usesVirtualThreads() {
+        return !(EXECUTOR instanceof ThreadPoolExecutor);
+    }
+
+    /**
+     * Persists a new entity in the background.
+     *
+     * @param entity The entity to create.
+     * @return The future persisted entity.
+     * @see Dao#create(Object)
+     */
+    public CompletableFuture<T> create(T entity) {
+        return supply(() -> dao.create(entity));
+    }
+
+    /**
+     * Finds an entity by its ID in the background.
+     *
+     * @param id The ID of the entity to find.
+     * @return The future entity, or null if not present.
+     * @see Dao#findById(Long)
+     */
+    public CompletableFuture<T> findById(Long id) {
+        return supply(() -> dao.findById(id));
+    }
+
+    /**
+     * Retrieves all entities in the background.
+     *
+     * @return The future list of all entities.
+     * @see Dao#findAll()
+     */
+    public CompletableFuture<List<T>> findAll() {
+        return supply(dao::findAll);
+    }
+
+    /**
+     * Retrieves one page of entities in the background.
+     *
+     * @param sortKey        The attribute to sort by, or null to sort by ID only.
+     * @param afterSortValue The sort value of the last entity of the previous page.
+     * @param afterId        The ID of the last entity of the previous page, or null for the first page.
+     * @param pageSize       The maximum number of entities to return.
+     * @return The future page.
+     * @see Dao#findPage(String, Object, Long, int)
+     */
+    public CompletableFuture<List<T>> findPage(String sortKey, Object afterSortValue, Long afterId, int pageSize) {
+        return supply(() -> dao.findPage(sortKey, afterSortValue, afterId, pageSize));
+    }
+
+    /**
+     * Updates an existing entity in the background.
+     *
+     * @param entity The entity with updated fields.
+     * @return The future merged entity.
+     * @see Dao#update(Object)
+     */
+    public CompletableFuture<T> update(T entity) {
+        return supply(() -> dao.update(entity));
+    }
+
+    /**
+     * Deletes an entity by its ID in the background.
+     *
+     * @param id The ID of the entity to delete.
+     * @return A future completed once the entity is deleted.
+     * @see Dao#delete(Long)
+     */
+    public CompletableFuture<Void> delete(Long id) {
+        return run(() -> dao.delete(id));
+    }
+
+    /**
+     * Persists all given entities in one transaction, in the background.
+     *
+     * @param entities The entities to create.
+     * @return The future persisted entities.
+     * @see Dao#createAll(Collection)
+     */
+    public CompletableFuture<List<T>> createAll(Collection<T> entities) {
+        return supply(() -> dao.createAll(entities));
+    }
+
+    /**
+     * Updates all given entities in one transaction, in the background.
+     *
+     * @param entities The entities with updated fields.
+     * @return The future merged entities.
+     * @see Dao#updateAll(Collection)
+     */
+    public CompletableFuture<List<T>> updateAll(Collection<T> entities) {
+        return supply(() -> dao.updateAll(entities));
+    }
+
+    /**
+     * Deletes all entities with the given IDs in one transaction, in the background.
+     *
+     * @param ids The IDs of the entities to delete.
+     * @return A future completed once the entities are deleted.
+     * @see Dao#deleteAll(Collection)
+     */
+    public CompletableFuture<Void> deleteAll(Collection<Long> ids) {
+        return run(() -> dao.deleteAll(ids));
+    }
+
+    /**
+     * Creates the shared executor: a virtual thread per call if the runtime has them,
+     * looked up reflectively so the code still runs on Java 17, or else a bounded pool
+     * of daemon threads that do not keep the application alive.
+     *
+     * @return The executor.
+     */
+    private static ExecutorService newExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger count = new AtomicInteger();
+            ThreadFactory threads = task -> {
+                Thread thread = new Thread(task, "dao-async-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            };
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(PLATFORM_THREADS, PLATFORM_THREADS,
+                    60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), threads);
+            pool.allowCoreThreadTimeOut(true);
+            return pool;
+        }
+    }
+}
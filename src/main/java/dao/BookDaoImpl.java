@@ -1,11 +1,31 @@
 package dao;
 
 import LibraryEntities.Book;
+import LibraryEntities.CopyStatus;
+import LibraryUtil.CacheStatistics;
+import LibraryUtil.ChangeEvent;
+import LibraryUtil.ChangeEvents;
+import LibraryViews.BookAvailability;
+import LibraryViews.BookRow;
 import LibraryUtil.JPAUtil;
+import LibraryUtil.PrefixIndex;
+import LibraryUtil.UnitOfWork;
+
+import org.hibernate.CacheMode;
+import org.hibernate.Hibernate;
+import org.hibernate.Session;
 
 import javax.persistence.EntityManager;
+import javax.persistence.Parameter;
 import javax.persistence.TypedQuery;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * DAO implementation for managing {@link Book} entities.
@@ -14,6 +34,40 @@ import java.util.List;
  */
 public class BookDaoImpl implements Dao<Book> {
 
+    /**
+     * The changed field of the Book {@link ChangeEvent} published when the number of
+     * available copies of a Book may have changed.
+     */
+    public static final String AVAILABILITY = "availability";
+
+    /**
+     * Attributes {@link #findPage(String, Object, Long, int)} may sort by.
+     */
+    private static final Set<String> SORTABLE_KEYS = Set.of("title", "author", "isbn", "publicationYear", "publisherName");
+
+    /**
+     * The maximum number of Books missing from the second-level cache read by a single query
+     * when re-reading cached query results.
+     */
+    private static final int IN_LIST_CHUNK = 1000;
+
+    /**
+     * Selects the displayed columns of a Book as a {@link BookRow}.
+     */
+    private static final String BOOK_ROW_SELECT =
+            "SELECT NEW LibraryViews.BookRow(b.id, b.title, b.author, b.publisherName, b.isbn, b.publicationYear)"
+                    + " FROM Book b";
+
+    /**
+     * Aggregates copy counts per Book; completed with a WHERE and/or GROUP BY clause.
+     * Statuses are bound as parameters by {@link #bindStatuses(TypedQuery)}.
+     */
+    private static final String AVAILABILITY_QUERY =
+            "SELECT NEW LibraryViews.BookAvailability(b.id, COUNT(c),"
+                    + " SUM(CASE WHEN c.status = :available THEN 1 ELSE 0 END),"
+                    + " SUM(CASE WHEN c.status = :borrowed THEN 1 ELSE 0 END))"
+                    + " FROM Book b LEFT JOIN b.copies c";
+
     /**
      * Persists a new {@link Book} entity in the database.
      *
@@ -29,6 +83,10 @@ public class BookDaoImpl implements Dao<Book> {
             em.getTransaction().begin();
             em.persist(entity);
             em.getTransaction().commit();
+            CatalogQueries.titlesChanged();
+            BookSearch.bookChanged(entity);
+            NaturalKeys.bookChanged(entity);
+            ChangeEvents.publish(ChangeEvent.created(Book.class, entity.getId()));
             return entity;
         } finally {
             em.close();
@@ -36,7 +94,10 @@ public class BookDaoImpl implements Dao<Book> {
     }
 
     /**
-     * Finds a {@link Book} by its unique ID.
+     * Finds a {@link Book} by its unique ID, together with its copies.
+     * The copies are initialized after the lookup, rather than through the
+     * "Book.withCopies" graph, so both the Book and its copy collection can be
+     * answered by the second-level cache.
      *
      * @param id The ID of the Book to retrieve.
      * @return The Book with the specified ID, or null if not found.
@@ -44,6 +105,30 @@ public class BookDaoImpl implements Dao<Book> {
      */
     @Override
     public Book findById(Long id) {
+        if (id == null) throw new IllegalArgumentException("ID cannot be null");
+        EntityManager em = JPAUtil.getEntityManager();
+        try {
+            Book book = em.find(Book.class, id);
+            if (book != null) {
+                Hibernate.initialize(book.getCopies());
+            }
+            return book;
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * Finds a {@link Book} by its unique ID without its copies, e.g. to edit its own fields.
+     * Merging the Book back through {@link #update(Book)} then writes only the Book's columns;
+     * a Book read with its copies would also merge their possibly outdated statuses, and fail
+     * on their versions once any of them was lent or returned meanwhile.
+     *
+     * @param id The ID of the Book to retrieve.
+     * @return The Book with the specified ID, its copies not loaded, or null if not found.
+     * @throws IllegalArgumentException if the ID is null.
+     */
+    public Book findWithoutCopies(Long id) {
         if (id == null) throw new IllegalArgumentException("ID cannot be null");
         EntityManager em = JPAUtil.getEntityManager();
         try {
@@ -54,23 +139,89 @@ public class BookDaoImpl implements Dao<Book> {
     }
 
     /**
-     * Retrieves all {@link Book} entities from the database.
+     * Finds a {@link Book} by its unique ISBN, together with its copies, as when scanning a barcode.
+     * The ISBN is resolved to an ID through a bounded cache, which also remembers ISBNs
+     * that match no Book; on a miss it is looked up through the unique ISBN index.
+     * Inside a {@link UnitOfWork} the cache is bypassed, as the unit may have uncommitted changes.
      *
-     * @return A list of all persisted Books.
+     * @param isbn The ISBN; surrounding whitespace is ignored.
+     * @return The Book with the ISBN, or null if not found.
+     * @throws IllegalArgumentException if the ISBN is null or blank.
      */
-    @Override
-    public List<Book> findAll() {
+    public Book findByIsbn(String isbn) {
+        if (isbn == null || isbn.isBlank()) throw new IllegalArgumentException("ISBN cannot be null or blank");
+        String key = NaturalKeys.key(isbn);
+        Long id = UnitOfWork.isActive() ? findIdByIsbn(key) : NaturalKeys.ISBNS.get(key, this::findIdByIsbn);
+        if (id == null) {
+            return null;
+        }
+        Book book = findById(id);
+        if (book == null || !key.equals(book.getIsbn())) {
+            // Changed outside this application since it was cached; look it up again
+            NaturalKeys.ISBNS.remove(id);
+            id = findIdByIsbn(key);
+            book = id == null ? null : findById(id);
+        }
+        return book;
+    }
+
+    /**
+     * Returns the hit and miss counters of the ISBN cache used by {@link #findByIsbn(String)}.
+     *
+     * @return A snapshot of the ISBN cache counters.
+     */
+    public CacheStatistics getIsbnCacheStatistics() {
+        return NaturalKeys.ISBNS.getStatistics();
+    }
+
+    /**
+     * Looks up the ID of the Book with an ISBN through the unique ISBN index.
+     *
+     * @param isbn The ISBN.
+     * @return The Book ID, or null if no Book has the ISBN.
+     */
+    private Long findIdByIsbn(String isbn) {
         EntityManager em = JPAUtil.getEntityManager();
         try {
-            TypedQuery<Book> q = em.createQuery("SELECT b FROM Book b", Book.class);
-            return q.getResultList();
+            return em.createQuery("SELECT b.id FROM Book b WHERE b.isbn = :isbn", Long.class)
+                    .setParameter("isbn", isbn)
+                    .getResultStream()
+                    .findFirst()
+                    .orElse(null);
         } finally {
             em.close();
         }
     }
 
+    /**
+     * Retrieves all {@link Book} entities from the database, without their copies.
+     * The matching IDs are cached until a Book is added or removed.
+     *
+     * @return A list of all persisted Books.
+     */
+    @Override
+    public List<Book> findAll() {
+        return findCached(CatalogQueries.ALL_TITLES, "SELECT b FROM Book b ORDER BY b.id");
+    }
+
+    /**
+     * Retrieves one page of {@link Book} entities using keyset pagination.
+     *
+     * @param sortKey        One of title, author, isbn, publicationYear, publisherName, or null to sort by ID only.
+     * @param afterSortValue The sort value of the last Book of the previous page.
+     * @param afterId        The ID of the last Book of the previous page, or null for the first page.
+     * @param pageSize       The maximum number of Books to return.
+     * @return Up to {@code pageSize} Books following the given position.
+     */
+    @Override
+    public List<Book> findPage(String sortKey, Object afterSortValue, Long afterId, int pageSize) {
+        return KeysetPaging.fetch(Book.class, SORTABLE_KEYS, sortKey, afterSortValue,
+                afterId, pageSize);
+    }
+
     /**
      * Updates an existing {@link Book} in the database.
+     * The published {@link ChangeEvent} lists the fields that differ from the stored Book.
      *
      * @param entity The Book entity with updated fields.
      * @return The merged (updated) Book entity.
@@ -84,8 +235,14 @@ public class BookDaoImpl implements Dao<Book> {
         EntityManager em = JPAUtil.getEntityManager();
         try {
             em.getTransaction().begin();
+            FieldChanges changes = changedFields(em, entity);
             Book merged = em.merge(entity);
             em.getTransaction().commit();
+            // Cached rows show the Book's fields, and copies cascade with the Book
+            CatalogQueries.titlesChanged();
+            BookSearch.bookChanged(merged);
+            NaturalKeys.bookChanged(merged);
+            changes.publish(Book.class, merged.getId());
             return merged;
         } finally {
             em.close();
@@ -106,46 +263,177 @@ public class BookDaoImpl implements Dao<Book> {
         EntityManager em = JPAUtil.getEntityManager();
         try {
             em.getTransaction().begin();
-            Book found = em.find(Book.class, id);
-            if (found != null) {
-                // Check if the book has any borrowings
-                TypedQuery<Long> borrowingCountQuery = em.createQuery(
-                        "SELECT COUNT(b) FROM Borrowing b WHERE b.copy.book.id = :bookId", Long.class);
-                borrowingCountQuery.setParameter("bookId", id);
-                Long borrowingCount = borrowingCountQuery.getSingleResult();
-
-                // Check the number of copies
-                int copyCount = found.getCopies().size();
-
-                if (borrowingCount > 0 || copyCount > 0) {
-                    throw new IllegalStateException("Cannot delete book with borrowings or more than one copy.");
-                } else {
-                    em.remove(found);
-                }
-            }
+            remove(em, id);
             em.getTransaction().commit();
+            CopyAvailability.bookRemoved(id);
+            CatalogQueries.titlesChanged();
+            BookSearch.bookRemoved(id);
+            NaturalKeys.bookRemoved(id);
+            ChangeEvents.publish(ChangeEvent.deleted(Book.class, id));
+        } catch (RuntimeException e) {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            throw e;
         } finally {
             em.close();
         }
     }
 
     /**
-     * Retrieves a list of {@link Book} objects that have at least one "Available" copy.
+     * Persists all given {@link Book} entities in a single transaction.
      *
-     * @return A list of Books with one or more available copies.
+     * @param entities The Books to create.
+     * @return The persisted Books with generated IDs.
+     * @throws IllegalArgumentException if the collection or any Book is null.
      */
-    public List<Book> findAvailableTitles() {
+    @Override
+    public List<Book> createAll(Collection<Book> entities) {
+        List<Book> created = BulkOperations.createAll(entities, EntityManager::persist);
+        CatalogQueries.titlesChanged();
+        created.forEach(BookSearch::bookChanged);
+        created.forEach(NaturalKeys::bookChanged);
+        created.forEach(book -> ChangeEvents.publish(ChangeEvent.created(Book.class, book.getId())));
+        return created;
+    }
+
+    /**
+     * Updates all given {@link Book} entities in a single transaction.
+     * As in {@link #update(Book)}, each published {@link ChangeEvent} lists the changed fields.
+     *
+     * @param entities The Books with updated fields.
+     * @return The merged (updated) Books.
+     * @throws IllegalArgumentException if the collection, any Book or any ID is null.
+     */
+    @Override
+    public List<Book> updateAll(Collection<Book> entities) {
+        if (entities != null && entities.stream().anyMatch(b -> b != null && b.getId() == null)) {
+            throw new IllegalArgumentException("Book or ID cannot be null");
+        }
+        List<FieldChanges> changes = new ArrayList<>();
+        List<Book> merged = BulkOperations.updateAll(entities, (em, book) -> {
+            changes.add(changedFields(em, book));
+            return em.merge(book);
+        });
+        CatalogQueries.titlesChanged();
+        merged.forEach(BookSearch::bookChanged);
+        merged.forEach(NaturalKeys::bookChanged);
+        for (int i = 0; i < merged.size(); i++) {
+            changes.get(i).publish(Book.class, merged.get(i).getId());
+        }
+        return merged;
+    }
+
+    /**
+     * Deletes all {@link Book} entities with the given IDs in a single transaction.
+     * Each deletion follows the same rule as {@link #delete(Long)}.
+     *
+     * @param ids The IDs of the Books to delete.
+     * @throws IllegalArgumentException if the collection or any ID is null.
+     * @throws IllegalStateException    if any of the Books has borrowings or copies.
+     */
+    @Override
+    public void deleteAll(Collection<Long> ids) {
+        BulkOperations.deleteAll(ids, this::remove);
+        ids.forEach(CopyAvailability::bookRemoved);
+        CatalogQueries.titlesChanged();
+        ids.forEach(BookSearch::bookRemoved);
+        ids.forEach(NaturalKeys::bookRemoved);
+        ids.forEach(id -> ChangeEvents.publish(ChangeEvent.deleted(Book.class, id)));
+    }
+
+    /**
+     * Removes the {@link Book} with the given ID within the caller's transaction.
+     *
+     * @param em The EntityManager to use.
+     * @param id The ID of the Book to remove.
+     * @throws IllegalStateException if the Book has borrowings or copies.
+     */
+    private void remove(EntityManager em, Long id) {
+        Book found = em.find(Book.class, id);
+        if (found != null) {
+            // Check if the book has any borrowings
+            TypedQuery<Long> borrowingCountQuery = em.createQuery(
+                    "SELECT COUNT(b) FROM Borrowing b WHERE b.copy.book.id = :bookId", Long.class);
+            borrowingCountQuery.setParameter("bookId", id);
+            Long borrowingCount = borrowingCountQuery.getSingleResult();
+
+            // Check the number of copies
+            int copyCount = found.getCopies().size();
+
+            if (borrowingCount > 0 || copyCount > 0) {
+                throw new IllegalStateException("Cannot delete book with borrowings or more than one copy.");
+            } else {
+                em.remove(found);
+            }
+        }
+    }
+
+    /**
+     * Searches Book titles, authors, publisher names and ISBNs for all words of {@code query},
+     * ignoring case and accents. The words are looked up in an in-memory inverted index,
+     * built on first use, and only the matching rows are read from the database.
+     *
+     * @param query The search text.
+     * @param limit The maximum number of results.
+     * @return The table rows of up to {@code limit} matching Books, best matches first.
+     * @throws IllegalArgumentException if the query is null or the limit is not positive.
+     */
+    public List<BookRow> search(String query, int limit) {
+        List<Long> ids = BookSearch.search(query, limit);
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
         EntityManager em = JPAUtil.getEntityManager();
         try {
-            TypedQuery<Book> query = em.createQuery(
-                    "SELECT DISTINCT b FROM Book b JOIN b.copies c WHERE c.status = 'Available'",
-                    Book.class);
-            return query.getResultList();
+            Map<Long, BookRow> rows = new HashMap<>();
+            for (BookRow row : em.createQuery(BOOK_ROW_SELECT + " WHERE b.id IN :ids", BookRow.class)
+                    .setParameter("ids", ids)
+                    .getResultList()) {
+                rows.put(row.getId(), row);
+            }
+            // Keep the ranking order; skip Books deleted since they were indexed
+            return ids.stream().map(rows::get).filter(Objects::nonNull).collect(Collectors.toList());
         } finally {
             em.close();
         }
     }
 
+    /**
+     * Completes a Book title, author or ISBN prefix from an in-memory sorted index,
+     * without querying the database.
+     *
+     * @param prefix The typed text; case and accents are ignored.
+     * @param limit  The maximum number of suggestions.
+     * @return The IDs and "title - author (ISBN ...)" labels of up to {@code limit} matching Books.
+     * @throws IllegalArgumentException if the prefix is null or the limit is not positive.
+     */
+    public List<PrefixIndex.Completion> suggest(String prefix, int limit) {
+        return BookSearch.complete(prefix, limit);
+    }
+
+    /**
+     * Rebuilds the search and completion indexes with one streaming scan of the Books table.
+     * Called at startup so the first search does not pay for the build.
+     *
+     * @return The number of indexed Books.
+     */
+    public int rebuildSearchIndex() {
+        return BookSearch.rebuild();
+    }
+
+    /**
+     * Retrieves a list of {@link Book} objects that have at least one "Available" copy.
+     * The Books are returned without their copies.
+     * The matching IDs are cached until a Copy's availability changes.
+     *
+     * @return A list of Books with one or more available copies.
+     */
+    public List<Book> findAvailableTitles() {
+        return findCached(CatalogQueries.AVAILABLE_TITLES,
+                "SELECT DISTINCT b FROM Book b JOIN b.copies c WHERE c.status = :available ORDER BY b.id");
+    }
+
     /**
      * Retrieves all Books and eagerly fetches their copies.
      *
@@ -154,10 +442,241 @@ public class BookDaoImpl implements Dao<Book> {
     public List<Book> findAllWithCopies() {
         EntityManager em = JPAUtil.getEntityManager();
         try {
-            return em.createQuery("SELECT DISTINCT b FROM Book b LEFT JOIN FETCH b.copies", Book.class)
+            TypedQuery<Book> query = em.createQuery("SELECT DISTINCT b FROM Book b", Book.class);
+            return FetchPlans.apply(em, query, FetchPlans.BOOK_WITH_COPIES).getResultList();
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * Retrieves the table rows of all {@link Book} entities, ordered by ID.
+     * Only the displayed columns are selected, and the result is cached until a Book changes.
+     *
+     * @return One row per Book.
+     */
+    public List<BookRow> findTitleRows() {
+        return findCachedRows(CatalogQueries.ALL_TITLES, BOOK_ROW_SELECT + " ORDER BY b.id");
+    }
+
+    /**
+     * Retrieves the table row of one {@link Book}, e.g. to update a table after a {@link ChangeEvent}.
+     *
+     * @param id The Book ID.
+     * @return The Book's row, or null if not found.
+     * @throws IllegalArgumentException if the ID is null.
+     */
+    public BookRow findTitleRow(Long id) {
+        if (id == null) throw new IllegalArgumentException("ID cannot be null");
+        EntityManager em = JPAUtil.getEntityManager();
+        try {
+            return em.createQuery(BOOK_ROW_SELECT + " WHERE b.id = :id", BookRow.class)
+                    .setParameter("id", id)
+                    .getResultStream()
+                    .findFirst()
+                    .orElse(null);
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * Retrieves the table rows of all {@link Book} entities with at least one "Available" copy.
+     * The result is cached until a Copy's availability or a Book changes.
+     *
+     * @return One row per available Book, ordered by ID.
+     */
+    public List<BookRow> findAvailableTitleRows() {
+        return findCachedRows(CatalogQueries.AVAILABLE_TITLES, BOOK_ROW_SELECT
+                + " WHERE EXISTS (SELECT c.id FROM Copy c WHERE c.book = b AND c.status = :available)"
+                + " ORDER BY b.id");
+    }
+
+    /**
+     * Counts the total, available and borrowed copies of every {@link Book}
+     * in a single aggregate query, without loading any Copy entities.
+     *
+     * @return The availability of each Book, keyed by Book ID. Books without copies are included with zero counts.
+     */
+    public Map<Long, BookAvailability> findAvailability() {
+        EntityManager em = JPAUtil.getEntityManager();
+        try {
+            List<BookAvailability> rows = bindStatuses(em.createQuery(AVAILABILITY_QUERY + " GROUP BY b.id",
+                    BookAvailability.class)).getResultList();
+            Map<Long, BookAvailability> result = new HashMap<>(rows.size() * 2);
+            for (BookAvailability row : rows) {
+                result.put(row.getBookId(), row);
+            }
+            return result;
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * Counts the total, available and borrowed copies of a single {@link Book}.
+     *
+     * @param bookId The ID of the Book.
+     * @return The Book's availability, or null if the Book does not exist.
+     * @throws IllegalArgumentException if the ID is null.
+     */
+    public BookAvailability findAvailability(Long bookId) {
+        if (bookId == null) throw new IllegalArgumentException("ID cannot be null");
+        EntityManager em = JPAUtil.getEntityManager();
+        try {
+            List<BookAvailability> rows = bindStatuses(em.createQuery(
+                            AVAILABILITY_QUERY + " WHERE b.id = :bookId GROUP BY b.id", BookAvailability.class))
+                    .setParameter("bookId", bookId)
                     .getResultList();
+            return rows.isEmpty() ? null : rows.get(0);
         } finally {
             em.close();
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Returns the hit and miss counters of the cached catalog queries
+     * ({@link #findAll()} and {@link #findAvailableTitles()}).
+     *
+     * @return A snapshot of the query cache counters.
+     */
+    public CacheStatistics getQueryCacheStatistics() {
+        return CatalogQueries.statistics();
+    }
+
+    /**
+     * Returns the hit and miss counters of the cached row queries
+     * ({@link #findTitleRows()} and {@link #findAvailableTitleRows()}).
+     *
+     * @return A snapshot of the row cache counters.
+     */
+    public CacheStatistics getRowCacheStatistics() {
+        return CatalogQueries.rowStatistics();
+    }
+
+    /**
+     * Runs a cached row query. Inside a {@link UnitOfWork} the cache is bypassed,
+     * as the query may see the unit's uncommitted changes.
+     *
+     * @param key  The {@link CatalogQueries} key of the query.
+     * @param jpql The constructor-expression query selecting the rows.
+     * @return The matching rows, in query order.
+     */
+    private List<BookRow> findCachedRows(String key, String jpql) {
+        if (UnitOfWork.isActive()) {
+            return queryRows(jpql);
+        }
+        return CatalogQueries.ROW_CACHE.get(key, () -> queryRows(jpql));
+    }
+
+    /**
+     * Runs a row query.
+     *
+     * @param jpql The constructor-expression query selecting the rows.
+     * @return The matching rows, in query order.
+     */
+    private List<BookRow> queryRows(String jpql) {
+        EntityManager em = JPAUtil.getEntityManager();
+        try {
+            return List.copyOf(bindStatuses(em.createQuery(jpql, BookRow.class)).getResultList());
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * Runs a cached catalog query. On a cache miss the query is executed and the IDs
+     * of its results are cached; on a hit the Books are read back by ID from the
+     * second-level cache, and only those missing from it are queried, with one {@code IN}
+     * query per {@value #IN_LIST_CHUNK} IDs.
+     * Inside a {@link UnitOfWork} the cache is bypassed, as the query may see the
+     * unit's uncommitted changes.
+     *
+     * @param key  The {@link CatalogQueries} key of the query.
+     * @param jpql The query selecting the Books.
+     * @return The matching Books, in query order.
+     */
+    private List<Book> findCached(String key, String jpql) {
+        EntityManager em = JPAUtil.getEntityManager();
+        try {
+            if (UnitOfWork.isActive()) {
+                return bindStatuses(em.createQuery(jpql, Book.class)).getResultList();
+            }
+            List<Book> loaded = new ArrayList<>();
+            boolean[] queried = {false};
+            List<Long> ids = CatalogQueries.CACHE.get(key, () -> {
+                queried[0] = true;
+                loaded.addAll(bindStatuses(em.createQuery(jpql, Book.class)).getResultList());
+                return loaded.stream().map(Book::getId).collect(Collectors.toUnmodifiableList());
+            });
+            if (queried[0]) {
+                return loaded;
+            }
+            List<Book> books = em.unwrap(Session.class).byMultipleIds(Book.class)
+                    .with(CacheMode.NORMAL)
+                    .enableSessionCheck(true)
+                    .withBatchSize(IN_LIST_CHUNK)
+                    .multiLoad(ids);
+            // Results keep the cached order; skip Books deleted since the IDs were cached
+            return books.stream().filter(Objects::nonNull).collect(Collectors.toList());
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * Compares a Book about to be merged with its stored state. The stored Book is read into
+     * the persistence context, where the merge finds it, so this costs no extra query.
+     *
+     * @param em     The EntityManager of the update.
+     * @param entity The incoming Book.
+     * @return The changed fields; a merged copy list counts as an {@link #AVAILABILITY} change.
+     */
+    private static FieldChanges changedFields(EntityManager em, Book entity) {
+        Book stored = em.find(Book.class, entity.getId());
+        if (stored == null || stored == entity) {
+            return FieldChanges.unknown();
+        }
+        FieldChanges changes = FieldChanges.none()
+                .compare("title", stored.getTitle(), entity.getTitle())
+                .compare("author", stored.getAuthor(), entity.getAuthor())
+                .compare("publisher", publisherId(stored), publisherId(entity))
+                .compare("publisherName", stored.getPublisherName(), entity.getPublisherName())
+                .compare("publicationYear", stored.getPublicationYear(), entity.getPublicationYear())
+                .compare("isbn", stored.getIsbn(), entity.getIsbn());
+        // Copies cascade with the merge, and may carry new statuses
+        if (Hibernate.isInitialized(entity.getCopies()) && !entity.getCopies().isEmpty()) {
+            changes.add(AVAILABILITY);
+        }
+        return changes;
+    }
+
+    /**
+     * Returns the ID of a Book's Publisher.
+     *
+     * @param book The Book.
+     * @return The Publisher ID, or null if the Book has no Publisher.
+     */
+    private static Integer publisherId(Book book) {
+        return book.getPublisher() == null ? null : book.getPublisher().getId();
+    }
+
+    /**
+     * Binds the {@code :available} and {@code :borrowed} copy status parameters,
+     * if the query declares them.
+     *
+     * @param query The query to bind.
+     * @param <T>   The result type.
+     * @return The same query.
+     */
+    private static <T> TypedQuery<T> bindStatuses(TypedQuery<T> query) {
+        for (Parameter<?> parameter : query.getParameters()) {
+            if ("available".equals(parameter.getName())) {
+                query.setParameter("available", CopyStatus.AVAILABLE);
+            } else if ("borrowed".equals(parameter.getName())) {
+                query.setParameter("borrowed", CopyStatus.BORROWED);
+            }
+        }
+        return query;
+    }
+}
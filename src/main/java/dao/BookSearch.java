@@ -0,0 +1,149 @@
+package dao;
+
+import LibraryEntities.Book;
+import LibraryUtil.JPAUtil;
+import LibraryUtil.PrefixIndex;
+import LibraryUtil.SearchIndex;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * The in-memory Book indexes shared by all DAO instances: a full-text {@link SearchIndex}
+ * over titles, authors, publisher names and ISBNs, and a {@link PrefixIndex} completing
+ * titles, authors and ISBNs.
+ * <p>Both are filled by one streaming scan of the Books table, either explicitly at startup
+ * or by the first read, and then kept up to date by the committed Book changes the DAOs
+ * report, so searches and completions never touch the database.</p>
+ */
+final class BookSearch {
+
+    /**
+     * Field weights: title, author, publisher name, ISBN.
+     */
+    private static final int[] FIELD_WEIGHTS = {3, 2, 1, 3};
+
+    /**
+     * The number of rows fetched per round trip while building.
+     */
+    private static final int BUILD_FETCH_SIZE = 1000;
+
+    /**
+     * The indexes filled by the same scan.
+     */
+    private static final class Indexes {
+        private final SearchIndex text = new SearchIndex(FIELD_WEIGHTS);
+        private final PrefixIndex prefixes = new PrefixIndex();
+    }
+
+    /**
+     * The shared indexes.
+     */
+    private static final LiveIndex<Indexes> INDEXES = new LiveIndex<>(new Indexes(), BookSearch::load);
+
+    private BookSearch() {}
+
+    /**
+     * Searches the full-text index.
+     *
+     * @param query The search text.
+     * @param limit The maximum number of results.
+     * @return The IDs of the matching Books, best matches first.
+     */
+    static List<Long> search(String query, int limit) {
+        return INDEXES.get().text.search(query, limit);
+    }
+
+    /**
+     * Completes a title, author or ISBN prefix.
+     *
+     * @param prefix The typed text.
+     * @param limit  The maximum number of completions.
+     * @return The matching Books, in alphabetical order of the matched value.
+     */
+    static List<PrefixIndex.Completion> complete(String prefix, int limit) {
+        return INDEXES.get().prefixes.complete(prefix, limit);
+    }
+
+    /**
+     * Rebuilds the indexes from the database.
+     *
+     * @return The number of indexed Books.
+     */
+    static int rebuild() {
+        return INDEXES.rebuild();
+    }
+
+    /**
+     * Records a committed Book insert or update.
+     *
+     * @param book The Book, with its ID set.
+     */
+    static void bookChanged(Book book) {
+        Long id = book.getId();
+        String title = book.getTitle();
+        String author = book.getAuthor();
+        String publisherName = book.getPublisherName();
+        String isbn = book.getIsbn();
+        INDEXES.changed(indexes -> {
+            indexes.text.put(id, title, author, publisherName, isbn);
+            indexes.prefixes.put(completionEntry(id, title, author, isbn));
+        });
+    }
+
+    /**
+     * Records a committed Book deletion.
+     *
+     * @param bookId The deleted Book's ID.
+     */
+    static void bookRemoved(Long bookId) {
+        INDEXES.changed(indexes -> {
+            indexes.text.remove(bookId);
+            indexes.prefixes.remove(bookId);
+        });
+    }
+
+    /**
+     * Refills the indexes with one streaming, read-only scan of the Books table, in ID order.
+     *
+     * @param indexes The indexes.
+     * @return The number of indexed Books.
+     */
+    private static int load(Indexes indexes) {
+        indexes.text.clear();
+        List<PrefixIndex.Entry> completions = new ArrayList<>();
+        EntityManager em = JPAUtil.newEntityManager();
+        // In ID order every posting is appended, instead of inserted into its sorted list
+        try (Stream<Object[]> rows = em.createQuery(
+                        "SELECT b.id, b.title, b.author, b.publisherName, b.isbn FROM Book b ORDER BY b.id",
+                        Object[].class)
+                .setHint("org.hibernate.fetchSize", BUILD_FETCH_SIZE)
+                .setHint("org.hibernate.readOnly", true)
+                .getResultStream()) {
+            for (Object[] row : (Iterable<Object[]>) rows::iterator) {
+                Long id = (Long) row[0];
+                indexes.text.put(id, (String) row[1], (String) row[2], (String) row[3], (String) row[4]);
+                completions.add(completionEntry(id, (String) row[1], (String) row[2], (String) row[4]));
+            }
+        } finally {
+            em.close();
+        }
+        indexes.prefixes.replaceAll(completions);
+        return completions.size();
+    }
+
+    /**
+     * Creates the completion entry of a Book, labelled with its title, author and ISBN.
+     *
+     * @param id     The Book ID.
+     * @param title  The title.
+     * @param author The author.
+     * @param isbn   The ISBN.
+     * @return The entry.
+     */
+    private static PrefixIndex.Entry completionEntry(Long id, String title, String author, String isbn) {
+        return new PrefixIndex.Entry(id, title + " - " + author + " (ISBN " + isbn + ")", title, author, isbn);
+    }
+}
@@ -1,14 +1,34 @@
 package dao;
 
+import LibraryEntities.Book;
 import LibraryEntities.Borrowing;
 import LibraryEntities.Copy;
+import LibraryEntities.CopyStatus;
+import LibraryEntities.User;
+import LibraryUtil.ChangeEvent;
+import LibraryUtil.ChangeEvents;
+import LibraryUtil.CsvWriter;
 import LibraryUtil.JPAUtil;
+import LibraryUtil.RetryExecutor;
+import LibraryViews.BorrowingRow;
 
 import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import javax.persistence.OptimisticLockException;
 import javax.persistence.TypedQuery;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * @author tuxqeq
@@ -17,6 +37,54 @@ import java.util.Optional;
  */
 public class BorrowingDaoImpl implements Dao<Borrowing> {
 
+    /**
+     * Attributes {@link #findPage(String, Object, Long, int)} may sort by.
+     */
+    private static final Set<String> SORTABLE_KEYS = Set.of("borrowDate", "returnDate");
+
+    /**
+     * Selects the displayed columns of a Borrowing, with the user and book joined, as a {@link BorrowingRow}.
+     */
+    private static final String BORROWING_ROW_SELECT =
+            "SELECT NEW LibraryViews.BorrowingRow(b.id, u.name, bk.title, b.borrowDate, b.returnDate)"
+                    + " FROM Borrowing b JOIN b.user u JOIN b.copy c JOIN c.book bk";
+
+    /**
+     * The JPA lock timeout query hint.
+     */
+    private static final String LOCK_TIMEOUT_HINT = "javax.persistence.lock.timeout";
+
+    /**
+     * Lock timeout that asks Hibernate for {@code SKIP LOCKED} (its {@code LockOptions.SKIP_LOCKED});
+     * dialects without support fall back to a plain {@code FOR UPDATE}.
+     */
+    private static final int SKIP_LOCKED = -2;
+
+    /**
+     * The maximum number of IDs bound to a single IN list by {@link #returnCopies(Collection, LocalDate)}.
+     */
+    private static final int IN_LIST_CHUNK = 1000;
+
+    /**
+     * Hibernate's query hint for the JDBC fetch size.
+     */
+    private static final String FETCH_SIZE_HINT = "org.hibernate.fetchSize";
+
+    /**
+     * Hibernate's query hint for loading entities without dirty-checking snapshots.
+     */
+    private static final String READ_ONLY_HINT = "org.hibernate.readOnly";
+
+    /**
+     * The JDBC fetch size of {@link #exportHistory(Path, LocalDate, LocalDate, Long)}.
+     */
+    private static final int EXPORT_FETCH_SIZE = 1000;
+
+    /**
+     * The changed field reported when a Borrowing is returned or reopened.
+     */
+    private static final String RETURN_DATE = "returnDate";
+
     /**
      * Persists a new {@link Borrowing} entity in the database.
      *
@@ -30,6 +98,7 @@ public class BorrowingDaoImpl implements Dao<Borrowing> {
             em.getTransaction().begin();
             em.persist(entity);
             em.getTransaction().commit();
+            ChangeEvents.publish(ChangeEvent.created(Borrowing.class, entity.getId().longValue()));
             return entity;
         } finally {
             em.close();
@@ -38,7 +107,7 @@ public class BorrowingDaoImpl implements Dao<Borrowing> {
 
     /**
      * Finds a {@link Borrowing} by its ID (stored as an Integer).
-     * The Long ID is cast to int.
+     * The Long ID is cast to int. The user, copy and book are loaded in the same query.
      *
      * @param id The Long ID to find.
      * @return The Borrowing if found, otherwise null.
@@ -47,7 +116,8 @@ public class BorrowingDaoImpl implements Dao<Borrowing> {
     public Borrowing findById(Long id) {
         EntityManager em = JPAUtil.getEntityManager();
         try {
-            Borrowing borrowing = em.find(Borrowing.class, id.intValue());
+            Borrowing borrowing = em.find(Borrowing.class, id.intValue(),
+                    FetchPlans.hints(em, FetchPlans.BORROWING_TABLE_ROW));
             System.out.println("Retrieved Borrowing: " + borrowing);
             return borrowing;
         } finally {
@@ -56,7 +126,8 @@ public class BorrowingDaoImpl implements Dao<Borrowing> {
     }
 
     /**
-     * Retrieves all {@link Borrowing} entities from the database.
+     * Retrieves all {@link Borrowing} entities from the database,
+     * loading each row's user, copy and book in the same query.
      *
      * @return A list of all Borrowings.
      */
@@ -65,14 +136,31 @@ public class BorrowingDaoImpl implements Dao<Borrowing> {
         EntityManager em = JPAUtil.getEntityManager();
         try {
             TypedQuery<Borrowing> q = em.createQuery("SELECT b FROM Borrowing b", Borrowing.class);
-            return q.getResultList();
+            return FetchPlans.apply(em, q, FetchPlans.BORROWING_TABLE_ROW).getResultList();
         } finally {
             em.close();
         }
     }
 
+    /**
+     * Retrieves one page of {@link Borrowing} entities using keyset pagination. The Long ID is converted to int.
+     *
+     * @param sortKey        One of borrowDate, returnDate, or null to sort by ID only.
+     * @param afterSortValue The sort value of the last Borrowing of the previous page.
+     * @param afterId        The ID of the last Borrowing of the previous page, or null for the first page.
+     * @param pageSize       The maximum number of Borrowings to return.
+     * @return Up to {@code pageSize} Borrowings following the given position.
+     */
+    @Override
+    public List<Borrowing> findPage(String sortKey, Object afterSortValue, Long afterId, int pageSize) {
+        return KeysetPaging.fetch(Borrowing.class, SORTABLE_KEYS, sortKey, afterSortValue,
+                afterId == null ? null : afterId.intValue(), pageSize);
+    }
+
     /**
      * Updates an existing {@link Borrowing} in the database.
+     * Fails with an {@link javax.persistence.OptimisticLockException} if the Borrowing
+     * was changed since it was read.
      *
      * @param entity The Borrowing with updated fields.
      * @return The merged (updated) Borrowing entity.
@@ -84,15 +172,22 @@ public class BorrowingDaoImpl implements Dao<Borrowing> {
             em.getTransaction().begin();
             Borrowing merged = em.merge(entity);
             em.getTransaction().commit();
+            ChangeEvents.publish(ChangeEvent.updated(Borrowing.class, merged.getId().longValue()));
             return merged;
+        } catch (RuntimeException e) {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            throw e;
         } finally {
             em.close();
         }
     }
 
     /**
-     * Deletes a {@link Borrowing} by its ID. Also sets the associated Copy
-     * status to "Available" before removal.
+     * Deletes a {@link Borrowing} by its ID. If the loan was still open, the associated
+     * Copy is set to "Available" before removal; deleting a returned loan leaves the Copy
+     * alone, as it may have been lent again since.
      *
      * @param borrowingId The ID of the Borrowing to delete.
      */
@@ -101,16 +196,13 @@ public class BorrowingDaoImpl implements Dao<Borrowing> {
         EntityManager em = JPAUtil.getEntityManager();
         try {
             em.getTransaction().begin();
-            Borrowing borrowing = em.find(Borrowing.class, borrowingId.intValue());
-            if (borrowing != null) {
-                Copy copy = borrowing.getCopy();
-                if (copy != null) {
-                    copy.setStatus("Available");
-                    em.merge(copy);
-                }
-                em.remove(borrowing);
-            }
+            Copy returned = remove(em, borrowingId);
             em.getTransaction().commit();
+            ChangeEvents.publish(ChangeEvent.deleted(Borrowing.class, borrowingId));
+            if (returned != null) {
+                CopyAvailability.copyChanged(returned);
+                CatalogQueries.availabilityChanged();
+            }
         } finally {
             em.close();
         }
@@ -119,21 +211,552 @@ public class BorrowingDaoImpl implements Dao<Borrowing> {
     /**
      * Marks a borrowed copy as returned by setting the return date to now
      * and changing its status to "Available".
+     * Retried on concurrent updates, as described in {@link #updateReturnDate(Long, LocalDate)}.
      *
      * @param borrowingId The ID of the Borrowing whose Copy is being returned.
      */
     public void returnCopy(Long borrowingId) {
+        updateReturnDate(borrowingId, LocalDate.now());
+    }
+
+    /**
+     * Sets the return date of a {@link Borrowing} and the status of its Copy in one transaction:
+     * the Copy becomes available when the loan is closed, and borrowed again when it is reopened.
+     * Correcting the date of an already returned loan leaves the Copy alone, as it may have
+     * been lent again since.
+     * <p>Both rows are versioned. If another desk changed either of them concurrently,
+     * the transaction fails on commit and is retried with backoff on freshly read rows,
+     * so neither update is lost.</p>
+     *
+     * @param borrowingId The ID of the Borrowing.
+     * @param returnDate  The return date, or null to mark the loan as open again.
+     * @return The updated Borrowing, or null if not found.
+     * @throws IllegalArgumentException if the ID is null.
+     */
+    public Borrowing updateReturnDate(Long borrowingId, LocalDate returnDate) {
+        if (borrowingId == null) {
+            throw new IllegalArgumentException("ID cannot be null");
+        }
+        return RetryExecutor.DEFAULT.execute(() -> {
+            EntityManager em = JPAUtil.getEntityManager();
+            try {
+                em.getTransaction().begin();
+                Borrowing borrowing = em.find(Borrowing.class, borrowingId.intValue());
+                if (borrowing == null) {
+                    // Nothing was changed; a rollback would fail an enclosing unit of work
+                    em.getTransaction().commit();
+                    return null;
+                }
+                Copy copy = borrowing.getCopy();
+                boolean wasOpen = borrowing.getReturnDate() == null;
+                boolean availabilityChanged = false;
+                // Only the copy's open loan, or the loan being opened or closed, decides its status
+                if (wasOpen || returnDate == null) {
+                    CopyStatus status = returnDate == null ? CopyStatus.BORROWED : CopyStatus.AVAILABLE;
+                    availabilityChanged = copy.getCopyStatus() != status;
+                    copy.setCopyStatus(status);
+                }
+                borrowing.setReturnDate(returnDate);
+                em.getTransaction().commit();
+                ChangeEvents.publish(ChangeEvent.updated(Borrowing.class, borrowingId, RETURN_DATE));
+                if (availabilityChanged) {
+                    CopyAvailability.copyChanged(copy);
+                    CatalogQueries.availabilityChanged();
+                }
+                return borrowing;
+            } catch (RuntimeException e) {
+                if (em.getTransaction().isActive()) {
+                    em.getTransaction().rollback();
+                }
+                throw e;
+            } finally {
+                em.close();
+            }
+        });
+    }
+
+    /**
+     * Returns many loans at once, e.g. when processing the drop box.
+     * <p>Each chunk of up to {@value #IN_LIST_CHUNK} IDs costs three statements, however many
+     * rows it covers: one query for the open loans among the IDs and their copies, one
+     * set-based UPDATE of the Borrowings' return dates and one of the Copies' statuses.
+     * No entities are loaded. All chunks share one transaction, and if a loan is returned
+     * concurrently the whole batch is retried.</p>
+     *
+     * @param borrowingIds The IDs of the Borrowings to return.
+     * @param returnDate   The return date to set.
+     * @return The IDs that were returned, in ascending order per chunk, and the IDs that were
+     *         skipped because they are unknown or already returned, in the order given.
+     * @throws IllegalArgumentException if the collection, any ID or the date is null.
+     */
+    public BulkReturnResult returnCopies(Collection<Long> borrowingIds, LocalDate returnDate) {
+        if (borrowingIds == null || returnDate == null) {
+            throw new IllegalArgumentException("IDs and return date cannot be null");
+        }
+        Set<Long> requested = new LinkedHashSet<>();
+        for (Long id : borrowingIds) {
+            if (id == null) throw new IllegalArgumentException("Collection cannot contain null");
+            requested.add(id);
+        }
+        if (requested.isEmpty()) {
+            return new BulkReturnResult(List.of(), List.of());
+        }
+        return RetryExecutor.DEFAULT.execute(() -> returnCopiesOnce(new ArrayList<>(requested), returnDate));
+    }
+
+    /**
+     * Runs a single {@link #returnCopies(Collection, LocalDate)} attempt in its own transaction.
+     *
+     * @param ids        The distinct IDs of the Borrowings to return.
+     * @param returnDate The return date to set.
+     * @return The returned and skipped IDs.
+     */
+    private BulkReturnResult returnCopiesOnce(List<Long> ids, LocalDate returnDate) {
+        List<Long> returnedIds = new ArrayList<>();
+        List<Object[]> returnedCopies = new ArrayList<>();
         EntityManager em = JPAUtil.getEntityManager();
         try {
             em.getTransaction().begin();
-            Borrowing borrowing = em.find(Borrowing.class, borrowingId.intValue());
-            if (borrowing != null) {
-                borrowing.setReturnDate(LocalDate.now());
-                borrowing.getCopy().setStatus("Available");
+            for (int from = 0; from < ids.size(); from += IN_LIST_CHUNK) {
+                List<Integer> chunk = new ArrayList<>();
+                for (Long id : ids.subList(from, Math.min(from + IN_LIST_CHUNK, ids.size()))) {
+                    chunk.add(id.intValue());
+                }
+                List<Object[]> open = em.createQuery(
+                                "SELECT b.id, c.id, c.book.id FROM Borrowing b JOIN b.copy c"
+                                        + " WHERE b.id IN :ids AND b.returnDate IS NULL ORDER BY b.id", Object[].class)
+                        .setParameter("ids", chunk)
+                        .getResultList();
+                if (open.isEmpty()) {
+                    continue;
+                }
+                List<Integer> openIds = new ArrayList<>(open.size());
+                List<Long> copyIds = new ArrayList<>(open.size());
+                for (Object[] row : open) {
+                    openIds.add((Integer) row[0]);
+                    copyIds.add((Long) row[1]);
+                }
+                int updated = em.createQuery("UPDATE Borrowing b SET b.returnDate = :returnDate,"
+                                + " b.version = b.version + 1 WHERE b.id IN :ids AND b.returnDate IS NULL")
+                        .setParameter("returnDate", returnDate)
+                        .setParameter("ids", openIds)
+                        .executeUpdate();
+                if (updated != openIds.size()) {
+                    // Another desk returned one of these loans after the query above
+                    throw new OptimisticLockException("Borrowings were returned concurrently");
+                }
+                em.createQuery("UPDATE Copy c SET c.status = :available, c.version = c.version + 1"
+                                + " WHERE c.id IN :ids")
+                        .setParameter("available", CopyStatus.AVAILABLE)
+                        .setParameter("ids", copyIds)
+                        .executeUpdate();
+                for (Object[] row : open) {
+                    returnedIds.add(((Integer) row[0]).longValue());
+                    returnedCopies.add(row);
+                }
             }
             em.getTransaction().commit();
+        } catch (RuntimeException e) {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            throw e;
+        } finally {
+            em.close();
+        }
+
+        // The bulk UPDATE already evicted the Copy cache region; keep the bitmap in step
+        for (Object[] row : returnedCopies) {
+            CopyAvailability.statusChanged((Long) row[2], (Long) row[1], true);
+        }
+        if (!returnedCopies.isEmpty()) {
+            CatalogQueries.availabilityChanged();
+        }
+        returnedIds.forEach(id -> ChangeEvents.publish(ChangeEvent.updated(Borrowing.class, id, RETURN_DATE)));
+        Set<Long> returned = new HashSet<>(returnedIds);
+        List<Long> skippedIds = new ArrayList<>();
+        for (Long id : ids) {
+            if (!returned.contains(id)) {
+                skippedIds.add(id);
+            }
+        }
+        return new BulkReturnResult(returnedIds, skippedIds);
+    }
+
+    /**
+     * Lends an available copy of a Book to a User in a single transaction.
+     * <p>One available copy is claimed with a pessimistic row lock, so two concurrent
+     * checkouts can never lend the same copy. Copies already locked by another
+     * checkout are skipped rather than waited for where the database supports
+     * {@code SKIP LOCKED}. Elsewhere, e.g. on H2, the checkout waits for the other one to
+     * commit, re-reads the locked copy, and if it was lent meanwhile claims the next
+     * available one.</p>
+     * <p>Lock timeouts and version conflicts roll the attempt back and retry it with backoff.</p>
+     *
+     * @param userId     The ID of the borrowing User.
+     * @param bookId     The ID of the Book to borrow.
+     * @param borrowDate The date of the loan.
+     * @return The created Borrowing, or the reason no Borrowing was created.
+     * @throws IllegalArgumentException if any argument is null.
+     */
+    public CheckoutResult checkout(Long userId, Long bookId, LocalDate borrowDate) {
+        if (userId == null || bookId == null || borrowDate == null) {
+            throw new IllegalArgumentException("User ID, book ID and borrow date cannot be null");
+        }
+        return RetryExecutor.DEFAULT.execute(() -> checkoutOnce(userId, bookId, borrowDate));
+    }
+
+    /**
+     * Runs a single checkout attempt in its own transaction.
+     *
+     * @param userId     The ID of the borrowing User.
+     * @param bookId     The ID of the Book to borrow.
+     * @param borrowDate The date of the loan.
+     * @return The created Borrowing, or the reason no Borrowing was created.
+     */
+    private CheckoutResult checkoutOnce(Long userId, Long bookId, LocalDate borrowDate) {
+        EntityManager em = JPAUtil.getEntityManager();
+        try {
+            em.getTransaction().begin();
+            User user = em.find(User.class, userId.intValue());
+            if (user == null) {
+                // Nothing was changed; a rollback would fail an enclosing unit of work
+                em.getTransaction().commit();
+                return CheckoutResult.failed(CheckoutResult.Status.UNKNOWN_USER);
+            }
+            Copy copy = null;
+            long after = 0;
+            while (copy == null) {
+                List<Copy> claimed = em.createQuery(
+                                "SELECT c FROM Copy c WHERE c.book.id = :bookId AND c.status = :available"
+                                        + " AND c.id > :after ORDER BY c.id", Copy.class)
+                        .setParameter("bookId", bookId)
+                        .setParameter("available", CopyStatus.AVAILABLE)
+                        .setParameter("after", after)
+                        .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                        .setHint(LOCK_TIMEOUT_HINT, SKIP_LOCKED)
+                        .setMaxResults(1)
+                        .getResultList();
+                if (claimed.isEmpty()) {
+                    boolean bookExists = em.find(Book.class, bookId) != null;
+                    em.getTransaction().commit();
+                    return CheckoutResult.failed(bookExists
+                            ? CheckoutResult.Status.NO_COPY_AVAILABLE
+                            : CheckoutResult.Status.UNKNOWN_BOOK);
+                }
+                Copy candidate = claimed.get(0);
+                // Without SKIP LOCKED the lock may only be granted once another checkout of this
+                // copy has committed; re-read it under the lock and move past it if it was lent
+                em.refresh(candidate);
+                if (candidate.getCopyStatus() == CopyStatus.AVAILABLE) {
+                    copy = candidate;
+                } else {
+                    after = candidate.getId();
+                }
+            }
+            copy.setCopyStatus(CopyStatus.BORROWED);
+            Borrowing borrowing = new Borrowing(user, copy, borrowDate);
+            em.persist(borrowing);
+            em.getTransaction().commit();
+            ChangeEvents.publish(ChangeEvent.created(Borrowing.class, borrowing.getId().longValue()));
+            CopyAvailability.copyChanged(copy);
+            CatalogQueries.availabilityChanged();
+            return CheckoutResult.checkedOut(borrowing);
+        } catch (RuntimeException e) {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            throw e;
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * Persists all given {@link Borrowing} entities in a single transaction.
+     *
+     * @param entities The Borrowings to create.
+     * @return The persisted Borrowings with generated IDs.
+     * @throws IllegalArgumentException if the collection or any Borrowing is null.
+     */
+    @Override
+    public List<Borrowing> createAll(Collection<Borrowing> entities) {
+        List<Borrowing> created = BulkOperations.createAll(entities, EntityManager::persist);
+        created.forEach(borrowing ->
+                ChangeEvents.publish(ChangeEvent.created(Borrowing.class, borrowing.getId().longValue())));
+        return created;
+    }
+
+    /**
+     * Updates all given {@link Borrowing} entities in a single transaction.
+     *
+     * @param entities The Borrowings with updated fields.
+     * @return The merged (updated) Borrowings.
+     * @throws IllegalArgumentException if the collection or any Borrowing is null.
+     */
+    @Override
+    public List<Borrowing> updateAll(Collection<Borrowing> entities) {
+        List<Borrowing> merged = BulkOperations.updateAll(entities);
+        merged.forEach(borrowing ->
+                ChangeEvents.publish(ChangeEvent.updated(Borrowing.class, borrowing.getId().longValue())));
+        return merged;
+    }
+
+    /**
+     * Deletes all {@link Borrowing} entities with the given IDs in a single transaction.
+     * As with {@link #delete(Long)}, each associated Copy is set back to "Available".
+     *
+     * @param ids The IDs of the Borrowings to delete.
+     * @throws IllegalArgumentException if the collection or any ID is null.
+     */
+    @Override
+    public void deleteAll(Collection<Long> ids) {
+        List<Copy> returned = new ArrayList<>();
+        BulkOperations.deleteAll(ids, (em, id) -> {
+            Copy copy = remove(em, id);
+            if (copy != null) {
+                returned.add(copy);
+            }
+        });
+        returned.forEach(CopyAvailability::copyChanged);
+        if (!returned.isEmpty()) {
+            CatalogQueries.availabilityChanged();
+        }
+        ids.forEach(id -> ChangeEvents.publish(ChangeEvent.deleted(Borrowing.class, id)));
+    }
+
+    /**
+     * Removes the {@link Borrowing} with the given ID within the caller's transaction,
+     * setting the associated Copy status to "Available" if the loan was still open.
+     *
+     * @param em          The EntityManager to use.
+     * @param borrowingId The ID of the Borrowing to remove.
+     * @return The associated Copy if its status changed, otherwise null.
+     */
+    private Copy remove(EntityManager em, Long borrowingId) {
+        Borrowing borrowing = em.find(Borrowing.class, borrowingId.intValue());
+        Copy returned = null;
+        if (borrowing != null) {
+            Copy copy = borrowing.getCopy();
+            // Only the copy's open loan decides its status
+            if (copy != null && borrowing.getReturnDate() == null) {
+                if (!copy.isAvailable()) {
+                    returned = copy;
+                }
+                copy.setCopyStatus(CopyStatus.AVAILABLE);
+                em.merge(copy);
+            }
+            em.remove(borrowing);
+        }
+        return returned;
+    }
+
+    /**
+     * Retrieves all {@link Borrowing} records of a user, loading each row's
+     * copy and book in the same query.
+     *
+     * @param userId The Long ID (converted to int) of the User.
+     * @return The user's Borrowings, oldest first.
+     */
+    public List<Borrowing> findByUser(Long userId) {
+        EntityManager em = JPAUtil.getEntityManager();
+        try {
+            TypedQuery<Borrowing> q = em.createQuery(
+                    "SELECT b FROM Borrowing b WHERE b.user.id = :uid ORDER BY b.borrowDate, b.id", Borrowing.class);
+            q.setParameter("uid", userId.intValue());
+            return FetchPlans.apply(em, q, FetchPlans.BORROWING_TABLE_ROW).getResultList();
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * Retrieves the active loans of a user, i.e. the {@link Borrowing} records
+     * that have not been returned yet, loading each row's copy and book in the same query.
+     *
+     * @param userId The Long ID (converted to int) of the User.
+     * @return The user's unreturned Borrowings, oldest first.
+     */
+    public List<Borrowing> findActiveByUser(Long userId) {
+        EntityManager em = JPAUtil.getEntityManager();
+        try {
+            TypedQuery<Borrowing> q = em.createQuery(
+                    "SELECT b FROM Borrowing b WHERE b.user.id = :uid AND b.returnDate IS NULL"
+                            + " ORDER BY b.borrowDate, b.id", Borrowing.class);
+            q.setParameter("uid", userId.intValue());
+            return FetchPlans.apply(em, q, FetchPlans.BORROWING_TABLE_ROW).getResultList();
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * Streams the overdue loans, i.e. the unreturned {@link Borrowing} records borrowed
+     * before {@code cutoff}, oldest first, with each row's user, copy and book loaded.
+     * <p>Rows are read through a forward-only cursor, {@code fetchSize} rows per round trip,
+     * and the persistence context is cleared every {@code fetchSize} rows, so a scan over
+     * any number of loans runs in constant memory. The streamed Borrowings are read-only
+     * and detached once the next batch is read. Inside a {@link LibraryUtil.UnitOfWork} the unit's
+     * persistence context is never cleared, so its entities stay managed and memory grows
+     * with the number of streamed loans.</p>
+     * <p>The stream holds an open EntityManager and cursor and must be closed, e.g. with
+     * try-with-resources.</p>
+     *
+     * @param cutoff    Loans borrowed before this date are overdue.
+     * @param fetchSize The number of rows fetched per round trip and kept between clears.
+     * @return A stream of overdue Borrowings that must be closed after use.
+     * @throws IllegalArgumentException if the cutoff is null or the fetch size is not positive.
+     */
+    public Stream<Borrowing> streamOverdue(LocalDate cutoff, int fetchSize) {
+        if (cutoff == null) throw new IllegalArgumentException("Cutoff cannot be null");
+        if (fetchSize <= 0) throw new IllegalArgumentException("Fetch size must be greater than 0");
+        EntityManager em = JPAUtil.getEntityManager();
+        try {
+            TypedQuery<Borrowing> q = em.createQuery(
+                    "SELECT b FROM Borrowing b WHERE b.returnDate IS NULL AND b.borrowDate < :cutoff"
+                            + " ORDER BY b.borrowDate, b.id", Borrowing.class);
+            q.setParameter("cutoff", cutoff);
+            q.setHint(FETCH_SIZE_HINT, fetchSize);
+            q.setHint(READ_ONLY_HINT, true);
+            long[] streamed = {0};
+            return FetchPlans.apply(em, q, FetchPlans.BORROWING_TABLE_ROW).getResultStream()
+                    .peek(borrowing -> {
+                        if (++streamed[0] % fetchSize == 0) {
+                            em.clear();
+                        }
+                    })
+                    .onClose(em::close);
+        } catch (RuntimeException e) {
+            em.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Passes every overdue loan to {@code action}, as streamed by {@link #streamOverdue(LocalDate, int)}.
+     *
+     * @param cutoff    Loans borrowed before this date are overdue.
+     * @param fetchSize The number of rows fetched per round trip and kept between clears.
+     * @param action    Called once per overdue Borrowing, oldest first.
+     * @return The number of overdue loans.
+     * @throws IllegalArgumentException if the cutoff or action is null or the fetch size is not positive.
+     */
+    public long scanOverdue(LocalDate cutoff, int fetchSize, Consumer<Borrowing> action) {
+        if (action == null) throw new IllegalArgumentException("Action cannot be null");
+        long count = 0;
+        try (Stream<Borrowing> overdue = streamOverdue(cutoff, fetchSize)) {
+            Iterator<Borrowing> it = overdue.iterator();
+            while (it.hasNext()) {
+                action.accept(it.next());
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Exports the borrowing history to a CSV file, one row per {@link Borrowing} with the
+     * user name, book title and ISBN joined in SQL, ordered by ID.
+     * <p>Rows are read as scalar projections through a forward-only cursor, so no entities are
+     * loaded, and written through a {@link CsvWriter}, so neither side holds more than one
+     * fetch of rows and one output buffer at a time, however long the history is.</p>
+     *
+     * @param file   The CSV file to create or overwrite.
+     * @param from   Only loans borrowed on or after this date, or null for no lower bound.
+     * @param to     Only loans borrowed on or before this date, or null for no upper bound.
+     * @param userId Only loans of this User, or null for all users.
+     * @return The number of exported loans.
+     * @throws IllegalArgumentException if the file is null.
+     * @throws IOException              if the file cannot be written.
+     */
+    public long exportHistory(Path file, LocalDate from, LocalDate to, Long userId) throws IOException {
+        if (file == null) throw new IllegalArgumentException("File cannot be null");
+        List<String> conditions = new ArrayList<>();
+        if (from != null) conditions.add("b.borrowDate >= :from");
+        if (to != null) conditions.add("b.borrowDate <= :to");
+        if (userId != null) conditions.add("u.id = :uid");
+        StringBuilder jpql = new StringBuilder("SELECT b.id, u.id, u.name, bk.title, bk.isbn, b.borrowDate, b.returnDate"
+                + " FROM Borrowing b JOIN b.user u JOIN b.copy c JOIN c.book bk");
+        if (!conditions.isEmpty()) {
+            jpql.append(" WHERE ").append(String.join(" AND ", conditions));
+        }
+        jpql.append(" ORDER BY b.id");
+
+        EntityManager em = JPAUtil.getEntityManager();
+        try (CsvWriter csv = new CsvWriter(file)) {
+            TypedQuery<Object[]> q = em.createQuery(jpql.toString(), Object[].class);
+            if (from != null) q.setParameter("from", from);
+            if (to != null) q.setParameter("to", to);
+            if (userId != null) q.setParameter("uid", userId.intValue());
+            q.setHint(FETCH_SIZE_HINT, EXPORT_FETCH_SIZE);
+
+            csv.writeRow("borrowing_id", "user_id", "user_name", "book_title", "isbn", "borrow_date", "return_date");
+            long count = 0;
+            try (Stream<Object[]> rows = q.getResultStream()) {
+                Iterator<Object[]> it = rows.iterator();
+                while (it.hasNext()) {
+                    csv.writeRow(it.next());
+                    count++;
+                }
+            }
+            return count;
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * Retrieves the table row of one {@link Borrowing}, e.g. to update a table after a change event.
+     *
+     * @param id The Long ID (converted to int) of the Borrowing.
+     * @return The Borrowing's row, or null if not found.
+     * @throws IllegalArgumentException if the ID is null.
+     */
+    public BorrowingRow findRow(Long id) {
+        if (id == null) throw new IllegalArgumentException("ID cannot be null");
+        EntityManager em = JPAUtil.getEntityManager();
+        try {
+            return em.createQuery(BORROWING_ROW_SELECT + " WHERE b.id = :id", BorrowingRow.class)
+                    .setParameter("id", id.intValue())
+                    .getResultStream()
+                    .findFirst()
+                    .orElse(null);
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * Retrieves the table rows of all {@link Borrowing} records, ordered by ID.
+     * The user name and book title are joined in SQL; no entities are loaded.
+     *
+     * @return One row per Borrowing.
+     */
+    public List<BorrowingRow> findRows() {
+        EntityManager em = JPAUtil.getEntityManager();
+        try {
+            return em.createQuery(BORROWING_ROW_SELECT + " ORDER BY b.id", BorrowingRow.class)
+                    .getResultList();
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * Retrieves the table rows of a user's {@link Borrowing} history.
+     *
+     * @param userId The Long ID (converted to int) of the User.
+     * @return One row per Borrowing of the user, oldest first.
+     */
+    public List<BorrowingRow> findRowsByUser(Long userId) {
+        EntityManager em = JPAUtil.getEntityManager();
+        try {
+            return em.createQuery(BORROWING_ROW_SELECT
+                            + " WHERE u.id = :uid ORDER BY b.borrowDate, b.id", BorrowingRow.class)
+                    .setParameter("uid", userId.intValue())
+                    .getResultList();
         } finally {
             em.close();
         }
     }
-}
\ No newline at end of file
+}
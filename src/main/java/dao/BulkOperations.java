@@ -0,0 +1,123 @@
+package dao;
+
+import LibraryUtil.JPAUtil;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+
+/**
+ * Shared implementation of the bulk {@code createAll}, {@code updateAll} and {@code deleteAll}
+ * DAO operations.
+ * <p>All elements are written in a single transaction. The persistence context is flushed
+ * and cleared every {@link JPAUtil#getBatchSize()} elements, so Hibernate sends the pending
+ * statements as one JDBC batch and memory stays bounded for large collections. Inside a
+ * {@link LibraryUtil.UnitOfWork} the batches are only flushed: the unit's persistence context
+ * still holds its own entities and changes, so every written entity stays managed until
+ * the unit ends.</p>
+ */
+final class BulkOperations {
+
+    private BulkOperations() {}
+
+    /**
+     * Persists all entities in one transaction.
+     *
+     * @param entities The entities to persist.
+     * @param persist  Persists a single entity with the given EntityManager.
+     * @param <T>      The entity type.
+     * @return The persisted entities, in the order given, with generated IDs.
+     * @throws IllegalArgumentException if the collection or any element is null.
+     */
+    static <T> List<T> createAll(Collection<T> entities, BiConsumer<EntityManager, T> persist) {
+        return write(entities, (em, entity) -> {
+            persist.accept(em, entity);
+            return entity;
+        });
+    }
+
+    /**
+     * Merges all entities in one transaction.
+     *
+     * @param entities The detached entities with updated fields.
+     * @param <T>      The entity type.
+     * @return The merged entities, in the order given.
+     * @throws IllegalArgumentException if the collection or any element is null.
+     */
+    static <T> List<T> updateAll(Collection<T> entities) {
+        return updateAll(entities, EntityManager::merge);
+    }
+
+    /**
+     * Merges all entities in one transaction with a custom per-entity merge,
+     * e.g. one that compares each entity with its stored state first.
+     *
+     * @param entities The detached entities with updated fields.
+     * @param merge    Merges a single entity with the given EntityManager and returns the managed one.
+     * @param <T>      The entity type.
+     * @return The merged entities, in the order given.
+     * @throws IllegalArgumentException if the collection or any element is null.
+     */
+    static <T> List<T> updateAll(Collection<T> entities, BiFunction<EntityManager, T, T> merge) {
+        return write(entities, merge);
+    }
+
+    /**
+     * Removes all entities with the given IDs in one transaction.
+     * If any removal fails, nothing is deleted.
+     *
+     * @param ids    The IDs of the entities to delete.
+     * @param remove Removes a single entity by ID with the given EntityManager.
+     * @throws IllegalArgumentException if the collection or any ID is null.
+     */
+    static void deleteAll(Collection<Long> ids, BiConsumer<EntityManager, Long> remove) {
+        write(ids, (em, id) -> {
+            remove.accept(em, id);
+            return id;
+        });
+    }
+
+    /**
+     * Applies {@code operation} to every element inside a single transaction,
+     * flushing and clearing after each full batch.
+     *
+     * @param elements  The elements to write.
+     * @param operation The per-element write.
+     * @param <E>       The element type.
+     * @param <R>       The result type.
+     * @return The per-element results.
+     */
+    private static <E, R> List<R> write(Collection<E> elements, BiFunction<EntityManager, E, R> operation) {
+        if (elements == null) throw new IllegalArgumentException("Collection cannot be null");
+        for (E element : elements) {
+            if (element == null) throw new IllegalArgumentException("Collection cannot contain null");
+        }
+
+        int batchSize = JPAUtil.getBatchSize();
+        List<R> results = new ArrayList<>(elements.size());
+        EntityManager em = JPAUtil.getEntityManager();
+        try {
+            em.getTransaction().begin();
+            int count = 0;
+            for (E element : elements) {
+                results.add(operation.apply(em, element));
+                if (++count % batchSize == 0) {
+                    em.flush();
+                    em.clear();
+                }
+            }
+            em.getTransaction().commit();
+            return results;
+        } catch (RuntimeException e) {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            throw e;
+        } finally {
+            em.close();
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package dao;
+
+import java.util.List;
+
+/**
+ * The outcome of {@link BorrowingDaoImpl#returnCopies(java.util.Collection, java.time.LocalDate)}.
+ */
+public final class BulkReturnResult {
+
+    /**
+     * The IDs of the Borrowings that were returned.
+     */
+    private final List<Long> returnedIds;
+
+    /**
+     * The IDs that were skipped because no open Borrowing has them,
+     * i.e. unknown IDs and loans that were already returned.
+     */
+    private final List<Long> skippedIds;
+
+    /**
+     * Constructs a result.
+     *
+     * @param returnedIds The IDs of the returned Borrowings.
+     * @param skippedIds  The skipped IDs.
+     */
+    BulkReturnResult(List<Long> returnedIds, List<Long> skippedIds) {
+        this.returnedIds = List.copyOf(returnedIds);
+        this.skippedIds = List.copyOf(skippedIds);
+    }
+
+    public List<Long> getReturnedIds() { return returnedIds; }
+
+    public List<Long> getSkippedIds() { return skippedIds; }
+}
@@ -0,0 +1,50 @@
+package dao;
+
+/**
+ * The outcome of a {@link CatalogImporter} run.
+ */
+public final class CatalogImportResult {
+
+    /**
+     * The number of data lines read, excluding the header and blank lines.
+     */
+    private final long processed;
+
+    /**
+     * The number of Books inserted.
+     */
+    private final long importedTitles;
+
+    /**
+     * The number of Copies inserted.
+     */
+    private final long importedCopies;
+
+    /**
+     * The number of lines written to the rejects file.
+     */
+    private final long rejected;
+
+    /**
+     * Constructs a result.
+     *
+     * @param processed      The number of data lines read.
+     * @param importedTitles The number of Books inserted.
+     * @param importedCopies The number of Copies inserted.
+     * @param rejected       The number of rejected lines.
+     */
+    CatalogImportResult(long processed, long importedTitles, long importedCopies, long rejected) {
+        this.processed = processed;
+        this.importedTitles = importedTitles;
+        this.importedCopies = importedCopies;
+        this.rejected = rejected;
+    }
+
+    public long getProcessed() { return processed; }
+
+    public long getImportedTitles() { return importedTitles; }
+
+    public long getImportedCopies() { return importedCopies; }
+
+    public long getRejected() { return rejected; }
+}
@@ -0,0 +1,360 @@
+package dao;
+
+import LibraryEntities.Book;
+import LibraryEntities.Copy;
+import LibraryEntities.CopyStatus;
+import LibraryEntities.Publisher;
+import LibraryUtil.ChangeEvent;
+import LibraryUtil.ChangeEvents;
+import LibraryUtil.CsvParser;
+import LibraryUtil.CsvWriter;
+import LibraryUtil.JPAUtil;
+
+import javax.persistence.CacheStoreMode;
+import javax.persistence.EntityManager;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+/**
+ * Imports Books and their Copies from a CSV file.
+ * <p>Each line holds {@code title,author,publisher,isbn,publicationYear,copies}; a header line
+ * starting with {@code title} is skipped. The file is read in chunks. While one chunk is
+ * written, the next one is parsed and validated in parallel. Each chunk is then written in
+ * its own transaction:</p>
+ * <ul>
+ *     <li>ISBNs repeated within the chunk or already stored (including by earlier chunks) are rejected;</li>
+ *     <li>publisher names are resolved to existing {@link Publisher} rows, ignoring case;</li>
+ *     <li>Books and Copies are inserted in JDBC batches, bypassing the second-level cache;</li>
+ *     <li>the new Books are added to the search index once the chunk has committed.</li>
+ * </ul>
+ * <p>Rejected lines are written to a rejects CSV file with their line number and reason,
+ * and the listener is told about progress after every chunk.</p>
+ */
+public class CatalogImporter {
+
+    /**
+     * Receives the running totals of an import after every chunk.
+     */
+    public interface ProgressListener {
+
+        /**
+         * Called after a chunk was written.
+         *
+         * @param progress The totals so far.
+         */
+        void onProgress(CatalogImportResult progress);
+    }
+
+    /**
+     * The default number of lines per chunk.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 2000;
+
+    /**
+     * The JPA property selecting whether reads and writes are put into the second-level cache.
+     */
+    private static final String CACHE_STORE_MODE = "javax.persistence.cache.storeMode";
+
+    /**
+     * One parsed and validated line.
+     */
+    private static final class Line {
+        private final long line;
+        private final String raw;
+        private String reason;
+        private String title;
+        private String author;
+        private String publisher;
+        private String isbn;
+        private int publicationYear;
+        private int copies;
+
+        private Line(long line, String raw) {
+            this.line = line;
+            this.raw = raw;
+        }
+    }
+
+    /**
+     * The number of lines per chunk and transaction.
+     */
+    private final int chunkSize;
+
+    /**
+     * Constructs an importer with {@link #DEFAULT_CHUNK_SIZE} lines per chunk.
+     */
+    public CatalogImporter() {
+        this(DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Constructs an importer.
+     *
+     * @param chunkSize The number of lines per chunk and transaction.
+     * @throws IllegalArgumentException if the chunk size is not positive.
+     */
+    public CatalogImporter(int chunkSize) {
+        if (chunkSize <= 0) throw new IllegalArgumentException("Chunk size must be greater than 0");
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Imports a catalog CSV file.
+     *
+     * @param source   The CSV file to import.
+     * @param rejects  The CSV file to write rejected lines to; created or overwritten.
+     * @param listener Receives progress after every chunk, or null.
+     * @return The final totals.
+     * @throws IllegalArgumentException if a file is null.
+     * @throws IOException              if a file cannot be read or written.
+     */
+    public CatalogImportResult importCsv(Path source, Path rejects, ProgressListener listener) throws IOException {
+        if (source == null || rejects == null) throw new IllegalArgumentException("Files cannot be null");
+        Map<String, Integer> publishers = loadPublishers();
+        long[] totals = new long[4]; // processed, titles, copies, rejected
+
+        try (BufferedReader reader = Files.newBufferedReader(source, StandardCharsets.UTF_8);
+             CsvWriter rejectsCsv = new CsvWriter(rejects)) {
+            rejectsCsv.writeRow("line", "reason", "record");
+            long[] lineNumber = {0};
+            CompletableFuture<List<Line>> pending = null;
+            while (true) {
+                List<Line> chunk = readChunk(reader, lineNumber);
+                CompletableFuture<List<Line>> parsing = chunk.isEmpty() ? null
+                        : CompletableFuture.supplyAsync(() -> chunk.parallelStream()
+                        .map(CatalogImporter::parse)
+                        .collect(Collectors.toList()));
+                if (pending != null) {
+                    write(pending.join(), publishers, rejectsCsv, totals);
+                    if (listener != null) {
+                        listener.onProgress(toResult(totals));
+                    }
+                }
+                if (parsing == null) {
+                    break;
+                }
+                pending = parsing;
+            }
+        } finally {
+            if (totals[1] > 0) {
+                CatalogQueries.titlesChanged();
+            }
+        }
+        return toResult(totals);
+    }
+
+    /**
+     * Reads up to {@link #chunkSize} non-blank lines, skipping a leading header line.
+     *
+     * @param reader     The source.
+     * @param lineNumber The number of the last line read; advanced as lines are read.
+     * @return The raw lines, or an empty list at the end of the file.
+     * @throws IOException if reading fails.
+     */
+    private List<Line> readChunk(BufferedReader reader, long[] lineNumber) throws IOException {
+        List<Line> chunk = new ArrayList<>(chunkSize);
+        String line;
+        while (chunk.size() < chunkSize && (line = reader.readLine()) != null) {
+            lineNumber[0]++;
+            if (line.isBlank()) {
+                continue;
+            }
+            if (lineNumber[0] == 1 && line.regionMatches(true, 0, "title", 0, 5)) {
+                continue;
+            }
+            chunk.add(new Line(lineNumber[0], line));
+        }
+        return chunk;
+    }
+
+    /**
+     * Parses and validates one line. Runs in parallel, so it must not touch shared state.
+     *
+     * @param record The raw line.
+     * @return The same record, with either its fields or a rejection reason set.
+     */
+    private static Line parse(Line record) {
+        try {
+            List<String> fields = CsvParser.parse(record.raw);
+            if (fields.size() != 6) {
+                record.reason = "Expected 6 fields but found " + fields.size();
+                return record;
+            }
+            record.title = fields.get(0).trim();
+            record.author = fields.get(1).trim();
+            record.publisher = fields.get(2).trim();
+            record.isbn = fields.get(3).trim();
+            if (record.title.isEmpty()) {
+                record.reason = "Title is required";
+            } else if (record.isbn.isEmpty()) {
+                record.reason = "ISBN is required";
+            } else {
+                record.publicationYear = Integer.parseInt(fields.get(4).trim());
+                record.copies = Integer.parseInt(fields.get(5).trim());
+                if (record.copies <= 0) {
+                    record.reason = "Number of copies must be greater than 0";
+                }
+            }
+        } catch (NumberFormatException e) {
+            record.reason = "Publication year and copies must be numbers";
+        } catch (IllegalArgumentException e) {
+            record.reason = "Malformed CSV: " + e.getMessage();
+        }
+        return record;
+    }
+
+    /**
+     * Rejects invalid and duplicate records of a chunk and inserts the rest in one transaction.
+     *
+     * @param records    The parsed chunk.
+     * @param publishers Publisher IDs by lower-case name.
+     * @param rejects    The rejects file.
+     * @param totals     The running totals; updated.
+     * @throws IOException if the rejects file cannot be written.
+     */
+    private void write(List<Line> records, Map<String, Integer> publishers, CsvWriter rejects, long[] totals)
+            throws IOException {
+        totals[0] += records.size();
+        List<Line> valid = new ArrayList<>(records.size());
+        Set<String> chunkIsbns = new HashSet<>();
+        for (Line record : records) {
+            if (record.reason == null && !chunkIsbns.add(record.isbn)) {
+                record.reason = "Duplicate ISBN " + record.isbn;
+            }
+            if (record.reason == null) {
+                valid.add(record);
+            }
+        }
+
+        EntityManager em = JPAUtil.getEntityManager();
+        List<Book> books = new ArrayList<>(valid.size());
+        try {
+            if (!valid.isEmpty()) {
+                Set<String> existing = new HashSet<>(em.createQuery(
+                                "SELECT b.isbn FROM Book b WHERE b.isbn IN :isbns", String.class)
+                        .setParameter("isbns", new ArrayList<>(chunkIsbns))
+                        .getResultList());
+                valid.removeIf(record -> {
+                    if (existing.contains(record.isbn)) {
+                        record.reason = "ISBN " + record.isbn + " already exists";
+                        return true;
+                    }
+                    return false;
+                });
+            }
+            if (!valid.isEmpty()) {
+                // A bulk load would only churn the second-level cache
+                em.setProperty(CACHE_STORE_MODE, CacheStoreMode.BYPASS);
+                int batchSize = JPAUtil.getBatchSize();
+                long copies = 0;
+                int pending = 0;
+                em.getTransaction().begin();
+                for (Line record : valid) {
+                    Book book = new Book(record.title, record.author, record.publisher,
+                            record.publicationYear, record.isbn);
+                    Integer publisherId = publishers.get(record.publisher.toLowerCase(Locale.ROOT));
+                    if (publisherId != null) {
+                        book.setPublisher(em.getReference(Publisher.class, publisherId));
+                    }
+                    em.persist(book);
+                    books.add(book);
+                    pending = flushFullBatch(em, pending + 1, batchSize);
+                    // Copies only need the Book's ID, so it may have been cleared with the last batch
+                    for (int i = 0; i < record.copies; i++) {
+                        em.persist(new Copy(book, CopyStatus.AVAILABLE));
+                        pending = flushFullBatch(em, pending + 1, batchSize);
+                    }
+                    copies += record.copies;
+                }
+                em.getTransaction().commit();
+                totals[1] += valid.size();
+                totals[2] += copies;
+            }
+        } catch (RuntimeException e) {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            books.clear();
+            for (Line record : valid) {
+                record.reason = "Insert failed: " + e.getMessage();
+            }
+        } finally {
+            em.close();
+        }
+
+        for (Book book : books) {
+            // Book IDs may have been probed before they were allocated; drop any stale bitmap entry
+            CopyAvailability.bookRemoved(book.getId());
+            BookSearch.bookChanged(book);
+            NaturalKeys.bookChanged(book);
+            ChangeEvents.publish(ChangeEvent.created(Book.class, book.getId()));
+        }
+        for (Line record : records) {
+            if (record.reason != null) {
+                rejects.writeRow(record.line, record.reason, record.raw);
+                totals[3]++;
+            }
+        }
+    }
+
+    /**
+     * Flushes and clears the persistence context once a full JDBC batch is pending.
+     * Inside a {@link LibraryUtil.UnitOfWork} the context is only flushed.
+     *
+     * @param em        The EntityManager.
+     * @param pending   The number of pending inserts.
+     * @param batchSize The JDBC batch size.
+     * @return The number of inserts still pending.
+     */
+    private static int flushFullBatch(EntityManager em, int pending, int batchSize) {
+        if (pending < batchSize) {
+            return pending;
+        }
+        em.flush();
+        em.clear();
+        return 0;
+    }
+
+    /**
+     * Loads the ID of every Publisher by lower-case name.
+     *
+     * @return The publisher IDs; when names collide, the lowest ID wins.
+     */
+    private static Map<String, Integer> loadPublishers() {
+        EntityManager em = JPAUtil.getEntityManager();
+        try {
+            Map<String, Integer> publishers = new HashMap<>();
+            for (Object[] row : em.createQuery("SELECT p.id, p.name FROM Publisher p ORDER BY p.id", Object[].class)
+                    .getResultList()) {
+                if (row[1] != null) {
+                    publishers.putIfAbsent(((String) row[1]).trim().toLowerCase(Locale.ROOT), (Integer) row[0]);
+                }
+            }
+            return publishers;
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * Converts the running totals to a result.
+     *
+     * @param totals The processed, title, copy and rejected counts.
+     * @return The result.
+     */
+    private static CatalogImportResult toResult(long[] totals) {
+        return new CatalogImportResult(totals[0], totals[1], totals[2], totals[3]);
+    }
+}
@@ -0,0 +1,80 @@
+package dao;
+
+import LibraryUtil.CacheStatistics;
+import LibraryUtil.QueryResultCache;
+import LibraryUtil.UnitOfWork;
+import LibraryViews.BookRow;
+
+import java.util.List;
+
+/**
+ * The cached catalog queries shared by all DAO instances.
+ * <p>Entity queries only cache the IDs of the matching Books; the Books themselves are
+ * then loaded by ID, from the second-level cache where present and by batched queries
+ * otherwise. Row queries cache the immutable
+ * {@link BookRow} lists directly. The DAOs call {@link #availabilityChanged()}
+ * whenever a Copy's status changes or an available Copy is added or removed,
+ * and {@link #titlesChanged()} whenever a Book is added, changed or removed.</p>
+ */
+final class CatalogQueries {
+
+    /**
+     * Key of the Books with at least one "Available" copy.
+     */
+    static final String AVAILABLE_TITLES = "availableTitles";
+
+    /**
+     * Key of all Books.
+     */
+    static final String ALL_TITLES = "allTitles";
+
+    /**
+     * The shared cache of Book ID lists.
+     */
+    static final QueryResultCache<List<Long>> CACHE = new QueryResultCache<>("catalogQueries");
+
+    /**
+     * The shared cache of Book table rows.
+     */
+    static final QueryResultCache<List<BookRow>> ROW_CACHE = new QueryResultCache<>("catalogRows");
+
+    private CatalogQueries() {}
+
+    /**
+     * Invalidates the queries that depend on Copy availability.
+     */
+    static void availabilityChanged() {
+        UnitOfWork.afterCommit(() -> {
+            CACHE.invalidate(AVAILABLE_TITLES);
+            ROW_CACHE.invalidate(AVAILABLE_TITLES);
+        });
+    }
+
+    /**
+     * Invalidates the queries that depend on which Books exist or on their fields.
+     */
+    static void titlesChanged() {
+        UnitOfWork.afterCommit(() -> {
+            CACHE.invalidateAll();
+            ROW_CACHE.invalidateAll();
+        });
+    }
+
+    /**
+     * Returns the hit and miss counters of the catalog query cache.
+     *
+     * @return A snapshot of the counters.
+     */
+    static CacheStatistics statistics() {
+        return CACHE.getStatistics();
+    }
+
+    /**
+     * Returns the hit and miss counters of the catalog row cache.
+     *
+     * @return A snapshot of the counters.
+     */
+    static CacheStatistics rowStatistics() {
+        return ROW_CACHE.getStatistics();
+    }
+}
@@ -0,0 +1,83 @@
+package dao;
+
+import LibraryEntities.Borrowing;
+
+/**
+ * The outcome of {@link BorrowingDaoImpl#checkout(Long, Long, java.time.LocalDate)}.
+ */
+public final class CheckoutResult {
+
+    /**
+     * The possible outcomes of a checkout.
+     */
+    public enum Status {
+
+        /**
+         * A copy was claimed and the Borrowing created.
+         */
+        CHECKED_OUT,
+
+        /**
+         * No User has the given ID.
+         */
+        UNKNOWN_USER,
+
+        /**
+         * No Book has the given ID.
+         */
+        UNKNOWN_BOOK,
+
+        /**
+         * The Book exists, but every copy is borrowed or being claimed by another checkout.
+         */
+        NO_COPY_AVAILABLE
+    }
+
+    /**
+     * The outcome.
+     */
+    private final Status status;
+
+    /**
+     * The created Borrowing, or null unless the status is {@link Status#CHECKED_OUT}.
+     */
+    private final Borrowing borrowing;
+
+    private CheckoutResult(Status status, Borrowing borrowing) {
+        this.status = status;
+        this.borrowing = borrowing;
+    }
+
+    /**
+     * Creates a successful result.
+     *
+     * @param borrowing The created Borrowing.
+     * @return A {@link Status#CHECKED_OUT} result.
+     */
+    static CheckoutResult checkedOut(Borrowing borrowing) {
+        return new CheckoutResult(Status.CHECKED_OUT, borrowing);
+    }
+
+    /**
+     * Creates a failed result.
+     *
+     * @param status The reason the checkout failed.
+     * @return A result without a Borrowing.
+     */
+    static CheckoutResult failed(Status status) {
+        return new CheckoutResult(status, null);
+    }
+
+    public Status getStatus() { return status; }
+
+    public Borrowing getBorrowing() { return borrowing; }
+
+    /**
+     * Checks whether the checkout succeeded.
+     *
+     * @return True if a Borrowing was created.
+     */
+    public boolean isCheckedOut() {
+        return status == Status.CHECKED_OUT;
+    }
+}
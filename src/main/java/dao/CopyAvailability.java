@@ -0,0 +1,179 @@
+package dao;
+
+import LibraryEntities.Book;
+import LibraryEntities.Copy;
+import LibraryEntities.CopyStatus;
+import LibraryUtil.AvailabilityBitmap;
+import LibraryUtil.ChangeEvent;
+import LibraryUtil.ChangeEvents;
+import LibraryUtil.JPAUtil;
+import LibraryUtil.UnitOfWork;
+
+import javax.persistence.EntityManager;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The per-book availability bitmap shared by all DAO instances.
+ * <p>A book's copies are loaded with one narrow query the first time the book is asked
+ * about; after that, the DAOs report every committed status change, added copy and
+ * removed copy, so availability checks no longer touch the database. Inside a
+ * {@link UnitOfWork}, changes are applied once the unit commits, and books are loaded
+ * through a separate EntityManager, so the bitmap never holds uncommitted state.
+ * A book that keeps changing while it is loaded is answered from the database instead,
+ * after {@value #MAX_LOADS} discarded loads.</p>
+ */
+final class CopyAvailability {
+
+    /**
+     * The shared bitmap.
+     */
+    static final AvailabilityBitmap BITMAP = new AvailabilityBitmap();
+
+    /**
+     * The number of loads of a book tried before a check falls back to a database query.
+     */
+    private static final int MAX_LOADS = 3;
+
+    private CopyAvailability() {}
+
+    /**
+     * Checks whether a book has at least one available copy.
+     *
+     * @param bookId The book ID.
+     * @return True if any copy of the book is available.
+     */
+    static boolean hasAvailable(Long bookId) {
+        int count = BITMAP.availableCount(bookId);
+        for (int loads = 0; count < 0 && loads < MAX_LOADS; loads++) {
+            load(bookId);
+            count = BITMAP.availableCount(bookId);
+        }
+        return count < 0 ? !queryAvailable(bookId, 1).isEmpty() : count > 0;
+    }
+
+    /**
+     * Returns the IDs of the available copies of a book.
+     *
+     * @param bookId The book ID.
+     * @return The available copy IDs.
+     */
+    static List<Long> availableCopyIds(Long bookId) {
+        List<Long> ids = BITMAP.availableCopyIds(bookId);
+        for (int loads = 0; ids == null && loads < MAX_LOADS; loads++) {
+            load(bookId);
+            ids = BITMAP.availableCopyIds(bookId);
+        }
+        return ids == null ? queryAvailable(bookId, Integer.MAX_VALUE) : ids;
+    }
+
+    /**
+     * Records the committed status of a copy.
+     *
+     * @param copy The Copy, with its Book set.
+     */
+    static void copyChanged(Copy copy) {
+        if (copy.getId() != null && copy.getBook() != null) {
+            statusChanged(copy.getBook().getId(), copy.getId(), copy.isAvailable());
+        }
+    }
+
+    /**
+     * Records the committed status of a copy changed by a bulk update, without loading it.
+     *
+     * @param bookId    The ID of the copy's book.
+     * @param copyId    The copy ID.
+     * @param available Whether the copy is now available.
+     */
+    static void statusChanged(Long bookId, Long copyId, boolean available) {
+        UnitOfWork.afterCommit(() -> BITMAP.update(bookId, copyId, available));
+        ChangeEvents.publish(ChangeEvent.updated(Book.class, bookId, BookDaoImpl.AVAILABILITY));
+    }
+
+    /**
+     * Corrects the bitmap after a read found a copy in another state than the bitmap,
+     * e.g. changed by another process. Only the bitmap is refreshed: nothing changed
+     * in this process, so no event is published.
+     *
+     * @param bookId The ID of the copy's book.
+     * @param copyId The copy ID.
+     * @param copy   The Copy as read, or null if it no longer exists.
+     */
+    static void copyRead(Long bookId, Long copyId, Copy copy) {
+        if (copy == null) {
+            UnitOfWork.afterCommit(() -> BITMAP.remove(bookId, copyId));
+        } else {
+            boolean available = copy.isAvailable();
+            UnitOfWork.afterCommit(() -> BITMAP.update(bookId, copyId, available));
+        }
+    }
+
+    /**
+     * Records a committed copy deletion.
+     *
+     * @param copy The deleted Copy, with its Book set.
+     */
+    static void copyRemoved(Copy copy) {
+        if (copy.getBook() != null) {
+            Long bookId = copy.getBook().getId();
+            Long copyId = copy.getId();
+            UnitOfWork.afterCommit(() -> BITMAP.remove(bookId, copyId));
+            ChangeEvents.publish(ChangeEvent.updated(Book.class, bookId, BookDaoImpl.AVAILABILITY));
+        }
+    }
+
+    /**
+     * Records a committed book deletion.
+     *
+     * @param bookId The deleted book's ID.
+     */
+    static void bookRemoved(Long bookId) {
+        UnitOfWork.afterCommit(() -> BITMAP.evict(bookId));
+    }
+
+    /**
+     * Queries the available copies of a book, bypassing the bitmap.
+     *
+     * @param bookId The book ID.
+     * @param limit  The maximum number of copy IDs to return.
+     * @return The available copy IDs, in ID order.
+     */
+    private static List<Long> queryAvailable(Long bookId, int limit) {
+        EntityManager em = JPAUtil.newEntityManager();
+        try {
+            return em.createQuery("SELECT c.id FROM Copy c WHERE c.book.id = :bookId AND c.status = :available"
+                            + " ORDER BY c.id", Long.class)
+                    .setParameter("bookId", bookId)
+                    .setParameter("available", CopyStatus.AVAILABLE)
+                    .setMaxResults(limit)
+                    .getResultList();
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * Loads the copies of a book into the bitmap. If the book changes while loading,
+     * the result is discarded and the caller loads again.
+     *
+     * @param bookId The book ID.
+     */
+    private static void load(Long bookId) {
+        long version = BITMAP.version(bookId);
+        EntityManager em = JPAUtil.newEntityManager();
+        try {
+            List<Object[]> rows = em.createQuery(
+                            "SELECT c.id, c.status FROM Copy c WHERE c.book.id = :bookId", Object[].class)
+                    .setParameter("bookId", bookId)
+                    .getResultList();
+            Map<Long, Boolean> copies = new HashMap<>(rows.size() * 2);
+            for (Object[] row : rows) {
+                copies.put((Long) row[0], row[1] == CopyStatus.AVAILABLE);
+            }
+            BITMAP.load(bookId, version, copies);
+        } finally {
+            em.close();
+        }
+    }
+}
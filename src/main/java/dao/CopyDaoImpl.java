@@ -1,11 +1,15 @@
 package dao;
 
 import LibraryEntities.Copy;
+import LibraryEntities.CopyStatus;
 import LibraryUtil.JPAUtil;
 
 import javax.persistence.EntityManager;
 import javax.persistence.TypedQuery;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 
 /**
  * DAO implementation for managing {@link Copy} entities.
@@ -13,6 +17,11 @@ import java.util.List;
  */
 public class CopyDaoImpl implements Dao<Copy> {
 
+    /**
+     * Attributes {@link #findPage(String, Object, Long, int)} may sort by.
+     */
+    private static final Set<String> SORTABLE_KEYS = Set.of("status");
+
     /**
      * Persists a new {@link Copy} entity, ensuring the associated Book is managed.
      *
@@ -24,10 +33,12 @@ public class CopyDaoImpl implements Dao<Copy> {
         EntityManager em = JPAUtil.getEntityManager();
         try {
             em.getTransaction().begin();
-            // Ensure the Book is managed
-            entity.setBook(em.merge(entity.getBook()));
-            em.persist(entity);
+            persist(em, entity);
             em.getTransaction().commit();
+            CopyAvailability.copyChanged(entity);
+            if (entity.isAvailable()) {
+                CatalogQueries.availabilityChanged();
+            }
             return entity;
         } finally {
             em.close();
@@ -70,8 +81,26 @@ public class CopyDaoImpl implements Dao<Copy> {
         }
     }
 
+    /**
+     * Retrieves one page of {@link Copy} entities using keyset pagination.
+     *
+     * @param sortKey        One of status, or null to sort by ID only.
+     * @param afterSortValue The sort value of the last Copy of the previous page.
+     * @param afterId        The ID of the last Copy of the previous page, or null for the first page.
+     * @param pageSize       The maximum number of Copies to return.
+     * @return Up to {@code pageSize} Copies following the given position.
+     */
+    @Override
+    public List<Copy> findPage(String sortKey, Object afterSortValue, Long afterId, int pageSize) {
+        return KeysetPaging.fetch(Copy.class, SORTABLE_KEYS, sortKey, afterSortValue,
+                afterId, pageSize);
+    }
+
     /**
      * Updates an existing {@link Copy} entity in the database.
+     * Cached availability queries are invalidated if the status changed.
+     * Fails with an {@link javax.persistence.OptimisticLockException} if the Copy
+     * was changed since it was read, instead of overwriting the newer status.
      *
      * @param entity The Copy to update.
      * @return The merged (updated) Copy.
@@ -85,9 +114,20 @@ public class CopyDaoImpl implements Dao<Copy> {
         EntityManager em = JPAUtil.getEntityManager();
         try {
             em.getTransaction().begin();
+            Copy current = em.find(Copy.class, entity.getId());
+            CopyStatus previousStatus = current == null ? null : current.getCopyStatus();
             Copy merged = em.merge(entity);
             em.getTransaction().commit();
+            CopyAvailability.copyChanged(merged);
+            if (previousStatus != merged.getCopyStatus()) {
+                CatalogQueries.availabilityChanged();
+            }
             return merged;
+        } catch (RuntimeException e) {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            throw e;
         } finally {
             em.close();
         }
@@ -108,13 +148,15 @@ public class CopyDaoImpl implements Dao<Copy> {
         EntityManager em = JPAUtil.getEntityManager();
         try {
             em.getTransaction().begin();
-            Copy found = em.find(Copy.class, id);
-            if (found != null) {
-                found.getBook().getCopies().remove(found);
-                em.remove(found);
-                em.flush();
-            }
+            Copy removed = remove(em, id);
+            em.flush();
             em.getTransaction().commit();
+            if (removed != null) {
+                CopyAvailability.copyRemoved(removed);
+                if (removed.isAvailable()) {
+                    CatalogQueries.availabilityChanged();
+                }
+            }
         } catch (Exception e) {
             em.getTransaction().rollback();
             throw e;
@@ -122,4 +164,140 @@ public class CopyDaoImpl implements Dao<Copy> {
             em.close();
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Persists all given {@link Copy} entities in a single transaction.
+     * Adding many copies of one title costs one commit instead of one per copy.
+     *
+     * @param entities The Copies to create.
+     * @return The persisted Copies with generated IDs.
+     * @throws IllegalArgumentException if the collection or any Copy is null.
+     */
+    @Override
+    public List<Copy> createAll(Collection<Copy> entities) {
+        List<Copy> created = BulkOperations.createAll(entities, this::persist);
+        created.forEach(CopyAvailability::copyChanged);
+        if (created.stream().anyMatch(Copy::isAvailable)) {
+            CatalogQueries.availabilityChanged();
+        }
+        return created;
+    }
+
+    /**
+     * Updates all given {@link Copy} entities in a single transaction.
+     *
+     * @param entities The Copies to update.
+     * @return The merged (updated) Copies.
+     * @throws IllegalArgumentException if the collection, any Copy or any ID is null.
+     */
+    @Override
+    public List<Copy> updateAll(Collection<Copy> entities) {
+        if (entities != null && entities.stream().anyMatch(c -> c != null && c.getId() == null)) {
+            throw new IllegalArgumentException("Copy or ID cannot be null");
+        }
+        List<Copy> merged = BulkOperations.updateAll(entities);
+        merged.forEach(CopyAvailability::copyChanged);
+        CatalogQueries.availabilityChanged();
+        return merged;
+    }
+
+    /**
+     * Deletes all {@link Copy} entities with the given IDs in a single transaction.
+     *
+     * @param ids The IDs of the Copies to delete.
+     * @throws IllegalArgumentException if the collection or any ID is null.
+     */
+    @Override
+    public void deleteAll(Collection<Long> ids) {
+        List<Copy> removed = new ArrayList<>();
+        BulkOperations.deleteAll(ids, (em, id) -> {
+            Copy found = remove(em, id);
+            if (found != null) {
+                removed.add(found);
+            }
+        });
+        removed.forEach(CopyAvailability::copyRemoved);
+        if (removed.stream().anyMatch(Copy::isAvailable)) {
+            CatalogQueries.availabilityChanged();
+        }
+    }
+
+    /**
+     * Checks whether a Book has at least one available {@link Copy}.
+     * Answered from the in-memory availability bitmap, which is loaded on first use.
+     *
+     * @param bookId The ID of the Book.
+     * @return True if any copy of the Book is available.
+     * @throws IllegalArgumentException if the ID is null.
+     */
+    public boolean hasAvailableCopy(Long bookId) {
+        if (bookId == null) {
+            throw new IllegalArgumentException("ID cannot be null");
+        }
+        return CopyAvailability.hasAvailable(bookId);
+    }
+
+    /**
+     * Finds an available {@link Copy} of a Book.
+     * Candidates are taken from the availability bitmap and confirmed against the database,
+     * so a copy changed by another process is never returned.
+     *
+     * @param bookId The ID of the Book.
+     * @return An available Copy, or null if the Book has none.
+     * @throws IllegalArgumentException if the ID is null.
+     */
+    public Copy findAvailableCopy(Long bookId) {
+        if (bookId == null) {
+            throw new IllegalArgumentException("ID cannot be null");
+        }
+        List<Long> candidates = CopyAvailability.availableCopyIds(bookId);
+        if (candidates.isEmpty()) {
+            return null;
+        }
+        EntityManager em = JPAUtil.getEntityManager();
+        try {
+            for (Long copyId : candidates) {
+                Copy copy = em.find(Copy.class, copyId);
+                if (copy != null && copy.isAvailable()) {
+                    return copy;
+                }
+                CopyAvailability.copyRead(bookId, copyId, copy);
+            }
+            return null;
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * Persists a {@link Copy} within the caller's transaction, ensuring the associated Book is managed.
+     *
+     * @param em     The EntityManager to use.
+     * @param entity The Copy to persist.
+     */
+    private void persist(EntityManager em, Copy entity) {
+        // Ensure the Book is managed; inside a unit of work it usually already is
+        if (entity.getBook() == null || !em.contains(entity.getBook())) {
+            entity.setBook(em.merge(entity.getBook()));
+        }
+        em.persist(entity);
+    }
+
+    /**
+     * Removes the {@link Copy} with the given ID within the caller's transaction,
+     * also removing it from its parent Book's list of copies.
+     *
+     * @param em The EntityManager to use.
+     * @param id The ID of the Copy to remove.
+     * @return The removed Copy, or null if none was found.
+     */
+    private Copy remove(EntityManager em, Long id) {
+        Copy found = em.find(Copy.class, id);
+        if (found == null) {
+            return null;
+        }
+        found.getBook().getCopies().remove(found);
+        em.remove(found);
+        return found;
+    }
+}
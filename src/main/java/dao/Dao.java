@@ -1,5 +1,6 @@
 package dao;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -33,6 +34,33 @@ public interface Dao<T> {
      */
     List<T> findAll();
 
+    /**
+     * Retrieves the next page of entities in ID order, starting after the given ID.
+     * Pages are read by seeking on the ID (keyset pagination), so callers can walk
+     * a whole table in fixed memory by passing the last ID of each page to the next call.
+     *
+     * @param afterId  The ID of the last entity of the previous page, or null for the first page.
+     * @param pageSize The maximum number of entities to return.
+     * @return Up to {@code pageSize} entities whose ID is greater than {@code afterId}.
+     */
+    default List<T> findPage(Long afterId, int pageSize) {
+        return findPage(null, null, afterId, pageSize);
+    }
+
+    /**
+     * Retrieves the next page of entities ordered by {@code sortKey} and then by ID.
+     * The position is given by the sort value and ID of the last entity of the previous page.
+     * Entities with a null sort value come first.
+     *
+     * @param sortKey        The attribute to sort by, or null to sort by ID only.
+     * @param afterSortValue The sort value of the last entity of the previous page.
+     * @param afterId        The ID of the last entity of the previous page, or null for the first page.
+     * @param pageSize       The maximum number of entities to return.
+     * @return Up to {@code pageSize} entities following the given position.
+     * @throws IllegalArgumentException if the attribute cannot be sorted by or the page size is not positive.
+     */
+    List<T> findPage(String sortKey, Object afterSortValue, Long afterId, int pageSize);
+
     /**
      * Updates an existing entity in the database.
      *
@@ -47,4 +75,31 @@ public interface Dao<T> {
      * @param id The ID of the entity to delete.
      */
     void delete(Long id);
+
+    /**
+     * Persists all given entities in a single transaction.
+     * Inserts are sent to the database in JDBC batches.
+     *
+     * @param entities The entities to create.
+     * @return The persisted entities, in the order given, with any generated fields.
+     */
+    List<T> createAll(Collection<T> entities);
+
+    /**
+     * Updates all given entities in a single transaction.
+     * Updates are sent to the database in JDBC batches.
+     *
+     * @param entities The entities with updated fields.
+     * @return The merged (updated) entities, in the order given.
+     */
+    List<T> updateAll(Collection<T> entities);
+
+    /**
+     * Deletes all entities with the given IDs in a single transaction,
+     * applying the same rules as {@link #delete(Long)}. If any deletion
+     * is refused, none of the entities are deleted.
+     *
+     * @param ids The IDs of the entities to delete.
+     */
+    void deleteAll(Collection<Long> ids);
 }
\ No newline at end of file
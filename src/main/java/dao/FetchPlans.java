@@ -0,0 +1,60 @@
+package dao;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import java.util.Map;
+
+/**
+ * The named entity graphs the DAOs select per use case.
+ * <p>All collections are mapped lazily, so by default an entity is loaded without its
+ * associations. A DAO method that needs more applies one of these graphs as a
+ * fetch graph, and the listed associations are loaded in the same query.</p>
+ */
+final class FetchPlans {
+
+    /**
+     * A Book together with its copies.
+     */
+    static final String BOOK_WITH_COPIES = "Book.withCopies";
+
+    /**
+     * A Publisher together with its books.
+     */
+    static final String PUBLISHER_WITH_BOOKS = "Publisher.withBooks";
+
+    /**
+     * A Borrowing with its user, copy and the copy's book, as shown in borrowing tables.
+     */
+    static final String BORROWING_TABLE_ROW = "Borrowing.tableRow";
+
+    /**
+     * The JPA hint that applies an entity graph as a fetch graph.
+     */
+    private static final String FETCH_GRAPH = "javax.persistence.fetchgraph";
+
+    private FetchPlans() {}
+
+    /**
+     * Applies a named entity graph to a query.
+     *
+     * @param em    The EntityManager that created the query.
+     * @param query The query to configure.
+     * @param graph The name of the entity graph.
+     * @param <T>   The result type.
+     * @return The same query, for chaining.
+     */
+    static <T> TypedQuery<T> apply(EntityManager em, TypedQuery<T> query, String graph) {
+        return query.setHint(FETCH_GRAPH, em.getEntityGraph(graph));
+    }
+
+    /**
+     * Builds the properties for {@link EntityManager#find(Class, Object, Map)} that apply a named entity graph.
+     *
+     * @param em    The EntityManager performing the lookup.
+     * @param graph The name of the entity graph.
+     * @return The find properties.
+     */
+    static Map<String, Object> hints(EntityManager em, String graph) {
+        return Map.of(FETCH_GRAPH, em.getEntityGraph(graph));
+    }
+}
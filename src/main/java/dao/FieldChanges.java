@@ -0,0 +1,91 @@
+package dao;
+
+import LibraryUtil.ChangeEvent;
+import LibraryUtil.ChangeEvents;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The fields an update changes, found by comparing the stored entity with the incoming one
+ * before it is merged, and published as the changed fields of its {@link ChangeEvent}.
+ * <p>When the stored state cannot be compared, e.g. because the incoming entity is the
+ * managed instance itself, the changes are unknown and the event lists no fields, so
+ * listeners treat every field as changed. An update known to change nothing publishes
+ * no event.</p>
+ */
+final class FieldChanges {
+
+    /**
+     * The names of the changed fields.
+     */
+    private final List<String> fields = new ArrayList<>();
+
+    /**
+     * True if the changed fields cannot be told.
+     */
+    private final boolean unknown;
+
+    private FieldChanges(boolean unknown) {
+        this.unknown = unknown;
+    }
+
+    /**
+     * Starts comparing a stored entity with the incoming one; no field has changed yet.
+     *
+     * @return The empty changes.
+     */
+    static FieldChanges none() {
+        return new FieldChanges(false);
+    }
+
+    /**
+     * Returns the changes of an update that cannot be compared with the stored entity.
+     *
+     * @return The unknown changes.
+     */
+    static FieldChanges unknown() {
+        return new FieldChanges(true);
+    }
+
+    /**
+     * Records a field as changed if its stored and incoming values differ.
+     *
+     * @param field    The field name.
+     * @param stored   The stored value.
+     * @param incoming The incoming value.
+     * @return This object.
+     */
+    FieldChanges compare(String field, Object stored, Object incoming) {
+        if (!unknown && !Objects.equals(stored, incoming)) {
+            fields.add(field);
+        }
+        return this;
+    }
+
+    /**
+     * Records a field as changed, e.g. one that cannot be compared cheaply.
+     *
+     * @param field The field name.
+     * @return This object.
+     */
+    FieldChanges add(String field) {
+        if (!unknown) {
+            fields.add(field);
+        }
+        return this;
+    }
+
+    /**
+     * Publishes the update event of the entity, unless the update is known to change nothing.
+     *
+     * @param entityType The entity class.
+     * @param id         The entity's ID.
+     */
+    void publish(Class<?> entityType, Long id) {
+        if (unknown || !fields.isEmpty()) {
+            ChangeEvents.publish(ChangeEvent.updated(entityType, id, fields.toArray(new String[0])));
+        }
+    }
+}
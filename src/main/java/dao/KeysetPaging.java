@@ -0,0 +1,78 @@
+package dao;
+
+import LibraryUtil.JPAUtil;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Shared keyset (seek) pagination used by the {@code findPage} methods of the DAOs.
+ * <p>Pages are ordered by an optional sort attribute followed by the ID, and each page
+ * starts strictly after the last row of the previous one. Unlike offset paging, the
+ * database can seek straight to the start of a page, so walking a whole table costs
+ * the same per page no matter how far along the walk is.</p>
+ */
+final class KeysetPaging {
+
+    private KeysetPaging() {}
+
+    /**
+     * Fetches one page of entities.
+     *
+     * @param type           The entity class to query.
+     * @param sortableKeys   The attribute names callers are allowed to sort by.
+     * @param sortKey        The attribute to sort by, or null to sort by ID only.
+     * @param afterSortValue The sort value of the last row of the previous page (ignored without a sort key).
+     * @param afterId        The ID of the last row of the previous page, or null for the first page.
+     *                       Must already be converted to the entity's ID type.
+     * @param pageSize       The maximum number of rows to return.
+     * @param <T>            The entity type.
+     * @return Up to {@code pageSize} entities following the given position.
+     * @throws IllegalArgumentException if the sort key is not allowed or the page size is not positive.
+     */
+    static <T> List<T> fetch(Class<T> type, Set<String> sortableKeys, String sortKey,
+                             Object afterSortValue, Object afterId, int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size must be greater than 0");
+        }
+        if (sortKey != null && !sortableKeys.contains(sortKey)) {
+            throw new IllegalArgumentException("Cannot sort " + type.getSimpleName() + " by " + sortKey);
+        }
+
+        StringBuilder jpql = new StringBuilder("SELECT e FROM ")
+                .append(type.getSimpleName()).append(" e");
+        if (afterId != null) {
+            if (sortKey == null) {
+                jpql.append(" WHERE e.id > :afterId");
+            } else if (afterSortValue == null) {
+                // Nulls sort first, so the previous page ended inside the null block
+                jpql.append(" WHERE (e.").append(sortKey).append(" IS NULL AND e.id > :afterId)")
+                        .append(" OR e.").append(sortKey).append(" IS NOT NULL");
+            } else {
+                jpql.append(" WHERE e.").append(sortKey).append(" > :afterValue")
+                        .append(" OR (e.").append(sortKey).append(" = :afterValue AND e.id > :afterId)");
+            }
+        }
+        jpql.append(" ORDER BY ");
+        if (sortKey != null) {
+            jpql.append("e.").append(sortKey).append(" NULLS FIRST, ");
+        }
+        jpql.append("e.id");
+
+        EntityManager em = JPAUtil.getEntityManager();
+        try {
+            TypedQuery<T> query = em.createQuery(jpql.toString(), type);
+            if (afterId != null) {
+                query.setParameter("afterId", afterId);
+                if (sortKey != null && afterSortValue != null) {
+                    query.setParameter("afterValue", afterSortValue);
+                }
+            }
+            return query.setMaxResults(pageSize).getResultList();
+        } finally {
+            em.close();
+        }
+    }
+}
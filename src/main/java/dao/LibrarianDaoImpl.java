@@ -5,7 +5,9 @@ import LibraryUtil.JPAUtil;
 
 import javax.persistence.EntityManager;
 import javax.persistence.TypedQuery;
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 
 /**
  * DAO implementation for the {@link Librarian} entity.
@@ -13,6 +15,11 @@ import java.util.List;
  */
 public class LibrarianDaoImpl implements Dao<Librarian> {
 
+    /**
+     * Attributes {@link #findPage(String, Object, Long, int)} may sort by.
+     */
+    private static final Set<String> SORTABLE_KEYS = Set.of("position", "employmentDate");
+
     /**
      * Creates a new {@link Librarian} record.
      * Ensures the associated User is merged (managed) before persisting.
@@ -25,8 +32,7 @@ public class LibrarianDaoImpl implements Dao<Librarian> {
         EntityManager em = JPAUtil.getEntityManager();
         try {
             em.getTransaction().begin();
-            entity.setUser(em.merge(entity.getUser()));
-            em.persist(entity);
+            persist(em, entity);
             em.getTransaction().commit();
             return entity;
         } finally {
@@ -67,6 +73,21 @@ public class LibrarianDaoImpl implements Dao<Librarian> {
         }
     }
 
+    /**
+     * Retrieves one page of {@link Librarian} entities using keyset pagination. The Long ID is converted to int.
+     *
+     * @param sortKey        One of position, employmentDate, or null to sort by ID only.
+     * @param afterSortValue The sort value of the last Librarian of the previous page.
+     * @param afterId        The ID of the last Librarian of the previous page, or null for the first page.
+     * @param pageSize       The maximum number of Librarians to return.
+     * @return Up to {@code pageSize} Librarians following the given position.
+     */
+    @Override
+    public List<Librarian> findPage(String sortKey, Object afterSortValue, Long afterId, int pageSize) {
+        return KeysetPaging.fetch(Librarian.class, SORTABLE_KEYS, sortKey, afterSortValue,
+                afterId == null ? null : afterId.intValue(), pageSize);
+    }
+
     /**
      * Updates an existing {@link Librarian} entity in the database.
      *
@@ -96,13 +117,72 @@ public class LibrarianDaoImpl implements Dao<Librarian> {
         EntityManager em = JPAUtil.getEntityManager();
         try {
             em.getTransaction().begin();
-            Librarian found = em.find(Librarian.class, id.intValue());
-            if (found != null) {
-                em.remove(found);
-            }
+            remove(em, id);
             em.getTransaction().commit();
         } finally {
             em.close();
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Persists all given {@link Librarian} entities in a single transaction.
+     *
+     * @param entities The Librarians to create.
+     * @return The persisted Librarians with generated IDs.
+     * @throws IllegalArgumentException if the collection or any Librarian is null.
+     */
+    @Override
+    public List<Librarian> createAll(Collection<Librarian> entities) {
+        return BulkOperations.createAll(entities, this::persist);
+    }
+
+    /**
+     * Updates all given {@link Librarian} entities in a single transaction.
+     *
+     * @param entities The Librarians with updated fields.
+     * @return The merged (updated) Librarians.
+     * @throws IllegalArgumentException if the collection or any Librarian is null.
+     */
+    @Override
+    public List<Librarian> updateAll(Collection<Librarian> entities) {
+        return BulkOperations.updateAll(entities);
+    }
+
+    /**
+     * Deletes all {@link Librarian} entities with the given IDs in a single transaction.
+     *
+     * @param ids The IDs of the Librarians to delete.
+     * @throws IllegalArgumentException if the collection or any ID is null.
+     */
+    @Override
+    public void deleteAll(Collection<Long> ids) {
+        BulkOperations.deleteAll(ids, this::remove);
+    }
+
+    /**
+     * Persists a {@link Librarian} within the caller's transaction,
+     * merging the associated User so it is managed.
+     *
+     * @param em     The EntityManager to use.
+     * @param entity The Librarian to persist.
+     */
+    private void persist(EntityManager em, Librarian entity) {
+        if (entity.getUser() == null || !em.contains(entity.getUser())) {
+            entity.setUser(em.merge(entity.getUser()));
+        }
+        em.persist(entity);
+    }
+
+    /**
+     * Removes the {@link Librarian} with the given ID within the caller's transaction.
+     *
+     * @param em The EntityManager to use.
+     * @param id The Long ID (converted to int) of the Librarian to remove.
+     */
+    private void remove(EntityManager em, Long id) {
+        Librarian found = em.find(Librarian.class, id.intValue());
+        if (found != null) {
+            em.remove(found);
+        }
+    }
+}
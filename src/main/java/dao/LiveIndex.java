@@ -0,0 +1,131 @@
+package dao;
+
+import LibraryUtil.UnitOfWork;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
+
+/**
+ * An in-memory index over database rows that is built once and then kept up to date
+ * with the committed changes the DAOs report.
+ * <p>The index is built by its loader, either explicitly at startup or by the first read.
+ * Changes committed while the loader runs are queued and applied once it ends, so they
+ * cannot be overwritten by older rows. Changes reported before the index is first built
+ * are dropped, as the build reads the committed rows anyway.</p>
+ *
+ * @param <T> The index type.
+ */
+final class LiveIndex<T> {
+
+    /**
+     * The index.
+     */
+    private final T index;
+
+    /**
+     * Clears and refills the index from the database, returning the number of rows read.
+     */
+    private final ToIntFunction<T> loader;
+
+    /**
+     * Serializes builds.
+     */
+    private final Object buildLock = new Object();
+
+    /**
+     * Guards {@link #loaded} and {@link #pending}.
+     */
+    private final Object stateLock = new Object();
+
+    /**
+     * True once the index holds every row.
+     */
+    private volatile boolean loaded;
+
+    /**
+     * Changes committed while a build is running, or null if no build is running.
+     */
+    private List<Consumer<T>> pending;
+
+    /**
+     * Constructs an index that is not built yet.
+     *
+     * @param index  The empty index.
+     * @param loader Clears and refills the index from the database; returns the number of rows read.
+     */
+    LiveIndex(T index, ToIntFunction<T> loader) {
+        this.index = index;
+        this.loader = loader;
+    }
+
+    /**
+     * Returns the index, building it first if needed.
+     *
+     * @return The up-to-date index.
+     */
+    T get() {
+        if (!loaded) {
+            synchronized (buildLock) {
+                if (!loaded) {
+                    build();
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Rebuilds the index from the database.
+     *
+     * @return The number of rows read.
+     */
+    int rebuild() {
+        synchronized (buildLock) {
+            return build();
+        }
+    }
+
+    /**
+     * Applies a change once the current unit of work commits, or at once outside one.
+     *
+     * @param change The change; must only capture values, not managed entities.
+     */
+    void changed(Consumer<T> change) {
+        UnitOfWork.afterCommit(() -> {
+            synchronized (stateLock) {
+                if (pending != null) {
+                    pending.add(change);
+                } else if (loaded) {
+                    change.accept(index);
+                }
+            }
+        });
+    }
+
+    /**
+     * Refills the index. Must be called while holding {@link #buildLock}.
+     *
+     * @return The number of rows read.
+     */
+    private int build() {
+        synchronized (stateLock) {
+            pending = new ArrayList<>();
+        }
+        boolean built = false;
+        try {
+            int count = loader.applyAsInt(index);
+            built = true;
+            return count;
+        } finally {
+            synchronized (stateLock) {
+                if (built) {
+                    pending.forEach(change -> change.accept(index));
+                }
+                pending = null;
+                loaded = built;
+            }
+        }
+    }
+}
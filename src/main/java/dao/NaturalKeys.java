@@ -0,0 +1,82 @@
+package dao;
+
+import LibraryEntities.Book;
+import LibraryEntities.User;
+import LibraryUtil.NaturalKeyCache;
+import LibraryUtil.UnitOfWork;
+
+/**
+ * The natural-key caches shared by all DAO instances: Book ISBNs and User emails to IDs.
+ * <p>The DAOs report every committed Book and User change here; the caches are updated
+ * once the surrounding {@link UnitOfWork} commits, so a rolled-back change is never cached.
+ * Keys are normalized by {@link #key(String)} both when cached and when looked up.</p>
+ */
+final class NaturalKeys {
+
+    /**
+     * The maximum number of cached keys per cache, found or not.
+     */
+    private static final int MAX_ENTRIES = 10_000;
+
+    /**
+     * The shared cache of Book IDs by ISBN.
+     */
+    static final NaturalKeyCache ISBNS = new NaturalKeyCache("bookIsbns", MAX_ENTRIES);
+
+    /**
+     * The shared cache of User IDs by email.
+     */
+    static final NaturalKeyCache EMAILS = new NaturalKeyCache("userEmails", MAX_ENTRIES);
+
+    private NaturalKeys() {}
+
+    /**
+     * Normalizes an ISBN or email into its cache key by ignoring surrounding whitespace.
+     *
+     * @param value The ISBN or email, possibly null.
+     * @return The key, or null if the value is null.
+     */
+    static String key(String value) {
+        return value == null ? null : value.trim();
+    }
+
+    /**
+     * Records a committed Book insert or update.
+     *
+     * @param book The Book, with its ID set.
+     */
+    static void bookChanged(Book book) {
+        String isbn = key(book.getIsbn());
+        long id = book.getId();
+        UnitOfWork.afterCommit(() -> ISBNS.put(isbn, id));
+    }
+
+    /**
+     * Records a committed Book deletion.
+     *
+     * @param bookId The deleted Book's ID.
+     */
+    static void bookRemoved(Long bookId) {
+        UnitOfWork.afterCommit(() -> ISBNS.remove(bookId));
+    }
+
+    /**
+     * Records a committed User insert or update.
+     *
+     * @param user The User, with its ID set.
+     */
+    static void userChanged(User user) {
+        String email = key(user.getEmail());
+        long id = user.getId();
+        UnitOfWork.afterCommit(() -> EMAILS.put(email, id));
+    }
+
+    /**
+     * Records a committed User deletion.
+     *
+     * @param userId The deleted User's ID.
+     */
+    static void userRemoved(Long userId) {
+        UnitOfWork.afterCommit(() -> EMAILS.remove(userId));
+    }
+}
@@ -3,9 +3,13 @@ package dao;
 import LibraryEntities.Publisher;
 import LibraryUtil.JPAUtil;
 
+import org.hibernate.Hibernate;
+
 import javax.persistence.EntityManager;
 import javax.persistence.TypedQuery;
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 
 /**
  * DAO implementation for managing {@link Publisher} entities.
@@ -13,6 +17,11 @@ import java.util.List;
  */
 public class PublisherDaoImpl implements Dao<Publisher> {
 
+    /**
+     * Attributes {@link #findPage(String, Object, Long, int)} may sort by.
+     */
+    private static final Set<String> SORTABLE_KEYS = Set.of("name");
+
     /**
      * Persists a new {@link Publisher} entity.
      *
@@ -33,7 +42,9 @@ public class PublisherDaoImpl implements Dao<Publisher> {
     }
 
     /**
-     * Finds a {@link Publisher} by its integer ID (cast from Long).
+     * Finds a {@link Publisher} by its integer ID (cast from Long), together with its books.
+     * The books are loaded without their copies. They are initialized after the lookup so
+     * the Publisher and its book collection can be answered by the second-level cache.
      *
      * @param id The Long ID to search for.
      * @return The Publisher if found, or null otherwise.
@@ -42,14 +53,18 @@ public class PublisherDaoImpl implements Dao<Publisher> {
     public Publisher findById(Long id) {
         EntityManager em = JPAUtil.getEntityManager();
         try {
-            return em.find(Publisher.class, id.intValue());
+            Publisher publisher = em.find(Publisher.class, id.intValue());
+            if (publisher != null) {
+                Hibernate.initialize(publisher.getBooks());
+            }
+            return publisher;
         } finally {
             em.close();
         }
     }
 
     /**
-     * Retrieves all {@link Publisher} entities from the database.
+     * Retrieves all {@link Publisher} entities from the database, without their books.
      *
      * @return A list of all Publishers.
      */
@@ -64,6 +79,21 @@ public class PublisherDaoImpl implements Dao<Publisher> {
         }
     }
 
+    /**
+     * Retrieves one page of {@link Publisher} entities using keyset pagination. The Long ID is converted to int.
+     *
+     * @param sortKey        One of name, or null to sort by ID only.
+     * @param afterSortValue The sort value of the last Publisher of the previous page.
+     * @param afterId        The ID of the last Publisher of the previous page, or null for the first page.
+     * @param pageSize       The maximum number of Publishers to return.
+     * @return Up to {@code pageSize} Publishers following the given position.
+     */
+    @Override
+    public List<Publisher> findPage(String sortKey, Object afterSortValue, Long afterId, int pageSize) {
+        return KeysetPaging.fetch(Publisher.class, SORTABLE_KEYS, sortKey, afterSortValue,
+                afterId == null ? null : afterId.intValue(), pageSize);
+    }
+
     /**
      * Updates an existing {@link Publisher} in the database.
      *
@@ -95,17 +125,85 @@ public class PublisherDaoImpl implements Dao<Publisher> {
         EntityManager em = JPAUtil.getEntityManager();
         try {
             em.getTransaction().begin();
-            Publisher found = em.find(Publisher.class, id.intValue());
-            if (found != null) {
-                if (!found.getBooks().isEmpty()) {
-                    em.getTransaction().rollback();
-                    throw new IllegalStateException("Cannot delete Publisher with existing Books.");
-                }
-                em.remove(found);
-            }
+            remove(em, id);
             em.getTransaction().commit();
+        } catch (RuntimeException e) {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            throw e;
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * Persists all given {@link Publisher} entities in a single transaction.
+     *
+     * @param entities The Publishers to create.
+     * @return The persisted Publishers with generated IDs.
+     * @throws IllegalArgumentException if the collection or any Publisher is null.
+     */
+    @Override
+    public List<Publisher> createAll(Collection<Publisher> entities) {
+        return BulkOperations.createAll(entities, EntityManager::persist);
+    }
+
+    /**
+     * Updates all given {@link Publisher} entities in a single transaction.
+     *
+     * @param entities The Publishers with updated fields.
+     * @return The merged (updated) Publishers.
+     * @throws IllegalArgumentException if the collection or any Publisher is null.
+     */
+    @Override
+    public List<Publisher> updateAll(Collection<Publisher> entities) {
+        return BulkOperations.updateAll(entities);
+    }
+
+    /**
+     * Deletes all {@link Publisher} entities with the given IDs in a single transaction.
+     * Each deletion follows the same rule as {@link #delete(Long)}.
+     *
+     * @param ids The IDs of the Publishers to delete.
+     * @throws IllegalArgumentException if the collection or any ID is null.
+     * @throws IllegalStateException    if any of the Publishers is referenced by existing Books.
+     */
+    @Override
+    public void deleteAll(Collection<Long> ids) {
+        BulkOperations.deleteAll(ids, this::remove);
+    }
+
+    /**
+     * Removes the {@link Publisher} with the given ID within the caller's transaction.
+     *
+     * @param em The EntityManager to use.
+     * @param id The Long ID (converted to int) of the Publisher to remove.
+     * @throws IllegalStateException if the Publisher is referenced by existing Books.
+     */
+    private void remove(EntityManager em, Long id) {
+        Publisher found = em.find(Publisher.class, id.intValue());
+        if (found != null) {
+            if (!found.getBooks().isEmpty()) {
+                throw new IllegalStateException("Cannot delete Publisher with existing Books.");
+            }
+            em.remove(found);
+        }
+    }
+
+    /**
+     * Finds a {@link Publisher} by its ID and loads its books in the same query
+     * using the "Publisher.withBooks" graph.
+     *
+     * @param id The Long ID (converted to int) of the Publisher.
+     * @return The Publisher with its books, or null if not found.
+     */
+    public Publisher findWithBooks(Long id) {
+        EntityManager em = JPAUtil.getEntityManager();
+        try {
+            return em.find(Publisher.class, id.intValue(), FetchPlans.hints(em, FetchPlans.PUBLISHER_WITH_BOOKS));
         } finally {
             em.close();
         }
     }
-}
\ No newline at end of file
+}
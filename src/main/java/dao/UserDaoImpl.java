@@ -1,11 +1,21 @@
 package dao;
 
+import LibraryEntities.Borrowing;
 import LibraryEntities.User;
+import LibraryUtil.CacheStatistics;
+import LibraryUtil.ChangeEvent;
+import LibraryUtil.ChangeEvents;
 import LibraryUtil.JPAUtil;
+import LibraryUtil.PrefixIndex;
+import LibraryUtil.UnitOfWork;
+import LibraryViews.UserRow;
 
 import javax.persistence.EntityManager;
 import javax.persistence.TypedQuery;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 
 /**
  * DAO implementation for managing {@link User} entities.
@@ -13,6 +23,11 @@ import java.util.List;
  */
 public class UserDaoImpl implements Dao<User> {
 
+    /**
+     * Attributes {@link #findPage(String, Object, Long, int)} may sort by.
+     */
+    private static final Set<String> SORTABLE_KEYS = Set.of("name", "email");
+
     /**
      * Persists a new {@link User} in the database.
      *
@@ -26,6 +41,9 @@ public class UserDaoImpl implements Dao<User> {
             em.getTransaction().begin();
             em.persist(entity);
             em.getTransaction().commit();
+            UserSuggestions.userChanged(entity);
+            NaturalKeys.userChanged(entity);
+            ChangeEvents.publish(ChangeEvent.created(User.class, entity.getId().longValue()));
             return entity;
         } finally {
             em.close();
@@ -33,7 +51,7 @@ public class UserDaoImpl implements Dao<User> {
     }
 
     /**
-     * Finds a {@link User} by its integer ID, cast from Long.
+     * Finds a {@link User} by its integer ID, cast from Long, without their borrowings.
      *
      * @param id The Long ID to search for.
      * @return The User if found, or null otherwise.
@@ -49,7 +67,99 @@ public class UserDaoImpl implements Dao<User> {
     }
 
     /**
-     * Retrieves all {@link User} entities.
+     * Finds a {@link User} together with their open loans, i.e. those without a return date.
+     * The loans are read with their copies and books by one query on the user's loan index;
+     * returned loans, however many, are not read. The User's borrowing list holds only the
+     * open loans, ordered by borrow date.
+     *
+     * @param id The Long ID of the User.
+     * @return The User with their open loans, or null if not found.
+     * @throws IllegalArgumentException if the ID is null.
+     */
+    public User findWithActiveLoans(Long id) {
+        if (id == null) {
+            throw new IllegalArgumentException("ID cannot be null");
+        }
+        EntityManager em = JPAUtil.getEntityManager();
+        try {
+            User user = em.find(User.class, id.intValue());
+            if (user == null) {
+                return null;
+            }
+            TypedQuery<Borrowing> q = em.createQuery(
+                    "SELECT b FROM Borrowing b WHERE b.user.id = :userId AND b.returnDate IS NULL"
+                            + " ORDER BY b.borrowDate, b.id", Borrowing.class);
+            List<Borrowing> loans = FetchPlans.apply(em, q, FetchPlans.BORROWING_TABLE_ROW)
+                    .setParameter("userId", id.intValue())
+                    .getResultList();
+            // Detach first, so the partial list never reaches the persistence context
+            em.detach(user);
+            user.setBorrowings(loans);
+            return user;
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * Finds a {@link User} by their unique email address, without their borrowings.
+     * The email is resolved to an ID through a bounded cache, which also remembers emails
+     * that match no User; on a miss it is looked up through the unique email index.
+     * Inside a {@link UnitOfWork} the cache is bypassed, as the unit may have uncommitted changes.
+     *
+     * @param email The email address; surrounding whitespace is ignored.
+     * @return The User with the email, or null if not found.
+     * @throws IllegalArgumentException if the email is null or blank.
+     */
+    public User findByEmail(String email) {
+        if (email == null || email.isBlank()) throw new IllegalArgumentException("Email cannot be null or blank");
+        String key = NaturalKeys.key(email);
+        Long id = UnitOfWork.isActive() ? findIdByEmail(key) : NaturalKeys.EMAILS.get(key, this::findIdByEmail);
+        if (id == null) {
+            return null;
+        }
+        User user = findById(id);
+        if (user == null || !key.equals(user.getEmail())) {
+            // Changed outside this application since it was cached; look it up again
+            NaturalKeys.EMAILS.remove(id);
+            id = findIdByEmail(key);
+            user = id == null ? null : findById(id);
+        }
+        return user;
+    }
+
+    /**
+     * Returns the hit and miss counters of the email cache used by {@link #findByEmail(String)}.
+     *
+     * @return A snapshot of the email cache counters.
+     */
+    public CacheStatistics getEmailCacheStatistics() {
+        return NaturalKeys.EMAILS.getStatistics();
+    }
+
+    /**
+     * Looks up the ID of the User with an email through the unique email index.
+     *
+     * @param email The email address.
+     * @return The User ID, or null if no User has the email.
+     */
+    private Long findIdByEmail(String email) {
+        EntityManager em = JPAUtil.getEntityManager();
+        try {
+            return em.createQuery("SELECT u.id FROM User u WHERE u.email = :email", Integer.class)
+                    .setParameter("email", email)
+                    .getResultStream()
+                    .findFirst()
+                    .map(Integer::longValue)
+                    .orElse(null);
+        } finally {
+            em.close();
+        }
+    }
+
+
+    /**
+     * Retrieves all {@link User} entities, without their borrowings.
      *
      * @return A list of all Users in the database.
      */
@@ -64,8 +174,24 @@ public class UserDaoImpl implements Dao<User> {
         }
     }
 
+    /**
+     * Retrieves one page of {@link User} entities using keyset pagination. The Long ID is converted to int.
+     *
+     * @param sortKey        One of name, email, or null to sort by ID only.
+     * @param afterSortValue The sort value of the last User of the previous page.
+     * @param afterId        The ID of the last User of the previous page, or null for the first page.
+     * @param pageSize       The maximum number of Users to return.
+     * @return Up to {@code pageSize} Users following the given position.
+     */
+    @Override
+    public List<User> findPage(String sortKey, Object afterSortValue, Long afterId, int pageSize) {
+        return KeysetPaging.fetch(User.class, SORTABLE_KEYS, sortKey, afterSortValue,
+                afterId == null ? null : afterId.intValue(), pageSize);
+    }
+
     /**
      * Updates an existing {@link User} in the database.
+     * The published {@link ChangeEvent} lists the fields that differ from the stored User.
      *
      * @param entity The User with updated fields.
      * @return The merged User entity.
@@ -75,8 +201,12 @@ public class UserDaoImpl implements Dao<User> {
         EntityManager em = JPAUtil.getEntityManager();
         try {
             em.getTransaction().begin();
+            FieldChanges changes = changedFields(em, entity);
             User merged = em.merge(entity);
             em.getTransaction().commit();
+            UserSuggestions.userChanged(merged);
+            NaturalKeys.userChanged(merged);
+            changes.publish(User.class, merged.getId().longValue());
             return merged;
         } finally {
             em.close();
@@ -95,17 +225,171 @@ public class UserDaoImpl implements Dao<User> {
         EntityManager em = JPAUtil.getEntityManager();
         try {
             em.getTransaction().begin();
-            User found = em.find(User.class, id.intValue());
-            if (found != null) {
-                if (!found.getBorrowings().isEmpty()) {
-                    em.getTransaction().rollback();
-                    throw new IllegalStateException("Cannot delete user with existing Borrowings.");
-                }
-                em.remove(found);
-            }
+            remove(em, id);
             em.getTransaction().commit();
+            UserSuggestions.userRemoved(id);
+            NaturalKeys.userRemoved(id);
+            ChangeEvents.publish(ChangeEvent.deleted(User.class, id));
+        } catch (RuntimeException e) {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            throw e;
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * Persists all given {@link User} entities in a single transaction.
+     *
+     * @param entities The Users to create.
+     * @return The persisted Users with generated IDs.
+     * @throws IllegalArgumentException if the collection or any User is null.
+     */
+    @Override
+    public List<User> createAll(Collection<User> entities) {
+        List<User> created = BulkOperations.createAll(entities, EntityManager::persist);
+        created.forEach(UserSuggestions::userChanged);
+        created.forEach(NaturalKeys::userChanged);
+        created.forEach(user -> ChangeEvents.publish(ChangeEvent.created(User.class, user.getId().longValue())));
+        return created;
+    }
+
+    /**
+     * Updates all given {@link User} entities in a single transaction.
+     * As in {@link #update(User)}, each published {@link ChangeEvent} lists the changed fields.
+     *
+     * @param entities The Users with updated fields.
+     * @return The merged (updated) Users.
+     * @throws IllegalArgumentException if the collection or any User is null.
+     */
+    @Override
+    public List<User> updateAll(Collection<User> entities) {
+        List<FieldChanges> changes = new ArrayList<>();
+        List<User> merged = BulkOperations.updateAll(entities, (em, user) -> {
+            changes.add(changedFields(em, user));
+            return em.merge(user);
+        });
+        merged.forEach(UserSuggestions::userChanged);
+        merged.forEach(NaturalKeys::userChanged);
+        for (int i = 0; i < merged.size(); i++) {
+            changes.get(i).publish(User.class, merged.get(i).getId().longValue());
+        }
+        return merged;
+    }
+
+    /**
+     * Deletes all {@link User} entities with the given IDs in a single transaction.
+     * Each deletion follows the same rule as {@link #delete(Long)}.
+     *
+     * @param ids The IDs of the Users to delete.
+     * @throws IllegalArgumentException if the collection or any ID is null.
+     * @throws IllegalStateException    if any of the Users has Borrowings.
+     */
+    @Override
+    public void deleteAll(Collection<Long> ids) {
+        BulkOperations.deleteAll(ids, this::remove);
+        ids.forEach(UserSuggestions::userRemoved);
+        ids.forEach(NaturalKeys::userRemoved);
+        ids.forEach(id -> ChangeEvents.publish(ChangeEvent.deleted(User.class, id)));
+    }
+
+    /**
+     * Removes the {@link User} with the given ID within the caller's transaction.
+     *
+     * @param em The EntityManager to use.
+     * @param id The Long ID (converted to int) of the User to remove.
+     * @throws IllegalStateException if the User has any Borrowings.
+     */
+    private void remove(EntityManager em, Long id) {
+        User found = em.find(User.class, id.intValue());
+        if (found != null) {
+            if (!found.getBorrowings().isEmpty()) {
+                throw new IllegalStateException("Cannot delete user with existing Borrowings.");
+            }
+            em.remove(found);
+        }
+    }
+
+    /**
+     * Compares a User about to be merged with its stored state. The stored User is read into
+     * the persistence context, where the merge finds it, so this costs no extra query.
+     *
+     * @param em     The EntityManager of the update.
+     * @param entity The incoming User.
+     * @return The changed fields; unknown for a User without an ID.
+     */
+    private static FieldChanges changedFields(EntityManager em, User entity) {
+        User stored = entity.getId() == null ? null : em.find(User.class, entity.getId());
+        if (stored == null || stored == entity) {
+            return FieldChanges.unknown();
+        }
+        return FieldChanges.none()
+                .compare("name", stored.getName(), entity.getName())
+                .compare("email", stored.getEmail(), entity.getEmail())
+                .compare("phoneNumber", stored.getPhoneNumber(), entity.getPhoneNumber())
+                .compare("address", stored.getAddress(), entity.getAddress());
+    }
+
+    /**
+     * Completes a user name or email prefix from an in-memory sorted index,
+     * built on first use, without querying the database.
+     *
+     * @param prefix The typed text; case and accents are ignored.
+     * @param limit  The maximum number of suggestions.
+     * @return The IDs and "name &lt;email&gt;" labels of up to {@code limit} matching Users.
+     * @throws IllegalArgumentException if the prefix is null or the limit is not positive.
+     */
+    public List<PrefixIndex.Completion> suggest(String prefix, int limit) {
+        return UserSuggestions.complete(prefix, limit);
+    }
+
+    /**
+     * Rebuilds the name and email completion index with one streaming scan of the Users table.
+     * Called at startup so the first suggestion does not pay for the build.
+     *
+     * @return The number of indexed Users.
+     */
+    public int rebuildSuggestionIndex() {
+        return UserSuggestions.rebuild();
+    }
+
+    /**
+     * Retrieves the table row of one {@link User}, e.g. to update a table after a change event.
+     *
+     * @param id The Long ID (converted to int) of the User.
+     * @return The User's row, or null if not found.
+     * @throws IllegalArgumentException if the ID is null.
+     */
+    public UserRow findRow(Long id) {
+        if (id == null) throw new IllegalArgumentException("ID cannot be null");
+        EntityManager em = JPAUtil.getEntityManager();
+        try {
+            return em.createQuery("SELECT NEW LibraryViews.UserRow(u.id, u.name, u.email, u.phoneNumber, u.address)"
+                            + " FROM User u WHERE u.id = :id", UserRow.class)
+                    .setParameter("id", id.intValue())
+                    .getResultStream()
+                    .findFirst()
+                    .orElse(null);
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * Retrieves the table rows of all {@link User} entities, ordered by ID.
+     * Only the displayed columns are selected; no entities are loaded.
+     *
+     * @return One row per User.
+     */
+    public List<UserRow> findRows() {
+        EntityManager em = JPAUtil.getEntityManager();
+        try {
+            return em.createQuery("SELECT NEW LibraryViews.UserRow(u.id, u.name, u.email, u.phoneNumber, u.address)"
+                    + " FROM User u ORDER BY u.id", UserRow.class).getResultList();
         } finally {
             em.close();
         }
     }
-}
\ No newline at end of file
+}
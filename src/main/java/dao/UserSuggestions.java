@@ -0,0 +1,102 @@
+package dao;
+
+import LibraryEntities.User;
+import LibraryUtil.JPAUtil;
+import LibraryUtil.PrefixIndex;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * The in-memory {@link PrefixIndex} completing user names and emails, shared by all DAO instances.
+ * <p>It is filled by one streaming scan of the Users table on first use and then kept up
+ * to date by the committed User changes the DAO reports.</p>
+ */
+final class UserSuggestions {
+
+    /**
+     * The number of rows fetched per round trip while building.
+     */
+    private static final int BUILD_FETCH_SIZE = 1000;
+
+    /**
+     * The shared index.
+     */
+    private static final LiveIndex<PrefixIndex> INDEX = new LiveIndex<>(new PrefixIndex(), UserSuggestions::load);
+
+    private UserSuggestions() {}
+
+    /**
+     * Completes a name or email prefix.
+     *
+     * @param prefix The typed text.
+     * @param limit  The maximum number of completions.
+     * @return The matching Users, in alphabetical order of the matched value.
+     */
+    static List<PrefixIndex.Completion> complete(String prefix, int limit) {
+        return INDEX.get().complete(prefix, limit);
+    }
+
+    /**
+     * Rebuilds the index from the database.
+     *
+     * @return The number of indexed Users.
+     */
+    static int rebuild() {
+        return INDEX.rebuild();
+    }
+
+    /**
+     * Records a committed User insert or update.
+     *
+     * @param user The User, with its ID set.
+     */
+    static void userChanged(User user) {
+        PrefixIndex.Entry entry = entry(user.getId(), user.getName(), user.getEmail());
+        INDEX.changed(index -> index.put(entry));
+    }
+
+    /**
+     * Records a committed User deletion.
+     *
+     * @param userId The deleted User's ID.
+     */
+    static void userRemoved(Long userId) {
+        INDEX.changed(index -> index.remove(userId));
+    }
+
+    /**
+     * Refills the index with one streaming, read-only scan of the Users table.
+     *
+     * @param index The index.
+     * @return The number of indexed Users.
+     */
+    private static int load(PrefixIndex index) {
+        List<PrefixIndex.Entry> entries = new ArrayList<>();
+        EntityManager em = JPAUtil.newEntityManager();
+        try (Stream<Object[]> rows = em.createQuery("SELECT u.id, u.name, u.email FROM User u", Object[].class)
+                .setHint("org.hibernate.fetchSize", BUILD_FETCH_SIZE)
+                .setHint("org.hibernate.readOnly", true)
+                .getResultStream()) {
+            rows.forEach(row -> entries.add(entry((Integer) row[0], (String) row[1], (String) row[2])));
+        } finally {
+            em.close();
+        }
+        index.replaceAll(entries);
+        return entries.size();
+    }
+
+    /**
+     * Creates the completion entry of a User, labelled with the name and email.
+     *
+     * @param id    The User ID.
+     * @param name  The name.
+     * @param email The email address.
+     * @return The entry.
+     */
+    private static PrefixIndex.Entry entry(Integer id, String name, String email) {
+        return new PrefixIndex.Entry(id, name + " <" + email + ">", name, email);
+    }
+}
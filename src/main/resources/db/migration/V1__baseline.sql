@@ -0,0 +1,73 @@
+-- Baseline schema, matching the entity mappings in LibraryEntities.
+-- Sequences hand out blocks of IdGeneration.ALLOCATION_SIZE IDs (pooled-lo).
+
+CREATE SEQUENCE book_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE borrowing_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE copy_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE librarian_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE publisher_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE user_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE Publishers (
+    id INTEGER NOT NULL,
+    name VARCHAR(255),
+    address VARCHAR(255),
+    phoneNumber VARCHAR(255),
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE Books (
+    id BIGINT NOT NULL,
+    title VARCHAR(255),
+    author VARCHAR(255),
+    publisherId INTEGER,
+    publisherName VARCHAR(255),
+    publicationYear INTEGER NOT NULL,
+    isbn VARCHAR(255) NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_books_isbn UNIQUE (isbn),
+    CONSTRAINT fk_books_publisher FOREIGN KEY (publisherId) REFERENCES Publishers (id)
+);
+
+CREATE TABLE Copy (
+    id BIGINT NOT NULL,
+    book_id BIGINT NOT NULL,
+    status SMALLINT NOT NULL,
+    version BIGINT,
+    PRIMARY KEY (id),
+    CONSTRAINT fk_copy_book FOREIGN KEY (book_id) REFERENCES Books (id)
+);
+
+CREATE INDEX idx_copy_book_status ON Copy (book_id, status);
+
+CREATE TABLE Users (
+    id INTEGER NOT NULL,
+    name VARCHAR(255) NOT NULL,
+    email VARCHAR(255) NOT NULL,
+    phoneNumber VARCHAR(255),
+    address VARCHAR(255),
+    PRIMARY KEY (id),
+    CONSTRAINT uk_users_email UNIQUE (email)
+);
+
+CREATE TABLE Librarians (
+    id INTEGER NOT NULL,
+    userId INTEGER NOT NULL,
+    employmentDate DATE,
+    position VARCHAR(255),
+    PRIMARY KEY (id),
+    CONSTRAINT uk_librarians_user UNIQUE (userId),
+    CONSTRAINT fk_librarians_user FOREIGN KEY (userId) REFERENCES Users (id)
+);
+
+CREATE TABLE Borrowings (
+    id INTEGER NOT NULL,
+    user_id INTEGER NOT NULL,
+    copy_id BIGINT NOT NULL,
+    borrowDate DATE,
+    returnDate DATE,
+    version BIGINT,
+    PRIMARY KEY (id),
+    CONSTRAINT fk_borrowings_user FOREIGN KEY (user_id) REFERENCES Users (id),
+    CONSTRAINT fk_borrowings_copy FOREIGN KEY (copy_id) REFERENCES Copy (id)
+);
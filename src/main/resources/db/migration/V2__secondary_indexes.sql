@@ -0,0 +1,5 @@
+-- Secondary indexes for the hot Borrowing access paths; see the Borrowing entity.
+
+CREATE INDEX idx_borrowing_user_history ON Borrowings (user_id, borrowDate, id, returnDate, copy_id);
+CREATE INDEX idx_borrowing_copy ON Borrowings (copy_id);
+CREATE INDEX idx_borrowing_open ON Borrowings (returnDate, borrowDate);
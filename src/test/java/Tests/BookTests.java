@@ -1,12 +1,32 @@
 package Tests;
 
 import dao.BookDaoImpl;
+import dao.CatalogImportResult;
+import dao.CatalogImporter;
 import dao.CopyDaoImpl;
+import dao.PublisherDaoImpl;
 import LibraryEntities.Book;
 import LibraryEntities.Copy;
+import LibraryEntities.CopyStatus;
+import LibraryEntities.Publisher;
+import LibraryUtil.CacheStatistics;
+import LibraryUtil.ChangeEvent;
+import LibraryUtil.ChangeEvents;
+import LibraryUtil.JPAUtil;
+import LibraryUtil.UnitOfWork;
+import LibraryViews.BookAvailability;
+import LibraryViews.BookRow;
+import org.hibernate.Hibernate;
 import org.junit.jupiter.api.*;
 import javax.persistence.EntityManagerFactory;
 import javax.persistence.Persistence;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -150,4 +170,290 @@ public class BookTests {
         Book foundBook = bookDao.findById(testBookId);
         assertNull(foundBook, "Book should be null after deletion");
     }
-}
\ No newline at end of file
+
+    /**
+     * Reads the same Book twice and verifies the second read is served
+     * by the second-level cache, and that an update is visible afterwards.
+     */
+    @Test
+    @Order(8)
+    void testFindByIdUsesSecondLevelCache() {
+        Book book = bookDao.create(new Book("Cached Title", "Cache Author", "Cache Pub", 2024, "8080"));
+        JPAUtil.evictCache();
+
+        bookDao.findById(book.getId());
+        CacheStatistics before = JPAUtil.getCacheStatistics("LibraryEntities.Book");
+        Book cached = bookDao.findById(book.getId());
+        CacheStatistics after = JPAUtil.getCacheStatistics("LibraryEntities.Book");
+
+        assertNotNull(before, "Book cache region should exist");
+        assertTrue(after.getHitCount() > before.getHitCount(), "Second read should be a cache hit");
+
+        cached.setTitle("Cached Title Updated");
+        bookDao.update(cached);
+        assertEquals("Cached Title Updated", bookDao.findById(book.getId()).getTitle(),
+                "Cached Book should reflect the update");
+
+        bookDao.delete(book.getId());
+        assertNull(bookDao.findById(book.getId()), "Deleted Book should not be served from the cache");
+    }
+
+    /**
+     * Verifies that repeated availability queries are served from the query cache
+     * and that a Copy status change through the DAO invalidates them.
+     */
+    @Test
+    @Order(9)
+    void testAvailableTitlesCacheInvalidation() {
+        Book book = bookDao.create(new Book("Availability Title", "Avail Author", "Avail Pub", 2024, "9090"));
+        Copy copy = copyDao.create(new Copy(book, "Available"));
+
+        bookDao.findAvailableTitles();
+        long hitsBefore = bookDao.getQueryCacheStatistics().getHitCount();
+        assertTrue(bookDao.findAvailableTitles().stream().anyMatch(b -> b.getId().equals(book.getId())),
+                "Book with an available copy should be listed");
+        assertTrue(bookDao.getQueryCacheStatistics().getHitCount() > hitsBefore,
+                "Repeated query should be served from the cache");
+
+        copy.setStatus("Borrowed");
+        copyDao.update(copy);
+        assertFalse(bookDao.findAvailableTitles().stream().anyMatch(b -> b.getId().equals(book.getId())),
+                "Book should disappear once its only copy is borrowed");
+
+        copyDao.delete(copy.getId());
+        bookDao.delete(book.getId());
+    }
+
+    /**
+     * Verifies the aggregate availability query counts total, available and borrowed copies.
+     */
+    @Test
+    @Order(10)
+    void testFindAvailability() {
+        Book book = bookDao.create(new Book("Counted Title", "Count Author", "Count Pub", 2024, "10100"));
+        List<Copy> copies = copyDao.createAll(List.of(
+                new Copy(book, "Available"),
+                new Copy(book, "Available"),
+                new Copy(book, "Borrowed")));
+
+        BookAvailability availability = bookDao.findAvailability(book.getId());
+        assertNotNull(availability, "Availability should be found for an existing book");
+        assertEquals(3, availability.getTotalCopies(), "Total copies mismatch");
+        assertEquals(2, availability.getAvailableCopies(), "Available copies mismatch");
+        assertEquals(1, availability.getBorrowedCopies(), "Borrowed copies mismatch");
+        assertEquals(2, bookDao.findAvailability().get(book.getId()).getAvailableCopies(),
+                "Bulk availability should match the single-book query");
+
+        copyDao.deleteAll(copies.stream().map(Copy::getId).collect(Collectors.toList()));
+        assertEquals(0, bookDao.findAvailability(book.getId()).getTotalCopies(),
+                "A book without copies should report zero copies");
+        bookDao.delete(book.getId());
+    }
+
+    /**
+     * Imports a small catalog in chunks of two lines and checks imported books, copy counts,
+     * publisher resolution and the rejected lines.
+     */
+    @Test
+    @Order(11)
+    void testCatalogImport() throws IOException {
+        Publisher publisher = new PublisherDaoImpl().create(new Publisher("Import House", "1 Import Rd", "555-0200"));
+        bookDao.create(new Book("Existing Title", "Existing Author", "Existing Pub", 2000, "IMP-0"));
+        Path source = Files.createTempFile("catalog", ".csv");
+        Path rejects = Files.createTempFile("catalog", ".rejects.csv");
+        try {
+            Files.write(source, List.of(
+                    "title,author,publisher,isbn,publicationYear,copies",
+                    "Imported One,Author A,import house,IMP-1,2001,2",
+                    "\"Imported, Two\",Author B,Unknown Press,IMP-2,2002,1",
+                    "Duplicate One,Author C,Import House,IMP-1,2003,1",
+                    "Existing Again,Author D,Import House,IMP-0,2004,1",
+                    "Bad Year,Author E,Import House,IMP-3,soon,1"));
+            List<CatalogImportResult> progress = new ArrayList<>();
+            CatalogImportResult result = new CatalogImporter(2).importCsv(source, rejects, progress::add);
+
+            assertEquals(5, result.getProcessed(), "Every data line should be processed");
+            assertEquals(2, result.getImportedTitles(), "Two new titles should be imported");
+            assertEquals(3, result.getImportedCopies(), "Copy counts should be honoured");
+            assertEquals(3, result.getRejected(), "Duplicate, existing and invalid lines should be rejected");
+            assertEquals(3, progress.size(), "Progress should be reported once per chunk");
+            assertEquals(4, Files.readAllLines(rejects).size(), "Header plus three rejected lines expected");
+
+            Book imported = bookDao.findAll().stream()
+                    .filter(b -> "IMP-1".equals(b.getIsbn())).findFirst().orElseThrow();
+            assertEquals(publisher.getId(), imported.getPublisher().getId(), "Publisher should be resolved by name");
+            assertEquals(2, bookDao.findAvailability(imported.getId()).getAvailableCopies());
+        } finally {
+            Files.deleteIfExists(source);
+            Files.deleteIfExists(rejects);
+        }
+    }
+
+    /**
+     * Searches the catalog through the inverted index and verifies ranking, case and
+     * accent folding, and that creates, updates and deletes are reflected immediately.
+     */
+    @Test
+    @Order(12)
+    void testSearch() {
+        Book titleMatch = bookDao.create(new Book("Quixotic Zephyr Tales", "Ann Other", "Search Pub", 2001, "978-1-11111-111-1"));
+        Book authorMatch = bookDao.create(new Book("Plain Stories", "Zephyr Müller", "Search Pub", 2002, "978-1-11111-222-2"));
+        bookDao.rebuildSearchIndex();
+
+        List<Long> ids = bookDao.search("zephyr", 10).stream().map(BookRow::getId).collect(Collectors.toList());
+        assertEquals(List.of(titleMatch.getId(), authorMatch.getId()), ids, "Title matches should rank above author matches");
+        assertEquals(List.of(authorMatch.getId()), bookDao.search("ZEPHYR muller", 10).stream()
+                .map(BookRow::getId).collect(Collectors.toList()), "Search should fold case and accents and match all words");
+        assertEquals(titleMatch.getId(), bookDao.search("9781111111111", 10).get(0).getId(),
+                "ISBNs should match without hyphens");
+
+        Book created = bookDao.create(new Book("Zephyr Returns", "Ann Other", "Search Pub", 2003, "978-1-11111-333-3"));
+        assertTrue(bookDao.search("returns zephyr", 10).stream().anyMatch(r -> r.getId().equals(created.getId())),
+                "Created Books should be searchable at once");
+
+        created.setTitle("Gale Returns");
+        bookDao.update(created);
+        assertTrue(bookDao.search("zephyr returns", 10).isEmpty(), "Old title words should no longer match");
+        assertEquals(1, bookDao.search("gale", 10).size(), "New title words should match");
+
+        bookDao.delete(created.getId());
+        assertTrue(bookDao.search("gale", 10).isEmpty(), "Deleted Books should not be found");
+        assertTrue(bookDao.search("  ", 10).isEmpty(), "A query without words should match nothing");
+    }
+
+    /**
+     * Resolves Books by ISBN and verifies that unknown ISBNs are cached as misses,
+     * and that creates, ISBN changes and deletes are reflected in later lookups.
+     */
+    @Test
+    @Order(13)
+    void testFindByIsbn() {
+        String isbn = "978-2-22222-111-1";
+        assertNull(bookDao.findByIsbn(isbn), "No Book should have the ISBN yet");
+        CacheStatistics before = bookDao.getIsbnCacheStatistics();
+        assertNull(bookDao.findByIsbn(" " + isbn + " "), "Unknown ISBNs should stay unknown");
+        CacheStatistics after = bookDao.getIsbnCacheStatistics();
+        assertEquals(before.getHitCount() + 1, after.getHitCount(), "The miss should be answered from the cache");
+
+        Book book = bookDao.create(new Book("Barcode Book", "Scan Ner", "Isbn Pub", 2004, isbn));
+        Book found = bookDao.findByIsbn(isbn);
+        assertNotNull(found, "Creating a Book should replace the cached miss");
+        assertEquals(book.getId(), found.getId());
+
+        book.setIsbn("978-2-22222-222-2");
+        bookDao.update(book);
+        assertNull(bookDao.findByIsbn(isbn), "The old ISBN should no longer resolve");
+        assertEquals(book.getId(), bookDao.findByIsbn("978-2-22222-222-2").getId());
+
+        bookDao.delete(book.getId());
+        assertNull(bookDao.findByIsbn("978-2-22222-222-2"), "Deleted Books should not be found");
+        assertThrows(IllegalArgumentException.class, () -> bookDao.findByIsbn(" "));
+    }
+
+    /**
+     * Subscribes to Book changes and verifies that creates, updates, availability changes
+     * and deletes are published once committed, and that rolled-back changes are not.
+     */
+    @Test
+    @Order(14)
+    void testChangeEvents() {
+        List<ChangeEvent> events = new ArrayList<>();
+        try (ChangeEvents.Subscription ignored = ChangeEvents.subscribe(Book.class, events::add)) {
+            Book book = bookDao.create(new Book("Evented Book", "Bus Driver", "Event Pub", 2005, "978-3-33333-111-1"));
+            Long id = book.getId();
+            assertEquals(List.of(ChangeEvent.created(Book.class, id)).toString(), events.toString());
+
+            events.clear();
+            Copy copy = copyDao.create(new Copy(book, "Available"));
+            assertEquals(1, events.size(), "Adding a copy should publish one availability change");
+            assertEquals(ChangeEvent.Kind.UPDATED, events.get(0).getKind());
+            assertTrue(events.get(0).affects(BookDaoImpl.AVAILABILITY));
+            assertFalse(events.get(0).affects("title"), "Only the availability should be reported as changed");
+
+            events.clear();
+            book.setTitle("Renamed Evented Book");
+            bookDao.update(book);
+            assertEquals(1, events.size());
+            assertEquals(Set.of("title"), events.get(0).getChangedFields(), "Only the title should be reported");
+
+            events.clear();
+            bookDao.update(book);
+            assertTrue(events.isEmpty(), "An update changing nothing should not be published");
+
+            events.clear();
+            try (UnitOfWork unit = UnitOfWork.begin()) {
+                bookDao.create(new Book("Rolled Back", "Bus Driver", "Event Pub", 2005, "978-3-33333-222-2"));
+            }
+            assertTrue(events.isEmpty(), "Rolled-back changes should not be published");
+
+            copyDao.delete(copy.getId());
+            bookDao.delete(id);
+            assertEquals(ChangeEvent.deleted(Book.class, id).toString(), events.get(events.size() - 1).toString());
+        }
+
+        events.clear();
+        Book unobserved = bookDao.create(new Book("Unobserved", "Bus Driver", "Event Pub", 2005, "978-3-33333-333-3"));
+        assertTrue(events.isEmpty(), "Closed subscriptions should receive no events");
+        bookDao.delete(unobserved.getId());
+    }
+
+    /**
+     * Imports a small catalog while subscribed to Book changes and verifies that every
+     * imported Book is published once as created, and rejected lines are not.
+     */
+    @Test
+    @Order(15)
+    void testImportEvents() throws IOException {
+        Path source = Files.createTempFile("catalog", ".csv");
+        Path rejects = Files.createTempFile("catalog", ".rejects.csv");
+        List<ChangeEvent> events = new ArrayList<>();
+        try (ChangeEvents.Subscription ignored = ChangeEvents.subscribe(Book.class, events::add)) {
+            Files.write(source, List.of(
+                    "title,author,publisher,isbn,publicationYear,copies",
+                    "Evented Import One,Author A,Event Pub,EVI-1,2001,1",
+                    "Evented Import Two,Author B,Event Pub,EVI-2,2002,1",
+                    "Evented Duplicate,Author C,Event Pub,EVI-1,2003,1"));
+            CatalogImportResult result = new CatalogImporter(2).importCsv(source, rejects, progress -> { });
+            assertEquals(2, result.getImportedTitles());
+
+            List<String> expected = new ArrayList<>();
+            for (String isbn : List.of("EVI-1", "EVI-2")) {
+                expected.add(ChangeEvent.created(Book.class, bookDao.findByIsbn(isbn).getId()).toString());
+            }
+            assertEquals(expected, events.stream().map(ChangeEvent::toString).collect(Collectors.toList()),
+                    "Each imported Book should be published once");
+        } finally {
+            Files.deleteIfExists(source);
+            Files.deleteIfExists(rejects);
+        }
+    }
+
+    /**
+     * Edits a Book read without its copies after one of them was lent meanwhile, and verifies
+     * the update succeeds, leaves the copy's status alone and reports no availability change.
+     */
+    @Test
+    @Order(16)
+    void testEditWithoutCopies() {
+        Book book = bookDao.create(new Book("Edited Title", "Edit Author", "Edit Pub", 2020, "ISBN-ED"));
+        Copy copy = copyDao.create(new Copy(book, CopyStatus.AVAILABLE));
+
+        Book edited = bookDao.findWithoutCopies(book.getId());
+        assertFalse(Hibernate.isInitialized(edited.getCopies()), "The copies should not be loaded");
+        Copy lent = copyDao.findById(copy.getId());
+        lent.setCopyStatus(CopyStatus.BORROWED);
+        copyDao.update(lent);
+
+        List<ChangeEvent> events = new ArrayList<>();
+        try (ChangeEvents.Subscription ignored = ChangeEvents.subscribe(Book.class, events::add)) {
+            edited.setTitle("Edited Title, Second Edition");
+            assertDoesNotThrow(() -> bookDao.update(edited), "Editing should not touch the lent copy");
+        }
+        assertEquals("Edited Title, Second Edition", bookDao.findById(book.getId()).getTitle());
+        assertEquals(CopyStatus.BORROWED, copyDao.findById(copy.getId()).getCopyStatus(),
+                "The edit should not overwrite the copy's status");
+        assertEquals(1, events.size());
+        assertEquals(Set.of("title"), events.get(0).getChangedFields(), "Only the title should be reported");
+        assertNull(bookDao.findWithoutCopies(-1L));
+    }
+}
@@ -4,16 +4,32 @@ import dao.BorrowingDaoImpl;
 import dao.UserDaoImpl;
 import dao.CopyDaoImpl;
 import dao.BookDaoImpl;
+import dao.BulkReturnResult;
+import dao.CheckoutResult;
 import LibraryEntities.Borrowing;
 import LibraryEntities.User;
 import LibraryEntities.Copy;
+import LibraryEntities.CopyStatus;
 import LibraryEntities.Book;
+import LibraryViews.BorrowingRow;
+
+import LibraryUtil.ChangeEvent;
+import LibraryUtil.ChangeEvents;
+import LibraryUtil.JPAUtil;
+import LibraryUtil.UnitOfWork;
 
 import org.junit.jupiter.api.*;
+import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
 import javax.persistence.Persistence;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -156,8 +172,325 @@ public class BorrowingTests {
         borrowingDao.create(b1);
         borrowingDao.create(b2);
 
-        user = userDao.findById(testUserId);
+        user = userDao.findWithActiveLoans(testUserId);
         List<Borrowing> borrowings = user.getBorrowings();
         assertEquals(2, borrowings.size(), "User should have two borrowing records");
     }
-}
\ No newline at end of file
+
+    /**
+     * Loads the user's active loans with their fetch plan and verifies the copy
+     * and book of every row are usable after the EntityManager is closed.
+     */
+    @Test
+    @Order(7)
+    void testFindActiveByUser() {
+        List<Borrowing> active = borrowingDao.findActiveByUser(testUserId);
+        assertEquals(2, active.size(), "User should have two active loans");
+        for (Borrowing borrowing : active) {
+            assertNull(borrowing.getReturnDate(), "Active loans should not be returned");
+            assertNotNull(borrowing.getCopy().getBook().getTitle(), "Book should be loaded with the loan");
+        }
+    }
+
+    /**
+     * Verifies the projected table rows carry the joined user name and book title.
+     */
+    @Test
+    @Order(8)
+    void testFindRowsByUser() {
+        List<BorrowingRow> rows = borrowingDao.findRowsByUser(testUserId);
+        assertEquals(2, rows.size(), "User should have two borrowing rows");
+        assertTrue(rows.stream().allMatch(r -> "Bob".equals(r.getUserName())), "Rows should carry the user name");
+        assertTrue(rows.stream().anyMatch(r -> "Title1".equals(r.getBookTitle())), "Rows should carry the book title");
+        assertTrue(borrowingDao.findRows().stream().anyMatch(r -> r.getId().equals(rows.get(0).getId())),
+                "All-rows query should include the user's rows");
+    }
+
+    /**
+     * Checks out the only copy of a Book, then verifies a second checkout and
+     * checkouts for unknown users or books fail with the matching result.
+     */
+    @Test
+    @Order(9)
+    void testCheckout() {
+        User user = userDao.create(new User("Carol", "carol@example.com", "555-0101", "9 Oak St"));
+        Book book = bookDao.create(new Book("Checkout Title", "Checkout Author", "Checkout Pub", 2021, "ISBN-CO"));
+        Copy copy = copyDao.create(new Copy(book, CopyStatus.AVAILABLE));
+        Long userId = user.getId().longValue();
+
+        CheckoutResult result = borrowingDao.checkout(userId, book.getId(), LocalDate.now());
+        assertTrue(result.isCheckedOut(), "The available copy should be checked out");
+        assertEquals(copy.getId(), result.getBorrowing().getCopy().getId(), "The only copy should be lent");
+        assertEquals(CopyStatus.BORROWED, copyDao.findById(copy.getId()).getCopyStatus(),
+                "The copy should be marked as borrowed");
+
+        assertEquals(CheckoutResult.Status.NO_COPY_AVAILABLE,
+                borrowingDao.checkout(userId, book.getId(), LocalDate.now()).getStatus(),
+                "A second checkout should find no copy");
+        assertEquals(CheckoutResult.Status.UNKNOWN_USER,
+                borrowingDao.checkout(-1L, book.getId(), LocalDate.now()).getStatus());
+        assertEquals(CheckoutResult.Status.UNKNOWN_BOOK,
+                borrowingDao.checkout(userId, -1L, LocalDate.now()).getStatus());
+    }
+
+    /**
+     * Returns several loans in one call and verifies unknown and already returned IDs are skipped.
+     */
+    @Test
+    @Order(10)
+    void testReturnCopies() {
+        User user = userDao.create(new User("Dave", "dave@example.com", "555-0102", "10 Oak St"));
+        Book book = bookDao.create(new Book("Drop Box Title", "Drop Author", "Drop Pub", 2022, "ISBN-DB"));
+        List<Copy> copies = copyDao.createAll(List.of(
+                new Copy(book, CopyStatus.AVAILABLE),
+                new Copy(book, CopyStatus.AVAILABLE),
+                new Copy(book, CopyStatus.AVAILABLE)));
+        Long userId = user.getId().longValue();
+        List<Long> loanIds = new ArrayList<>();
+        for (int i = 0; i < copies.size(); i++) {
+            loanIds.add(borrowingDao.checkout(userId, book.getId(), LocalDate.now()).getBorrowing().getId().longValue());
+        }
+        borrowingDao.returnCopy(loanIds.get(0));
+
+        LocalDate dropDate = LocalDate.now().plusDays(1);
+        BulkReturnResult result = borrowingDao.returnCopies(List.of(loanIds.get(0), loanIds.get(1), loanIds.get(2), -1L),
+                dropDate);
+        assertEquals(List.of(loanIds.get(1), loanIds.get(2)), result.getReturnedIds(), "Open loans should be returned");
+        assertEquals(List.of(loanIds.get(0), -1L), result.getSkippedIds(), "Returned and unknown loans should be skipped");
+        assertEquals(dropDate, borrowingDao.findById(loanIds.get(2)).getReturnDate(), "Return date should be set");
+        for (Copy copy : copies) {
+            assertEquals(CopyStatus.AVAILABLE, copyDao.findById(copy.getId()).getCopyStatus(),
+                    "Every copy should be available again");
+        }
+    }
+
+    /**
+     * Scans overdue loans with a fetch size smaller than the result, so the
+     * persistence context is cleared mid-scan, and checks only old open loans are reported.
+     */
+    @Test
+    @Order(11)
+    void testScanOverdue() {
+        User user = userDao.create(new User("Erin", "erin@example.com", "555-0103", "11 Oak St"));
+        Book book = bookDao.create(new Book("Overdue Title", "Overdue Author", "Overdue Pub", 2019, "ISBN-OD"));
+        copyDao.createAll(List.of(
+                new Copy(book, CopyStatus.AVAILABLE),
+                new Copy(book, CopyStatus.AVAILABLE),
+                new Copy(book, CopyStatus.AVAILABLE)));
+        Long userId = user.getId().longValue();
+        LocalDate today = LocalDate.now();
+        borrowingDao.checkout(userId, book.getId(), today.minusDays(40));
+        Long returnedId = borrowingDao.checkout(userId, book.getId(), today.minusDays(35))
+                .getBorrowing().getId().longValue();
+        borrowingDao.checkout(userId, book.getId(), today.minusDays(2));
+        borrowingDao.returnCopy(returnedId);
+
+        List<Borrowing> overdue = new ArrayList<>();
+        long scanned = borrowingDao.scanOverdue(today.minusDays(30), 1, b -> {
+            if (b.getUser().getId().equals(user.getId())) {
+                overdue.add(b);
+            }
+        });
+        assertTrue(scanned >= 1, "At least one overdue loan should be scanned");
+        assertEquals(1, overdue.size(), "Only the unreturned 40-day-old loan is overdue");
+        assertEquals(today.minusDays(40), overdue.get(0).getBorrowDate());
+        assertEquals("Overdue Title", overdue.get(0).getCopy().getBook().getTitle(),
+                "The book should be loaded with the streamed loan");
+    }
+
+    /**
+     * Exports one user's history to CSV and checks the header, the filter and the joined columns.
+     */
+    @Test
+    @Order(12)
+    void testExportHistory() throws IOException {
+        User user = userDao.create(new User("Frank", "frank@example.com", "555-0104", "12 Oak St"));
+        Book book = bookDao.create(new Book("Export, Title", "Export Author", "Export Pub", 2018, "ISBN-EX"));
+        copyDao.createAll(List.of(new Copy(book, CopyStatus.AVAILABLE), new Copy(book, CopyStatus.AVAILABLE)));
+        Long userId = user.getId().longValue();
+        LocalDate today = LocalDate.now();
+        borrowingDao.checkout(userId, book.getId(), today.minusDays(10));
+        borrowingDao.checkout(userId, book.getId(), today.minusDays(1));
+
+        Path file = Files.createTempFile("history", ".csv");
+        try {
+            long exported = borrowingDao.exportHistory(file, today.minusDays(5), null, userId);
+            List<String> lines = Files.readAllLines(file);
+            assertEquals(1, exported, "Only the recent loan is inside the date range");
+            assertEquals(2, lines.size(), "Header plus one row expected");
+            assertTrue(lines.get(0).startsWith("borrowing_id,"), "Header row expected");
+            assertTrue(lines.get(1).contains(",Frank,\"Export, Title\",ISBN-EX," + today.minusDays(1) + ","),
+                    "Row should carry the joined and quoted columns: " + lines.get(1));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * Verifies that the schema declares the secondary indexes and that H2 plans the hot
+     * Borrowing and Copy queries through them.
+     */
+    @Test
+    @Order(13)
+    @SuppressWarnings("unchecked")
+    void testSecondaryIndexes() {
+        EntityManager em = JPAUtil.getEntityManager();
+        try {
+            List<String> indexes = ((List<Object>) em.createNativeQuery(
+                            "SELECT INDEX_NAME FROM INFORMATION_SCHEMA.INDEXES"
+                                    + " WHERE UPPER(TABLE_NAME) IN ('BORROWINGS', 'COPY')")
+                    .getResultList()).stream()
+                    .map(name -> name.toString().toLowerCase())
+                    .collect(Collectors.toList());
+            for (String index : List.of("idx_borrowing_user_history", "idx_borrowing_copy",
+                    "idx_borrowing_open", "idx_copy_book_status")) {
+                assertTrue(indexes.contains(index), "Schema should declare " + index);
+            }
+
+            assertPlanUses(em, "idx_borrowing_user_history", "SELECT id, borrowDate, returnDate, copy_id"
+                    + " FROM Borrowings WHERE user_id = 1 ORDER BY borrowDate, id");
+            assertPlanUses(em, "idx_borrowing_copy", "SELECT COUNT(*) FROM Borrowings WHERE copy_id = 1");
+            assertPlanUses(em, "idx_borrowing_open", "SELECT id FROM Borrowings"
+                    + " WHERE returnDate IS NULL AND borrowDate < DATE '2000-01-01' ORDER BY borrowDate");
+            assertPlanUses(em, "idx_copy_book_status", "SELECT COUNT(*) FROM Copy WHERE book_id = 1 AND status = 0");
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * Subscribes to Borrowing and Book changes and verifies the events published by checkouts,
+     * by the bulk {@code returnCopies} and by the bulk {@code deleteAll}.
+     */
+    @Test
+    @Order(14)
+    void testChangeEvents() {
+        User user = userDao.create(new User("Gail", "gail@example.com", "555-0105", "13 Oak St"));
+        Book book = bookDao.create(new Book("Evented Loans", "Loan Author", "Loan Pub", 2023, "ISBN-EV"));
+        copyDao.createAll(List.of(new Copy(book, CopyStatus.AVAILABLE), new Copy(book, CopyStatus.AVAILABLE)));
+        Long userId = user.getId().longValue();
+        List<ChangeEvent> loanEvents = new ArrayList<>();
+        List<ChangeEvent> bookEvents = new ArrayList<>();
+        try (ChangeEvents.Subscription loans = ChangeEvents.subscribe(Borrowing.class, loanEvents::add);
+             ChangeEvents.Subscription books = ChangeEvents.subscribe(Book.class, bookEvents::add)) {
+            List<Long> loanIds = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                loanIds.add(borrowingDao.checkout(userId, book.getId(), LocalDate.now()).getBorrowing().getId().longValue());
+            }
+            assertEquals(describe(loanIds.stream().map(id -> ChangeEvent.created(Borrowing.class, id))),
+                    describe(loanEvents.stream()), "Each checkout should publish its Borrowing");
+            assertEquals(2, bookEvents.size(), "Each checkout should publish one availability change");
+            for (ChangeEvent event : bookEvents) {
+                assertEquals(book.getId(), event.getId());
+                assertTrue(event.affects(BookDaoImpl.AVAILABILITY));
+                assertFalse(event.affects("title"), "A checkout should not report the title as changed");
+            }
+
+            loanEvents.clear();
+            bookEvents.clear();
+            borrowingDao.returnCopies(loanIds, LocalDate.now().plusDays(1));
+            assertEquals(2, loanEvents.size(), "Every returned loan should be published");
+            for (ChangeEvent event : loanEvents) {
+                assertTrue(loanIds.contains(event.getId()));
+                assertEquals(ChangeEvent.Kind.UPDATED, event.getKind());
+                assertTrue(event.affects("returnDate"));
+                assertFalse(event.affects("borrowDate"), "Only the return date should be reported as changed");
+            }
+            assertEquals(2, bookEvents.size(), "Every returned copy should publish an availability change");
+
+            loanEvents.clear();
+            bookEvents.clear();
+            borrowingDao.returnCopies(loanIds, LocalDate.now().plusDays(2));
+            assertTrue(loanEvents.isEmpty(), "Skipped loans should not be published");
+
+            borrowingDao.deleteAll(loanIds);
+            assertEquals(describe(loanIds.stream().map(id -> ChangeEvent.deleted(Borrowing.class, id))),
+                    describe(loanEvents.stream()), "Each deleted loan should be published");
+        }
+    }
+
+    /**
+     * Corrects the return date of an earlier, returned loan of a copy that has been lent
+     * again, then deletes that loan, and verifies the copy stays borrowed by its current loan.
+     */
+    @Test
+    @Order(15)
+    void testCorrectReturnedLoan() {
+        User user = userDao.create(new User("Hank", "hank@example.com", "555-0106", "14 Oak St"));
+        Book book = bookDao.create(new Book("Lent Twice", "Loan Author", "Loan Pub", 2023, "ISBN-LT"));
+        Copy copy = copyDao.create(new Copy(book, CopyStatus.AVAILABLE));
+        Long userId = user.getId().longValue();
+        Long first = borrowingDao.checkout(userId, book.getId(), LocalDate.now().minusDays(10))
+                .getBorrowing().getId().longValue();
+        borrowingDao.updateReturnDate(first, LocalDate.now().minusDays(5));
+        Long second = borrowingDao.checkout(userId, book.getId(), LocalDate.now())
+                .getBorrowing().getId().longValue();
+
+        borrowingDao.updateReturnDate(first, LocalDate.now().minusDays(4));
+        assertEquals(LocalDate.now().minusDays(4), borrowingDao.findById(first).getReturnDate());
+        assertEquals(CopyStatus.BORROWED, copyDao.findById(copy.getId()).getCopyStatus(),
+                "Correcting a returned loan should not free a copy lent again");
+        assertFalse(copyDao.hasAvailableCopy(book.getId()), "The bitmap should still see the copy as lent");
+
+        borrowingDao.delete(first);
+        assertNull(borrowingDao.findById(first));
+        assertEquals(CopyStatus.BORROWED, copyDao.findById(copy.getId()).getCopyStatus(),
+                "Deleting a returned loan should not free a copy lent again");
+        assertFalse(copyDao.hasAvailableCopy(book.getId()), "The bitmap should still see the copy as lent");
+
+        borrowingDao.returnCopy(second);
+        assertEquals(CopyStatus.AVAILABLE, copyDao.findById(copy.getId()).getCopyStatus(),
+                "Closing the open loan should free the copy");
+    }
+
+    /**
+     * Runs checkouts that find no user or no copy, and a return of an unknown loan, in a unit
+     * of work alongside another write, and verifies the write still commits. A DAO call that
+     * rolls back inside a unit makes its commit fail instead.
+     */
+    @Test
+    @Order(16)
+    void testFailedCheckoutInUnitOfWork() {
+        User user = userDao.create(new User("Ivy", "ivy@example.com", "555-0107", "15 Oak St"));
+        Book lent = bookDao.create(new Book("No Copies", "Loan Author", "Loan Pub", 2023, "ISBN-NC"));
+        Long userId = user.getId().longValue();
+
+        Book created = UnitOfWork.execute(() -> {
+            assertEquals(CheckoutResult.Status.UNKNOWN_USER,
+                    borrowingDao.checkout(-1L, lent.getId(), LocalDate.now()).getStatus());
+            assertEquals(CheckoutResult.Status.NO_COPY_AVAILABLE,
+                    borrowingDao.checkout(userId, lent.getId(), LocalDate.now()).getStatus());
+            assertNull(borrowingDao.updateReturnDate(-1L, LocalDate.now()));
+            return bookDao.create(new Book("Written Alongside", "Loan Author", "Loan Pub", 2023, "ISBN-WA"));
+        });
+        assertNotNull(bookDao.findById(created.getId()), "The write next to the failed checkouts should commit");
+
+        assertThrows(IllegalStateException.class, () -> UnitOfWork.run(() -> {
+            bookDao.create(new Book("Rolled Back", "Loan Author", "Loan Pub", 2023, "ISBN-RB"));
+            JPAUtil.getEntityManager().getTransaction().rollback();
+        }), "A unit rolled back by a DAO should not commit");
+        assertNull(bookDao.findByIsbn("ISBN-RB"), "The rolled back unit should write nothing");
+    }
+
+    /**
+     * Describes events, as {@link ChangeEvent} has no value equality.
+     *
+     * @param events The events.
+     * @return Their descriptions, in order.
+     */
+    private static List<String> describe(Stream<ChangeEvent> events) {
+        return events.map(ChangeEvent::toString).collect(Collectors.toList());
+    }
+
+    /**
+     * Asserts that H2's plan for a query reads through the given index.
+     *
+     * @param em    The EntityManager.
+     * @param index The expected index.
+     * @param sql   The query.
+     */
+    private static void assertPlanUses(EntityManager em, String index, String sql) {
+        String plan = em.createNativeQuery("EXPLAIN " + sql).getSingleResult().toString();
+        assertTrue(plan.toLowerCase().contains(index), "Plan should use " + index + ": " + plan);
+    }
+}
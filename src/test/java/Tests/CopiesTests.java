@@ -3,11 +3,20 @@ package Tests;
 import dao.CopyDaoImpl;
 import dao.BookDaoImpl;
 import LibraryEntities.Copy;
+import LibraryEntities.CopyStatus;
 import LibraryEntities.Book;
+import LibraryUtil.AvailabilityBitmap;
+import LibraryUtil.JPAUtil;
+import LibraryUtil.RetryExecutor;
+import LibraryUtil.UnitOfWork;
 import org.junit.jupiter.api.*;
 
 import javax.persistence.EntityManagerFactory;
 import javax.persistence.Persistence;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -111,4 +120,174 @@ public class CopiesTests {
         assertEquals(2, updatedBook.getCopies().size(),
                 "Book should have multiple copies in the relationship");
     }
-}
\ No newline at end of file
+
+    /**
+     * Creates, updates and deletes more Copies than fit in one JDBC batch
+     * using the bulk operations.
+     */
+    @Test
+    @Order(6)
+    void testBulkCopyOperations() {
+        Book book = bookDao.create(new Book("BulkCopyBook", "Bulk Author", "Bulk Pub", 2023, "1210"));
+
+        List<Copy> copies = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            copies.add(new Copy(book, "Available"));
+        }
+        List<Copy> created = copyDao.createAll(copies);
+        assertEquals(120, created.size(), "All copies should be created");
+        assertTrue(created.stream().allMatch(c -> c.getId() != null), "Every copy should have an ID");
+        assertEquals(120, bookDao.findById(book.getId()).getCopies().size(), "Book should have all bulk copies");
+
+        created.forEach(c -> c.setStatus("Borrowed"));
+        copyDao.updateAll(created);
+        assertEquals("Borrowed", copyDao.findById(created.get(119).getId()).getStatus(),
+                "Bulk update should be persisted");
+
+        List<Long> ids = created.stream().map(Copy::getId).collect(Collectors.toList());
+        copyDao.deleteAll(ids);
+        assertTrue(bookDao.findById(book.getId()).getCopies().isEmpty(), "All bulk copies should be deleted");
+    }
+
+    /**
+     * Checks that the availability bitmap follows status changes, deletions and returns.
+     */
+    @Test
+    @Order(7)
+    void testAvailabilityBitmap() {
+        Book book = bookDao.create(new Book("BitmapBook", "Bitmap Author", "Bitmap Pub", 2024, "1211"));
+        assertFalse(copyDao.hasAvailableCopy(book.getId()), "A book without copies has nothing available");
+
+        Copy first = copyDao.create(new Copy(book, CopyStatus.AVAILABLE));
+        Copy second = copyDao.create(new Copy(book, CopyStatus.BORROWED));
+        assertTrue(copyDao.hasAvailableCopy(book.getId()), "The new available copy should be indexed");
+        assertEquals(first.getId(), copyDao.findAvailableCopy(book.getId()).getId(),
+                "Only the first copy is available");
+
+        first.setCopyStatus(CopyStatus.BORROWED);
+        copyDao.update(first);
+        assertFalse(copyDao.hasAvailableCopy(book.getId()), "Both copies are borrowed");
+        assertNull(copyDao.findAvailableCopy(book.getId()), "No copy should be offered");
+
+        second.setCopyStatus(CopyStatus.AVAILABLE);
+        copyDao.update(second);
+        assertEquals(second.getId(), copyDao.findAvailableCopy(book.getId()).getId(),
+                "The second copy became available");
+
+        copyDao.delete(second.getId());
+        assertFalse(copyDao.hasAvailableCopy(book.getId()), "The deleted copy should leave the index");
+    }
+
+    /**
+     * Updates the same Copy from two stale reads and verifies the second update
+     * is rejected as a version conflict instead of overwriting the first.
+     */
+    @Test
+    @Order(8)
+    void testStaleCopyUpdateIsRejected() {
+        Book book = bookDao.create(new Book("VersionBook", "Version Author", "Version Pub", 2024, "1212"));
+        Long copyId = copyDao.create(new Copy(book, CopyStatus.AVAILABLE)).getId();
+
+        Copy deskA = copyDao.findById(copyId);
+        Copy deskB = copyDao.findById(copyId);
+        deskA.setCopyStatus(CopyStatus.BORROWED);
+        Copy updated = copyDao.update(deskA);
+        assertTrue(updated.getVersion() > deskB.getVersion(), "The update should increment the version");
+
+        deskB.setCopyStatus(CopyStatus.AVAILABLE);
+        RuntimeException conflict = assertThrows(RuntimeException.class, () -> copyDao.update(deskB));
+        assertTrue(RetryExecutor.isConflict(conflict), "The stale update should fail as a version conflict");
+        assertEquals(CopyStatus.BORROWED, copyDao.findById(copyId).getCopyStatus(),
+                "The first update should not be overwritten");
+    }
+
+    /**
+     * Groups DAO calls in a unit of work and verifies that they share one EntityManager,
+     * commit together, and leave nothing behind when the unit is rolled back.
+     */
+    @Test
+    @Order(9)
+    void testUnitOfWork() {
+        Book committedBook = new Book("UnitOfWorkBook", "UoW Author", "UoW Pub", 2024, "UOW-1");
+        Copy committedCopy = UnitOfWork.execute(() -> {
+            bookDao.create(committedBook);
+            assertTrue(JPAUtil.getEntityManager().contains(committedBook),
+                    "Entities should stay managed between DAO calls");
+            return copyDao.create(new Copy(committedBook, CopyStatus.AVAILABLE));
+        });
+        assertFalse(UnitOfWork.isActive(), "Unit of work should end with execute");
+        assertNotNull(copyDao.findById(committedCopy.getId()), "Committed Copy should be stored");
+        assertTrue(copyDao.hasAvailableCopy(committedBook.getId()), "Bitmap should see the committed Copy");
+
+        Book abandonedBook = new Book("AbandonedBook", "UoW Author", "UoW Pub", 2024, "UOW-2");
+        try (UnitOfWork unit = UnitOfWork.begin()) {
+            bookDao.create(abandonedBook);
+            assertNotNull(bookDao.findById(abandonedBook.getId()), "Unit should see its own changes");
+        }
+        assertNull(bookDao.findById(abandonedBook.getId()), "Uncommitted Book should be rolled back");
+
+        Book failedBook = new Book("FailedBook", "UoW Author", "UoW Pub", 2024, "UOW-3");
+        assertThrows(IllegalStateException.class, () -> UnitOfWork.run(() -> {
+            bookDao.create(failedBook);
+            throw new IllegalStateException("Abort");
+        }));
+        assertNull(bookDao.findById(failedBook.getId()), "Failed unit should be rolled back");
+    }
+
+    /**
+     * Runs a bulk create of more than one JDBC batch inside a unit of work after an unflushed
+     * change, and verifies that the batch flushes neither discard the change nor detach the
+     * unit's entities.
+     */
+    @Test
+    @Order(10)
+    void testBulkCreateInUnitOfWork() {
+        Book book = bookDao.create(new Book("BulkUnitBook", "UoW Author", "UoW Pub", 2024, "UOW-4"));
+        int count = JPAUtil.getBatchSize() * 2 + 1;
+        List<Copy> created = UnitOfWork.execute(() -> {
+            Book managed = bookDao.findById(book.getId());
+            managed.setTitle("BulkUnitBook Renamed");
+            List<Copy> copies = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                copies.add(new Copy(managed, CopyStatus.AVAILABLE));
+            }
+            List<Copy> result = copyDao.createAll(copies);
+            assertTrue(JPAUtil.getEntityManager().contains(managed),
+                    "The unit's entities should stay managed after the batch flushes");
+            return result;
+        });
+        assertEquals(count, created.size());
+        assertEquals("BulkUnitBook Renamed", bookDao.findById(book.getId()).getTitle(),
+                "The unflushed change should be committed with the unit");
+        for (Copy copy : created) {
+            assertNotNull(copyDao.findById(copy.getId()), "Every bulk-created Copy should be stored");
+        }
+    }
+
+    /**
+     * Checks that the bitmap reuses the slots of removed copies, and that a load started
+     * before a change, or before the book was evicted, is discarded.
+     */
+    @Test
+    @Order(11)
+    void testAvailabilityBitmapSlots() {
+        AvailabilityBitmap bitmap = new AvailabilityBitmap();
+        assertTrue(bitmap.load(1L, bitmap.version(1L), Map.of(10L, true)));
+        bitmap.update(1L, 11L, true);
+        bitmap.remove(1L, 10L);
+        bitmap.update(1L, 12L, true);
+        assertEquals(List.of(12L, 11L), bitmap.availableCopyIds(1L), "The removed copy's slot should be reused first");
+
+        long stale = bitmap.version(2L);
+        bitmap.update(2L, 20L, true);
+        assertFalse(bitmap.load(2L, stale, Map.of(20L, false)), "A load older than a change should be discarded");
+        assertEquals(-1, bitmap.availableCount(2L), "A book changed while not loaded should stay unloaded");
+        assertTrue(bitmap.load(2L, bitmap.version(2L), Map.of(20L, true)));
+
+        stale = bitmap.version(1L);
+        bitmap.evict(1L);
+        assertFalse(bitmap.isLoaded(1L));
+        assertFalse(bitmap.load(1L, stale, Map.of()), "A load older than an eviction should be discarded");
+        assertEquals(1, bitmap.availableCount(2L), "Other books should stay loaded");
+    }
+}
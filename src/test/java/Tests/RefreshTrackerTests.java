@@ -0,0 +1,108 @@
+package Tests;
+
+import LibraryUtil.RefreshTracker;
+import LibraryUtil.RefreshTracker.Refresh;
+import org.junit.jupiter.api.*;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for the {@link RefreshTracker} bookkeeping behind the GUI tables:
+ * merged loads, merged and deferred row patches, and the fallback to a full load.
+ * No database or Swing components are needed.
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class RefreshTrackerTests {
+
+    /**
+     * The number of rows re-read at once used by the tests.
+     */
+    private static final int MAX_PATCHES = 2;
+
+    /**
+     * Verifies that changes before the first load are ignored, and that a burst of load
+     * requests during a running load is merged into one more load whose rows replace
+     * the outdated ones.
+     */
+    @Test
+    @Order(1)
+    void testMergedLoads() {
+        RefreshTracker tracker = new RefreshTracker(MAX_PATCHES);
+        assertEquals(Refresh.IGNORE, tracker.rowChanged(1L), "Changes before the first load should be ignored");
+
+        int first = tracker.requestLoad();
+        assertNotEquals(0, first, "The first request should start a load");
+        for (int i = 0; i < 10; i++) {
+            assertEquals(0, tracker.requestLoad(), "Requests during a load should be merged");
+        }
+        assertFalse(tracker.loadCompleted(first), "Rows of a load requested again meanwhile are outdated");
+        int second = tracker.nextLoad();
+        assertNotEquals(0, second, "The merged requests should start one more load");
+        assertEquals(0, tracker.nextLoad(), "Only one merged load should start");
+        assertTrue(tracker.loadCompleted(second), "The rows of the last load should be shown");
+        assertEquals(0, tracker.nextLoad(), "No load should be pending");
+
+        int failed = tracker.requestLoad();
+        assertEquals(0, tracker.requestLoad());
+        tracker.loadFailed(failed);
+        assertNotEquals(0, tracker.nextLoad(), "A failed load should still start the merged one");
+    }
+
+    /**
+     * Verifies that repeated changes of a row being re-read are merged into one more read,
+     * and that rows changing during a full load are re-read after it.
+     */
+    @Test
+    @Order(2)
+    void testStaleRows() {
+        RefreshTracker tracker = new RefreshTracker(MAX_PATCHES);
+        assertTrue(tracker.loadCompleted(tracker.requestLoad()));
+
+        assertEquals(Refresh.PATCH, tracker.rowChanged(1L));
+        assertEquals(Refresh.DEFER, tracker.rowChanged(1L), "A row being re-read should not be queried twice");
+        assertEquals(Refresh.DEFER, tracker.rowChanged(1L));
+        assertTrue(tracker.patchCompleted(1L), "The re-read row should be shown");
+        assertTrue(tracker.takeStale(1L), "The row changed again while re-read, so it is read once more");
+        assertFalse(tracker.takeStale(1L), "The repeated changes should be merged into one more read");
+
+        int load = tracker.requestLoad();
+        assertEquals(Refresh.DEFER, tracker.rowChanged(2L), "Changes during a load should wait for it");
+        assertTrue(tracker.loadCompleted(load));
+        assertEquals(List.of(2L), tracker.takeStaleAfterLoad(), "The row changed during the load should be re-read");
+        assertEquals(List.of(), tracker.takeStaleAfterLoad());
+
+        assertEquals(Refresh.PATCH, tracker.rowChanged(3L));
+        load = tracker.requestLoad();
+        assertFalse(tracker.patchCompleted(3L), "A row read before a running load should not be shown");
+        assertTrue(tracker.loadCompleted(load));
+        assertEquals(List.of(3L), tracker.takeStaleAfterLoad(), "The row should be re-read after the load");
+    }
+
+    /**
+     * Verifies the fallback to a full load once too many rows are re-read at once,
+     * or changed during a load.
+     */
+    @Test
+    @Order(3)
+    void testFullLoadFallback() {
+        RefreshTracker tracker = new RefreshTracker(MAX_PATCHES);
+        assertTrue(tracker.loadCompleted(tracker.requestLoad()));
+
+        assertEquals(Refresh.PATCH, tracker.rowChanged(1L));
+        assertEquals(Refresh.PATCH, tracker.rowChanged(2L));
+        assertEquals(Refresh.LOAD, tracker.rowChanged(3L), "Too many rows re-read at once should load the table");
+        tracker.patchFailed(1L);
+        assertEquals(Refresh.PATCH, tracker.rowChanged(3L), "A failed read should free its slot");
+
+        int load = tracker.requestLoad();
+        for (long id = 10; id <= 10 + MAX_PATCHES; id++) {
+            assertEquals(Refresh.DEFER, tracker.rowChanged(id));
+        }
+        assertTrue(tracker.loadCompleted(load));
+        assertNull(tracker.takeStaleAfterLoad(), "Too many rows changed during a load should load the table again");
+
+        assertThrows(IllegalArgumentException.class, () -> new RefreshTracker(0));
+    }
+}
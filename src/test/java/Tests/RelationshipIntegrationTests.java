@@ -16,9 +16,17 @@ import LibraryEntities.Publisher;
 
 import org.junit.jupiter.api.*;
 
+import LibraryUtil.SchemaMigrator;
+
+import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
 import javax.persistence.Persistence;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
 import java.time.LocalDate;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -98,7 +106,7 @@ public class RelationshipIntegrationTests {
         borrowingDao.create(b1);
         borrowingDao.create(b2);
 
-        User updatedUser = userDao.findById(userId);
+        User updatedUser = userDao.findWithActiveLoans(userId);
         assertNotNull(updatedUser, "User should still exist");
         assertEquals(2, updatedUser.getBorrowings().size(), "User should have exactly 2 borrowings");
 
@@ -201,4 +209,41 @@ public class RelationshipIntegrationTests {
         assertEquals(1, reloadedOldPub.getBooks().size(),
                 "Old publisher should now only have 1 book associated");
     }
-}
\ No newline at end of file
+
+    /**
+     * Migrates an empty database and verifies that Hibernate accepts the migrated schema
+     * in validate-only mode, and that migrating again is a no-op.
+     */
+    @Test
+    @Order(5)
+    void testSchemaMigrationsMatchMappings() throws Exception {
+        String url = "jdbc:h2:mem:migrationTest;DB_CLOSE_DELAY=-1";
+        try (Connection connection = DriverManager.getConnection(url, "sa", "")) {
+            assertEquals(SchemaMigrator.latestVersion(), SchemaMigrator.migrate(connection),
+                    "Every migration should be applied to an empty database");
+            assertEquals(0, SchemaMigrator.migrate(connection), "An up-to-date database needs no migration");
+
+            EntityManagerFactory validated = Persistence.createEntityManagerFactory("LibraryPU", Map.of(
+                    "javax.persistence.jdbc.url", url,
+                    "hibernate.hbm2ddl.auto", "validate"));
+            try {
+                EntityManager em = validated.createEntityManager();
+                try {
+                    em.getTransaction().begin();
+                    em.persist(new User("Migrated", "migrated@example.com", "000", "Schema St"));
+                    em.getTransaction().commit();
+                } finally {
+                    em.close();
+                }
+            } finally {
+                validated.close();
+            }
+
+            try (Statement statement = connection.createStatement();
+                 ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM Users")) {
+                rs.next();
+                assertEquals(1, rs.getInt(1), "The migrated schema should accept inserts");
+            }
+        }
+    }
+}
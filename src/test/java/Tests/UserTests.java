@@ -1,6 +1,7 @@
 package Tests;
 
 import LibraryEntities.Book;
+import dao.AsyncDao;
 import dao.BookDaoImpl;
 import dao.CopyDaoImpl;
 import dao.UserDaoImpl;
@@ -9,11 +10,24 @@ import LibraryEntities.User;
 import LibraryEntities.Borrowing;
 import LibraryEntities.Copy;
 
+import LibraryUtil.ChangeEvent;
+import LibraryUtil.ChangeEvents;
+import LibraryUtil.JPAUtil;
+import LibraryUtil.PoolStatistics;
+import LibraryUtil.PrefixIndex;
+import org.hibernate.Hibernate;
 import org.junit.jupiter.api.*;
 
 import javax.persistence.EntityManagerFactory;
 import javax.persistence.Persistence;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -181,4 +195,205 @@ public class UserTests {
         User found = userDao.findById(testUserId);
         assertNull(found, "User should be null after deletion");
     }
-}
\ No newline at end of file
+
+    /**
+     * Walks the {@link User} table with keyset pagination and verifies that every
+     * page continues strictly after the previous one, both in ID and in name order.
+     */
+    @Test
+    @Order(6)
+    void testFindPage() {
+        List<Integer> createdIds = new ArrayList<>();
+        for (String name : List.of("Paging C", "Paging A", "Paging B")) {
+            User user = new User(name, name.replace(' ', '.') + "@example.com", "000", "Page St");
+            createdIds.add(userDao.create(user).getId());
+        }
+
+        List<Integer> seenIds = new ArrayList<>();
+        Long afterId = null;
+        List<User> page;
+        while (!(page = userDao.findPage(afterId, 2)).isEmpty()) {
+            assertTrue(page.size() <= 2, "Page should not exceed the page size");
+            for (User user : page) {
+                if (!seenIds.isEmpty()) {
+                    assertTrue(user.getId() > seenIds.get(seenIds.size() - 1), "IDs should be strictly increasing");
+                }
+                seenIds.add(user.getId());
+            }
+            afterId = page.get(page.size() - 1).getId().longValue();
+        }
+        assertTrue(seenIds.containsAll(createdIds), "All created users should be visited");
+
+        List<String> names = new ArrayList<>();
+        String afterName = null;
+        afterId = null;
+        while (!(page = userDao.findPage("name", afterName, afterId, 2)).isEmpty()) {
+            for (User user : page) {
+                names.add(user.getName());
+            }
+            User last = page.get(page.size() - 1);
+            afterName = last.getName();
+            afterId = last.getId().longValue();
+        }
+        List<String> sorted = new ArrayList<>(names);
+        sorted.sort(null);
+        assertEquals(sorted, names, "Pages should follow name order");
+        assertEquals(seenIds.size(), names.size(), "Name order should visit every user exactly once");
+
+        assertThrows(IllegalArgumentException.class, () -> userDao.findPage("phoneNumber", null, null, 2));
+    }
+
+    /**
+     * Verifies that DAO calls borrow their connections from the pool and return them.
+     */
+    @Test
+    @Order(7)
+    void testPoolStatistics() {
+        userDao.findAll();
+        PoolStatistics stats = JPAUtil.getPoolStatistics();
+        assertNotNull(stats, "Connections should come from the pool");
+        assertTrue(stats.getMaxSize() >= stats.getMinIdle(), "Maximum size should cover the idle minimum");
+        assertTrue(stats.getActive() + stats.getIdle() <= stats.getMaxSize(), "Pool should not exceed its maximum");
+        assertEquals(0, stats.getActive(), "Every connection should be returned after the DAO call");
+        assertTrue(stats.getAcquisitions() > 0, "The DAO call should have borrowed a connection");
+        assertTrue(stats.getMaxAcquireMillis() >= stats.getAverageAcquireMillis());
+    }
+
+    /**
+     * Verifies that user name and email prefixes are completed case- and accent-insensitively,
+     * that a user matching with both values is suggested once, and that the suggestions
+     * follow committed creates, updates and deletes.
+     */
+    @Test
+    @Order(8)
+    void testSuggest() {
+        userDao.rebuildSuggestionIndex();
+        User user = userDao.create(new User("Zoë Quillfeather", "zoe.quill@example.com", "000", "Prefix St"));
+        long id = user.getId();
+
+        List<PrefixIndex.Completion> byName = userDao.suggest("ZOE QUI", 10);
+        assertEquals(1, byName.size(), "Only the new user should match");
+        assertEquals(id, byName.get(0).getId());
+        assertEquals("Zoë Quillfeather <zoe.quill@example.com>", byName.get(0).getLabel());
+        assertEquals(1, userDao.suggest("zo", 10).stream().filter(c -> c.getId() == id).count(),
+                "A user matching by name and email should be suggested once");
+
+        user.setName("Zoë Inkwell");
+        userDao.update(user);
+        assertTrue(userDao.suggest("zoe quill", 10).isEmpty(), "The old name should no longer match");
+        assertEquals(id, userDao.suggest("zoe ink", 10).get(0).getId());
+        assertEquals(id, userDao.suggest("zoe.quill@", 10).get(0).getId(), "The email should still match");
+
+        userDao.delete(id);
+        assertTrue(userDao.suggest("zoe", 10).stream().noneMatch(c -> c.getId() == id),
+                "Deleted users should not be suggested");
+        assertTrue(userDao.suggest("  ", 10).isEmpty(), "Blank prefixes should complete to nothing");
+        assertThrows(IllegalArgumentException.class, () -> userDao.suggest("zoe", 0));
+    }
+
+    /**
+     * Runs DAO calls through {@link AsyncDao} and verifies that they run off the calling
+     * thread, can run concurrently, and report failures through their futures.
+     */
+    @Test
+    @Order(9)
+    void testAsyncDao() throws Exception {
+        AsyncDao<User> users = new AsyncDao<>(userDao);
+        Thread caller = Thread.currentThread();
+
+        User created = users.create(new User("Async Ann", "async.ann@example.com", "000", "Future St"))
+                .get(10, TimeUnit.SECONDS);
+        assertNotNull(created.getId(), "The created user should have an ID");
+        Long id = created.getId().longValue();
+
+        List<CompletableFuture<User>> reads = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            reads.add(AsyncDao.supply(() -> {
+                assertNotSame(caller, Thread.currentThread(), "Calls should run in the background");
+                return userDao.findByEmail("async.ann@example.com");
+            }));
+        }
+        for (CompletableFuture<User> read : reads) {
+            assertEquals(created.getId(), read.get(10, TimeUnit.SECONDS).getId());
+        }
+
+        ExecutionException failure = assertThrows(ExecutionException.class,
+                () -> new AsyncDao<>(new BookDaoImpl()).findById(null).get(10, TimeUnit.SECONDS));
+        assertTrue(failure.getCause() instanceof IllegalArgumentException, "The DAO exception should be the cause");
+
+        users.delete(id).get(10, TimeUnit.SECONDS);
+        assertNull(users.findById(id).get(10, TimeUnit.SECONDS), "The user should be deleted");
+    }
+
+    /**
+     * Subscribes to User changes and verifies that creates, deletes and bulk deletes are
+     * published, that updates list exactly the changed fields, and that an update changing
+     * nothing publishes no event.
+     */
+    @Test
+    @Order(10)
+    void testChangeEvents() {
+        List<ChangeEvent> events = new ArrayList<>();
+        try (ChangeEvents.Subscription ignored = ChangeEvents.subscribe(User.class, events::add)) {
+            User first = userDao.create(new User("Evan Event", "evan.event@example.com", "555-0300", "1 Bus St"));
+            User second = userDao.create(new User("Eve Event", "eve.event@example.com", "555-0301", "2 Bus St"));
+            long firstId = first.getId();
+            long secondId = second.getId();
+            assertEquals(List.of(ChangeEvent.created(User.class, firstId).toString(),
+                            ChangeEvent.created(User.class, secondId).toString()),
+                    events.stream().map(ChangeEvent::toString).collect(Collectors.toList()));
+
+            events.clear();
+            first.setName("Evan Renamed");
+            userDao.update(first);
+            assertEquals(1, events.size());
+            assertEquals(ChangeEvent.Kind.UPDATED, events.get(0).getKind());
+            assertEquals(Set.of("name"), events.get(0).getChangedFields(), "Only the name should be reported");
+
+            events.clear();
+            userDao.update(first);
+            assertTrue(events.isEmpty(), "An update changing nothing should not be published");
+
+            first.setEmail("evan.renamed@example.com");
+            userDao.updateAll(List.of(first, second));
+            assertEquals(1, events.size(), "Only the changed User of a bulk update should be published");
+            assertEquals(Long.valueOf(firstId), events.get(0).getId());
+            assertEquals(Set.of("email"), events.get(0).getChangedFields());
+            assertFalse(events.get(0).affects("name"), "A changed email should not reload the user names");
+
+            events.clear();
+            userDao.delete(firstId);
+            userDao.deleteAll(List.of(secondId));
+            assertEquals(List.of(ChangeEvent.deleted(User.class, firstId).toString(),
+                            ChangeEvent.deleted(User.class, secondId).toString()),
+                    events.stream().map(ChangeEvent::toString).collect(Collectors.toList()));
+        }
+    }
+
+    /**
+     * Verifies that {@code findById} loads no borrowings, and that {@code findWithActiveLoans}
+     * loads only the open loans, with their copies and books.
+     */
+    @Test
+    @Order(11)
+    void testFindWithActiveLoans() {
+        User user = userDao.create(new User("Lana Loans", "lana.loans@example.com", "555-0302", "3 Bus St"));
+        Long userId = user.getId().longValue();
+        Book book = bookDao.create(new Book("Loaned Twice", "Loan Author", "Loan Pub", 2022, "ISBN-UL"));
+        Copy first = copyDao.create(new Copy(book, "Available"));
+        Copy second = copyDao.create(new Copy(book, "Available"));
+        Borrowing returned = borrowingDao.create(new Borrowing(user, first, LocalDate.now().minusDays(9)));
+        borrowingDao.updateReturnDate(returned.getId().longValue(), LocalDate.now().minusDays(2));
+        Borrowing open = borrowingDao.create(new Borrowing(user, second, LocalDate.now()));
+
+        User plain = userDao.findById(userId);
+        assertFalse(Hibernate.isInitialized(plain.getBorrowings()), "findById should not load the borrowings");
+
+        User withLoans = userDao.findWithActiveLoans(userId);
+        assertEquals(1, withLoans.getBorrowings().size(), "Only the open loan should be loaded");
+        Borrowing loan = withLoans.getBorrowings().get(0);
+        assertEquals(open.getId(), loan.getId());
+        assertEquals("Loaned Twice", loan.getCopy().getBook().getTitle(), "The loan's book should be usable");
+        assertNull(userDao.findWithActiveLoans(-1L));
+    }
+}